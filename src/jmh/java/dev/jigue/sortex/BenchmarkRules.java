@@ -0,0 +1,106 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds synthetic {@link java.util.Map}-based DSL representations for benchmarks.
+ */
+final class BenchmarkRules {
+    private BenchmarkRules() {
+        // No instantiation.
+    }
+
+    enum Target {
+        HIT,
+        OTHER,
+        DEFAULT,
+        ;
+    }
+
+    enum MessageKind {
+        EXACT,
+        REGEX,
+        ;
+    }
+
+    enum Position {
+        HIT_FIRST,
+        HIT_LAST,
+        MISS,
+        ;
+    }
+
+    /**
+     * Builds rules that all share {@link java.lang.IllegalStateException} so that every rule is a class candidate.
+     *
+     * <p>The rule {@code i} matches the message {@link #message(int)}. The first rule is sorted into {@code HIT} when
+     * {@code hitFirst}, or the last rule is sorted into {@code HIT} otherwise. The others are sorted into {@code OTHER}.
+     */
+    static List<Map<String, Object>> rules(final int ruleCount, final MessageKind kind, final boolean hitFirst) {
+        final ArrayList<Map<String, Object>> maps = new ArrayList<>();
+        for (int i = 0; i < ruleCount; i++) {
+            final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+            map.put("class_equals", "java.lang.IllegalStateException");
+            map.put("message_matches_either_of", Collections.singletonList(pattern(i, kind)));
+            final boolean isHit = hitFirst ? (i == 0) : (i == ruleCount - 1);
+            map.put("sorted_into", isHit ? "HIT" : "OTHER");
+            maps.add(map);
+        }
+        return maps;
+    }
+
+    static String pattern(final int i, final MessageKind kind) {
+        if (kind == MessageKind.REGEX) {
+            return "/Failure #" + i + " at .+ in [a-z]+/";
+        }
+        return message(i);
+    }
+
+    static String message(final int i) {
+        return "Failure #" + i + " at somewhere in benchmark";
+    }
+
+    static Throwable exception(final int ruleCount, final Position position) {
+        switch (position) {
+            case HIT_FIRST:
+                return new IllegalStateException(message(0));
+            case HIT_LAST:
+                return new IllegalStateException(message(ruleCount - 1));
+            case MISS:
+            default:
+                return new IllegalStateException("Failure that is not expected at all");
+        }
+    }
+
+    /**
+     * Builds a chain of {@link java.lang.RuntimeException}s wrapping an {@link java.io.IOException} at the bottom.
+     */
+    static Throwable chain(final int depth, final String bottomMessage) {
+        Throwable exception = new IOException(bottomMessage);
+        for (int i = 0; i < depth; i++) {
+            exception = new RuntimeException("Wrapper #" + i, exception);
+        }
+        return exception;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link CauseExceptionRule} walking deep cause chains.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CauseExceptionRuleBenchmark {
+    @Param({"1", "10", "30"})
+    public int depth;
+
+    @Param({"true", "false"})
+    public boolean hit;
+
+    private CauseExceptionRule rule;
+    private Throwable exception;
+
+    @Setup
+    public void setUp() {
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("class_extends", "java.io.IOException");
+        map.put("message_matches_either_of", "/File .+ not found\\./");
+        map.put("direct", false);
+        this.rule = CauseExceptionRule.from(map);
+        this.exception = BenchmarkRules.chain(this.depth, this.hit ? "File foo.txt not found." : "Permission denied.");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return this.rule.matches(this.exception);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link MessageMatchesEitherOfRule} with many alternatives.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageMatchesEitherOfRuleBenchmark {
+    @Param({"1", "10", "50"})
+    public int alternativeCount;
+
+    @Param({"HIT_FIRST", "HIT_LAST", "MISS"})
+    public BenchmarkRules.Position position;
+
+    @Param({"EXACT", "REGEX"})
+    public BenchmarkRules.MessageKind messageKind;
+
+    private MessageMatchesEitherOfRule rule;
+    private Throwable exception;
+
+    @Setup
+    public void setUp() {
+        final ArrayList<String> patterns = new ArrayList<>();
+        for (int i = 0; i < this.alternativeCount; i++) {
+            patterns.add(BenchmarkRules.pattern(i, this.messageKind));
+        }
+        this.rule = MessageMatchesEitherOfRule.of(patterns);
+        this.exception = BenchmarkRules.exception(this.alternativeCount, this.position);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return this.rule.matches(this.exception);
+    }
+}
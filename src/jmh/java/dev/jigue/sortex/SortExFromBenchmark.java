@@ -0,0 +1,61 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link SortEx#from(List, Class)} to compile YAML-shaped {@link java.util.Map}s into a {@link SortEx}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SortExFromBenchmark {
+    @Param({"10", "100", "1000"})
+    public int ruleCount;
+
+    @Param({"EXACT", "REGEX"})
+    public BenchmarkRules.MessageKind messageKind;
+
+    private List<Map<String, Object>> maps;
+
+    @Setup
+    public void setUp() {
+        this.maps = BenchmarkRules.rules(this.ruleCount, this.messageKind, true);
+    }
+
+    @Benchmark
+    public SortEx<BenchmarkRules.Target> from() {
+        return SortEx.from(this.maps, BenchmarkRules.Target.class);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link SortEx#matchesAll(List, Enum)}, and how {@link SortEx#matchesAll(List, Enum, ForkJoinPool)} scales.
+ *
+ * <p>{@code parallelism=0} runs the sequential {@link SortEx#matchesAll(List, Enum)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SortExMatchesAllBenchmark {
+    @Param({"100000"})
+    public int size;
+
+    @Param({"0", "1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"EXACT", "REGEX"})
+    public BenchmarkRules.MessageKind messageKind;
+
+    private SortEx<BenchmarkRules.Target> sortex;
+    private List<Throwable> exceptions;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        final int ruleCount = 100;
+        this.sortex = SortEx.from(BenchmarkRules.rules(ruleCount, this.messageKind, false), BenchmarkRules.Target.class);
+
+        final Random random = new Random(42);
+        this.exceptions = new ArrayList<>();
+        for (int i = 0; i < this.size; i++) {
+            // Messages repeat as they do in retry queues, and a quarter of them do not match.
+            final int rule = random.nextInt(ruleCount * 4 / 3);
+            this.exceptions.add(new IllegalStateException(
+                    rule < ruleCount ? BenchmarkRules.message(rule) : "Failure that is not expected #" + rule));
+        }
+
+        if (this.parallelism > 0) {
+            this.pool = new ForkJoinPool(this.parallelism);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (this.pool != null) {
+            this.pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public BenchmarkRules.Target[] matchesAll() {
+        if (this.pool == null) {
+            return this.sortex.matchesAll(this.exceptions, BenchmarkRules.Target.DEFAULT);
+        }
+        return this.sortex.matchesAll(this.exceptions, BenchmarkRules.Target.DEFAULT, this.pool);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link SortEx#matches(Throwable, Enum)} against rule sets of different sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SortExMatchesBenchmark {
+    @Param({"10", "100", "1000"})
+    public int ruleCount;
+
+    @Param({"HIT_FIRST", "HIT_LAST", "MISS"})
+    public BenchmarkRules.Position position;
+
+    @Param({"EXACT", "REGEX"})
+    public BenchmarkRules.MessageKind messageKind;
+
+    @Param({"false", "true"})
+    public boolean bytecode;
+
+    @Param({"false", "true"})
+    public boolean resultCache;
+
+    private SortEx<BenchmarkRules.Target> sortex;
+    private Throwable exception;
+
+    @Setup
+    public void setUp() {
+        this.sortex = SortEx.from(
+                BenchmarkRules.rules(this.ruleCount, this.messageKind, this.position == BenchmarkRules.Position.HIT_FIRST),
+                BenchmarkRules.Target.class);
+        if (this.bytecode) {
+            this.sortex = this.sortex.withBytecodeMatcher();
+        }
+        if (this.resultCache) {
+            this.sortex = this.sortex.withResultCache(1024);
+        }
+        this.exception = BenchmarkRules.exception(this.ruleCount, this.position);
+    }
+
+    @Benchmark
+    public BenchmarkRules.Target matches() {
+        return this.sortex.matches(this.exception, BenchmarkRules.Target.DEFAULT);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dispatches a {@link java.lang.Throwable} instance to candidate exception rules in an order adapted to observed hits.
+ *
+ * <p>Candidates are the same as {@link ClassDispatchIndex}'s per concrete {@link java.lang.Class}. Their evaluation order
+ * starts in the original order, and it is replaced atomically by {@link #reorder()} so that frequently hit rules come
+ * earlier. Two candidates are swapped only when they are provably exclusive, which means no {@link java.lang.Throwable}
+ * instance can match both. The first matching rule in the original order is, therefore, always the first matching rule
+ * in an adapted order. Note that all candidates of a concrete {@link java.lang.Class} match the class by definition, and
+ * exclusiveness is proved by their message rules.
+ */
+final class AdaptiveDispatch {
+    AdaptiveDispatch(final ClassDispatchIndex index) {
+        this.index = index;
+        this.registeredEntries = new ConcurrentLinkedQueue<>();
+        this.entries = new ClassValue<Entry>() {
+            @Override
+            protected Entry computeValue(final Class<?> clazz) {
+                final Entry entry = new Entry(AdaptiveDispatch.this.index.plan(clazz));
+                AdaptiveDispatch.this.registeredEntries.add(new WeakReference<>(entry));
+                return entry;
+            }
+        };
+    }
+
+    /**
+     * Finds the position of the first exception rule that matches, in the adapted order.
+     *
+     * @param statistics  the statistics to record into, or {@code null} not to record
+     * @return the position of the first matched exception rule, or {@code -1} if nothing matched
+     */
+    int find(final Throwable exception, final StatisticsCollector statistics) {
+        final Entry entry = this.entries.get(exception.getClass());
+        final int[] order = entry.order;
+        if (statistics == null) {
+            final int slot = entry.plan.find(exception, order);
+            if (slot < 0) {
+                return -1;
+            }
+            entry.hits[slot].increment();
+            return entry.candidates[slot];
+        }
+        for (int i = 0; i < order.length; i++) {
+            final int slot = order[i];
+            final int position = entry.candidates[slot];
+            final long started = System.nanoTime();
+            final boolean isHit = this.index.rule(position).matchesExceptClass(exception);
+            statistics.recordEvaluation(position, isHit, System.nanoTime() - started);
+            if (isHit) {
+                entry.hits[slot].increment();
+                return position;
+            }
+        }
+        statistics.recordUnmatched();
+        return -1;
+    }
+
+    /**
+     * Returns the positions of candidate exception rules for the {@link java.lang.Class} in the current evaluation order.
+     */
+    int[] order(final Class<?> clazz) {
+        final Entry entry = this.entries.get(clazz);
+        final int[] order = entry.order;
+        final int[] positions = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            positions[i] = entry.candidates[order[i]];
+        }
+        return positions;
+    }
+
+    /**
+     * Reorders candidates of every concrete {@link java.lang.Class} seen so far based on their hits.
+     */
+    void reorder() {
+        final Iterator<WeakReference<Entry>> iterator = this.registeredEntries.iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next().get();
+            if (entry == null) {
+                iterator.remove();  // The class has been unloaded.
+                continue;
+            }
+            entry.reorder(this.index);
+        }
+    }
+
+    private static final class Entry {
+        Entry(final CandidatePlan plan) {
+            final int[] candidates = plan.positions();
+            this.plan = plan;
+            this.candidates = candidates;
+            this.hits = new LongAdder[candidates.length];
+            final int[] order = new int[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                this.hits[i] = new LongAdder();
+                order[i] = i;
+            }
+            this.order = order;
+        }
+
+        synchronized void reorder(final ClassDispatchIndex index) {
+            final int size = this.candidates.length;
+            if (size <= 1) {
+                return;
+            }
+            if (this.dependencies == null) {
+                this.dependencies = computeDependencies(index, this.candidates);
+            }
+
+            final long[] counts = new long[size];
+            for (int i = 0; i < size; i++) {
+                counts[i] = this.hits[i].sum();
+            }
+
+            // A topological sort that respects the original order between dependent candidates. Among candidates ready
+            // to be placed, one with more hits comes first, and ties are broken by the original order.
+            final boolean[] placed = new boolean[size];
+            final int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                int best = -1;
+                for (int slot = 0; slot < size; slot++) {
+                    if (placed[slot] || !isReady(slot, placed, this.dependencies)) {
+                        continue;
+                    }
+                    if (best < 0 || counts[slot] > counts[best]) {
+                        best = slot;
+                    }
+                }
+                placed[best] = true;
+                order[i] = best;
+            }
+            this.order = order;  // Swapped atomically with the volatile write.
+        }
+
+        private static boolean isReady(final int slot, final boolean[] placed, final boolean[][] dependencies) {
+            for (int earlier = 0; earlier < slot; earlier++) {
+                if (dependencies[slot][earlier] && !placed[earlier]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Computes {@code dependencies[later][earlier]}, which is {@code true} if their relative order must be kept.
+         */
+        private static boolean[][] computeDependencies(final ClassDispatchIndex index, final int[] candidates) {
+            final boolean[][] dependencies = new boolean[candidates.length][candidates.length];
+            for (int later = 0; later < candidates.length; later++) {
+                for (int earlier = 0; earlier < later; earlier++) {
+                    dependencies[later][earlier] = !index.rule(candidates[earlier]).isExclusiveWith(index.rule(candidates[later]));
+                }
+            }
+            return dependencies;
+        }
+
+        private final CandidatePlan plan;
+        private final int[] candidates;
+        private final LongAdder[] hits;  // Indexed by slots in |candidates|.
+
+        private volatile int[] order;  // Slots in |candidates| in the evaluation order.
+        private boolean[][] dependencies;  // Computed lazily, and guarded by |this|.
+    }
+
+    private final ClassDispatchIndex index;
+
+    private final ClassValue<Entry> entries;
+    private final ConcurrentLinkedQueue<WeakReference<Entry>> registeredEntries;
+}
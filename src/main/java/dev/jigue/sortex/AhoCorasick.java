@@ -0,0 +1,321 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Searches a text for multiple literal strings at once with the Aho-Corasick algorithm.
+ *
+ * <p>The automaton is built once, and then it is immutable. A search scans the text only once, and it does not allocate.
+ *
+ * <p>Each literal may have a mask of bits, which is reported when the literal is found. The masks are for callers that
+ * resolve many predicates by one scan, such as {@link MessageLiteralScanner}.
+ */
+final class AhoCorasick {
+    private AhoCorasick(
+            final char[][] labels,
+            final int[][] nexts,
+            final int[] failures,
+            final boolean[] accepts,
+            final long[] masks,
+            final long[] outputs) {
+        this.labels = labels;
+        this.nexts = nexts;
+        this.failures = failures;
+        this.accepts = accepts;
+        this.masks = masks;
+        this.outputs = outputs;
+    }
+
+    static AhoCorasick of(final List<String> literals) {
+        final long[] masks = new long[literals.size()];
+        Arrays.fill(masks, 1L);
+        return of(literals, masks);
+    }
+
+    /**
+     * Builds an automaton whose each literal reports its mask.
+     *
+     * @param literals  the literals
+     * @param masks  the mask of each literal in the same order with {@code literals}, which should not be zero
+     */
+    static AhoCorasick of(final List<String> literals, final long[] masks) {
+        final ArrayList<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        final ArrayList<Boolean> terminals = new ArrayList<>();
+        final ArrayList<Long> terminalMasks = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        terminals.add(false);
+        terminalMasks.add(0L);
+
+        for (int index = 0; index < literals.size(); index++) {
+            final String literal = literals.get(index);
+            int node = 0;
+            for (int i = 0; i < literal.length(); i++) {
+                final Integer next = trie.get(node).get(literal.charAt(i));
+                if (next == null) {
+                    trie.add(new TreeMap<>());
+                    terminals.add(false);
+                    terminalMasks.add(0L);
+                    trie.get(node).put(literal.charAt(i), trie.size() - 1);
+                    node = trie.size() - 1;
+                } else {
+                    node = next;
+                }
+            }
+            terminals.set(node, true);
+            terminalMasks.set(node, terminalMasks.get(node) | masks[index]);
+        }
+
+        final int size = trie.size();
+        final char[][] labels = new char[size][];
+        final int[][] nexts = new int[size][];
+        for (int node = 0; node < size; node++) {
+            final TreeMap<Character, Integer> children = trie.get(node);
+            labels[node] = new char[children.size()];
+            nexts[node] = new int[children.size()];
+            int i = 0;
+            for (final Map.Entry<Character, Integer> child : children.entrySet()) {
+                labels[node][i] = child.getKey();
+                nexts[node][i] = child.getValue();
+                i++;
+            }
+        }
+
+        final int[] failures = new int[size];
+        final boolean[] accepts = new boolean[size];
+        final long[] terminalMasksArray = new long[size];
+        final long[] outputs = new long[size];
+        for (int node = 0; node < size; node++) {
+            accepts[node] = terminals.get(node);
+            terminalMasksArray[node] = terminalMasks.get(node);
+            outputs[node] = terminalMasks.get(node);
+        }
+
+        // Breadth-first so that the failure of a shallower node is always computed earlier.
+        final ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (final int child : nexts[0]) {
+            failures[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            final int node = queue.poll();
+            for (int i = 0; i < labels[node].length; i++) {
+                final char label = labels[node][i];
+                final int child = nexts[node][i];
+                int failure = failures[node];
+                while (failure != 0 && step(labels, nexts, failure, label) < 0) {
+                    failure = failures[failure];
+                }
+                final int failureNext = step(labels, nexts, failure, label);
+                failures[child] = failureNext < 0 ? 0 : failureNext;
+                accepts[child] = accepts[child] || accepts[failures[child]];
+                outputs[child] |= outputs[failures[child]];
+                queue.add(child);
+            }
+        }
+
+        return new AhoCorasick(labels, nexts, failures, accepts, terminalMasksArray, outputs);
+    }
+
+    /**
+     * Restores an automaton built by {@link #of(List)} from its tables, for example, read from a binary.
+     *
+     * <p>The tables are validated so that a search always terminates: the transitions must form a tree from the root
+     * node {@code 0} with sorted labels, and the failure of each node must be shallower than the node.
+     *
+     * @param labels  the labels of the transitions of each node
+     * @param nexts  the next nodes of the transitions of each node
+     * @param failures  the failure of each node
+     * @param terminals  whether a literal ends at each node
+     * @param accepts  whether a literal ends at each node, or at either of its failures
+     * @throws IllegalArgumentException  if the tables are invalid
+     */
+    static AhoCorasick restore(
+            final char[][] labels,
+            final int[][] nexts,
+            final int[] failures,
+            final boolean[] terminals,
+            final boolean[] accepts) {
+        final int size = labels.length;
+        if (size == 0 || nexts.length != size || failures.length != size || terminals.length != size || accepts.length != size) {
+            throw new IllegalArgumentException("The tables of the automaton have inconsistent sizes.");
+        }
+
+        final int[] depths = new int[size];
+        Arrays.fill(depths, -1);
+        depths[0] = 0;
+        final ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        int visited = 0;
+        while (!queue.isEmpty()) {
+            final int node = queue.poll();
+            visited++;
+            if (nexts[node].length != labels[node].length) {
+                throw new IllegalArgumentException("The tables of the automaton have inconsistent sizes.");
+            }
+            for (int i = 0; i < labels[node].length; i++) {
+                final int child = nexts[node][i];
+                if ((i > 0 && labels[node][i - 1] >= labels[node][i]) || child <= 0 || child >= size || depths[child] >= 0) {
+                    throw new IllegalArgumentException("The transitions of the automaton are not a tree.");
+                }
+                depths[child] = depths[node] + 1;
+                queue.add(child);
+            }
+        }
+        if (visited != size) {
+            throw new IllegalArgumentException("The transitions of the automaton are not a tree.");
+        }
+
+        final long[] masks = new long[size];
+        final long[] outputs = new long[size];
+        for (int node = 0; node < size; node++) {
+            final int failure = failures[node];
+            if (failure < 0 || failure >= size || (node != 0 && depths[failure] >= depths[node]) || (node == 0 && failure != 0)) {
+                throw new IllegalArgumentException("The failures of the automaton are invalid.");
+            }
+            masks[node] = terminals[node] ? 1L : 0L;
+            outputs[node] = accepts[node] ? 1L : 0L;
+        }
+        return new AhoCorasick(labels, nexts, failures, accepts, masks, outputs);
+    }
+
+    int size() {
+        return this.labels.length;
+    }
+
+    char[] labels(final int node) {
+        return this.labels[node];
+    }
+
+    int[] nexts(final int node) {
+        return this.nexts[node];
+    }
+
+    int failure(final int node) {
+        return this.failures[node];
+    }
+
+    boolean isTerminal(final int node) {
+        return this.masks[node] != 0L;
+    }
+
+    boolean accepts(final int node) {
+        return this.accepts[node];
+    }
+
+    /**
+     * Checks if the text contains either of the literals.
+     */
+    boolean containsAny(final CharSequence text) {
+        if (this.accepts[0]) {
+            return true;  // An empty literal is contained in any text.
+        }
+        int node = 0;
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            int next = step(this.labels, this.nexts, node, c);
+            while (next < 0 && node != 0) {
+                node = this.failures[node];
+                next = step(this.labels, this.nexts, node, c);
+            }
+            node = next < 0 ? 0 : next;
+            if (this.accepts[node]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects the masks of all the literals contained in the text.
+     */
+    long collect(final CharSequence text) {
+        long collected = this.outputs[0];
+        int node = 0;
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            int next = step(this.labels, this.nexts, node, c);
+            while (next < 0 && node != 0) {
+                node = this.failures[node];
+                next = step(this.labels, this.nexts, node, c);
+            }
+            node = next < 0 ? 0 : next;
+            collected |= this.outputs[node];
+        }
+        return collected;
+    }
+
+    /**
+     * Collects the masks of all the literals that the text starts with, by walking down the trie without failures.
+     */
+    long collectPrefixes(final CharSequence text) {
+        long collected = this.masks[0];
+        int node = 0;
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            node = step(this.labels, this.nexts, node, text.charAt(i));
+            if (node < 0) {
+                break;
+            }
+            collected |= this.masks[node];
+        }
+        return collected;
+    }
+
+    /**
+     * Collects the masks of all the literals that the text ends with, assuming the literals were reversed when built.
+     */
+    long collectReversedPrefixes(final CharSequence text) {
+        long collected = this.masks[0];
+        int node = 0;
+        for (int i = text.length() - 1; i >= 0; i--) {
+            node = step(this.labels, this.nexts, node, text.charAt(i));
+            if (node < 0) {
+                break;
+            }
+            collected |= this.masks[node];
+        }
+        return collected;
+    }
+
+    private static int step(final char[][] labels, final int[][] nexts, final int node, final char c) {
+        final int found = Arrays.binarySearch(labels[node], c);
+        if (found < 0) {
+            return -1;
+        }
+        return nexts[node][found];
+    }
+
+    // Transitions of each node: |labels[node]| is sorted, and |nexts[node][i]| is the next node for |labels[node][i]|.
+    private final char[][] labels;
+    private final int[][] nexts;
+
+    private final int[] failures;
+    private final boolean[] accepts;
+
+    // |masks[node]| is of the literals ending at the node, and |outputs[node]| includes ones through its failures.
+    private final long[] masks;
+    private final long[] outputs;
+}
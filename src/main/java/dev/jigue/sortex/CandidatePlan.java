@@ -0,0 +1,221 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Evaluates candidate exception rules for a concrete {@link java.lang.Class} with shared predicates.
+ *
+ * <p>Candidate exception rules often share identical message rules or cause rules, such as the same
+ * {@code cause_matches_either_of} repeated with different messages. A plan interns such predicates by their structural
+ * equality so that each distinct predicate is evaluated at most once per input {@link java.lang.Throwable} instance,
+ * while it still picks the same first matching exception rule. Results of predicates are memoized in bits of local
+ * variables, which does not allocate. Only the first {@value #MEMOIZABLE} distinct predicates are memoized, and the rest
+ * are just evaluated every time.
+ *
+ * <p>Message rules with exact messages are resolved by the {@link ExactMessageIndex} shared in the ruleset. The message
+ * is looked up there only once per input, at the first such message rule. Literal message rules, such as
+ * {@code message_starts_with}, are resolved together by one scan of the message in a {@link MessageLiteralScanner}.
+ *
+ * <p>Class rules are not included here because all candidates match the {@link java.lang.Class} by definition. The
+ * message rule and the cause rule of each candidate are evaluated in the order of their costs, as
+ * {@link ExceptionRule#matchesExceptClass(Throwable)} does.
+ */
+final class CandidatePlan {
+    private CandidatePlan(
+            final int[] positions,
+            final int[] messageSlots,
+            final int[] causeSlots,
+            final ExceptionRule[] candidates,
+            final MessageRule[] messageRules,
+            final CauseRule[] causeRules,
+            final ExactMessageIndex exactMessages,
+            final int[] indexedPositions,
+            final MessageLiteralScanner literalScanner) {
+        this.positions = positions;
+        this.messageSlots = messageSlots;
+        this.causeSlots = causeSlots;
+        this.candidates = candidates;
+        this.messageRules = messageRules;
+        this.causeRules = causeRules;
+        this.exactMessages = exactMessages;
+        this.indexedPositions = indexedPositions;
+        this.literalScanner = literalScanner;
+        this.literalBits = literalScanner == null ? 0L : literalScanner.bits();
+    }
+
+    static CandidatePlan of(final int[] positions, final ExceptionRule[] rules, final ExactMessageIndex exactMessages) {
+        final HashMap<MessageRule, Integer> messageRuleSlots = new HashMap<>();
+        final HashMap<CauseRule, Integer> causeRuleSlots = new HashMap<>();
+        final ArrayList<MessageRule> messageRules = new ArrayList<>();
+        final ArrayList<CauseRule> causeRules = new ArrayList<>();
+
+        final int[] messageSlots = new int[positions.length];
+        final int[] causeSlots = new int[positions.length];
+        final ExceptionRule[] candidates = new ExceptionRule[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            final ExceptionRule rule = rules[positions[i]];
+            candidates[i] = rule;
+
+            final MessageRule messageRule = rule.messageRule();
+            if (messageRule == null) {
+                messageSlots[i] = -1;
+            } else {
+                messageSlots[i] = messageRuleSlots.computeIfAbsent(messageRule, k -> {
+                    messageRules.add(k);
+                    return messageRules.size() - 1;
+                });
+            }
+
+            final CauseRule causeRule = rule.causeRule();
+            if (causeRule == null) {
+                causeSlots[i] = -1;
+            } else {
+                causeSlots[i] = causeRuleSlots.computeIfAbsent(causeRule, k -> {
+                    causeRules.add(k);
+                    return causeRules.size() - 1;
+                });
+            }
+        }
+
+        // A message rule is resolved by the index through any position that has it because equal message rules are indexed equally.
+        final int[] indexedPositions = new int[messageRules.size()];
+        Arrays.fill(indexedPositions, -1);
+        for (int i = 0; i < positions.length; i++) {
+            if (messageSlots[i] >= 0 && exactMessages.isIndexed(positions[i])) {
+                indexedPositions[messageSlots[i]] = positions[i];
+            }
+        }
+
+        // Cause rules are memoized after message rules in the same bits.
+        for (int i = 0; i < positions.length; i++) {
+            if (causeSlots[i] >= 0) {
+                causeSlots[i] += messageRules.size();
+            }
+        }
+
+        final MessageRule[] messageRulesArray = messageRules.toArray(new MessageRule[0]);
+        return new CandidatePlan(
+                positions,
+                messageSlots,
+                causeSlots,
+                candidates,
+                messageRulesArray,
+                causeRules.toArray(new CauseRule[0]),
+                exactMessages,
+                indexedPositions,
+                MessageLiteralScanner.of(messageRulesArray));
+    }
+
+    int[] positions() {
+        return this.positions;
+    }
+
+    /**
+     * Finds the first matching candidate.
+     *
+     * @param exception  the {@link java.lang.Throwable} instance to match
+     * @param order  indices of candidates in the order to evaluate, or {@code null} for the original order
+     * @return the index of the first matched candidate, or {@code -1} if nothing matched
+     */
+    int find(final Throwable exception, final int[] order) {
+        final int size = order == null ? this.positions.length : order.length;
+
+        long evaluated = 0L;
+        long results = 0L;
+        String message = null;
+        int[] accepting = null;  // Looked up at the first message rule resolved by the index.
+        candidates:
+        for (int j = 0; j < size; j++) {
+            final int i = order == null ? j : order[j];
+
+            final boolean isCauseFirst = this.candidates[i].isCauseFirst(exception);
+            for (int k = 0; k < 2; k++) {
+                final int slot = (k == 0) == isCauseFirst ? this.causeSlots[i] : this.messageSlots[i];
+                if (slot < 0) {
+                    continue;
+                }
+                final long bit = slot < MEMOIZABLE ? (1L << slot) : 0L;
+                if ((bit & this.literalBits) != 0L && (evaluated & bit) == 0L) {
+                    // All the literal message rules are resolved at once, and memoized.
+                    results |= this.literalScanner.scan(CauseChain.messageOf(exception));
+                    evaluated |= this.literalBits;
+                }
+                final boolean result;
+                if ((evaluated & bit) != 0L) {
+                    result = (results & bit) != 0L;
+                } else if (slot < this.indexedPositions.length && this.indexedPositions[slot] >= 0) {
+                    if (accepting == null) {
+                        message = CauseChain.messageOf(exception);
+                        accepting = this.exactMessages.lookUp(message);
+                    }
+                    result = this.exactMessages.matches(this.indexedPositions[slot], accepting, message);
+                    evaluated |= bit;
+                    results |= result ? bit : 0L;
+                } else {
+                    result = this.evaluate(slot, exception);
+                    evaluated |= bit;
+                    results |= result ? bit : 0L;
+                }
+                if (!result) {
+                    continue candidates;
+                }
+            }
+
+            return i;
+        }
+        return -1;
+    }
+
+    private boolean evaluate(final int slot, final Throwable exception) {
+        if (slot < this.messageRules.length) {
+            return this.messageRules[slot].matches(exception);
+        }
+        return this.causeRules[slot - this.messageRules.length].matches(exception);
+    }
+
+    /**
+     * Counts the number of distinct predicates in this plan.
+     */
+    int countPredicates() {
+        return this.messageRules.length + this.causeRules.length;
+    }
+
+    static final int MEMOIZABLE = 64;
+
+    private final int[] positions;
+
+    // Slots of the predicates of each candidate, or -1 if the candidate does not have the predicate.
+    private final int[] messageSlots;
+    private final int[] causeSlots;
+
+    private final ExceptionRule[] candidates;
+
+    private final MessageRule[] messageRules;
+    private final CauseRule[] causeRules;
+
+    private final ExactMessageIndex exactMessages;
+
+    // A position of a candidate that has each message rule if it is resolved by the index, or -1.
+    private final int[] indexedPositions;
+
+    private final MessageLiteralScanner literalScanner;  // Nullable if no literal message rule is in the candidates.
+    private final long literalBits;
+}
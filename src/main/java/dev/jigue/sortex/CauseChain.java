@@ -0,0 +1,181 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.Arrays;
+
+/**
+ * A cause chain of a {@link java.lang.Throwable} instance flattened into an array, shared by all the cause rules.
+ *
+ * <p>The chain is walked only once per classification, bounded by the maximum depth, and stopped at a cycle detected
+ * by identity. {@link java.lang.Throwable}s deeper than the maximum depth, or after a cycle, are invisible from cause
+ * rules. A nested cause rule, which is evaluated against a {@link java.lang.Throwable} in the chain, reuses the same
+ * chain from the position of the {@link java.lang.Throwable}. A classification nested in another classification, for
+ * example, from an overridden {@link java.lang.Throwable#getMessage()}, walks its own chain with its own maximum depth.
+ *
+ * <p>The message of each {@link java.lang.Throwable} in the chain is retrieved lazily, and at most once per
+ * classification, by {@link #messageOf(Throwable)}. It matters for {@link java.lang.Throwable}s that build their
+ * messages on demand in overridden {@link java.lang.Throwable#getMessage()}.
+ *
+ * <p>A chain is reused per thread so that a classification does not allocate. It is acquired before evaluating rules,
+ * and released after that. Its references to {@link java.lang.Throwable}s and messages are cleared when it is released.
+ */
+final class CauseChain {
+    private CauseChain() {
+        this.elements = new Throwable[INITIAL_CAPACITY];
+        this.messages = new String[INITIAL_CAPACITY];
+        this.isMessageFetched = new boolean[INITIAL_CAPACITY];
+        this.length = 0;
+        this.maxDepth = 0;
+        this.acquired = 0;
+        this.outer = null;
+    }
+
+    /**
+     * Acquires the chain being acquired that contains the {@link java.lang.Throwable} instance, for rules evaluated in a
+     * classification, or a new chain with the default maximum depth.
+     */
+    static CauseChain acquire(final Throwable exception) {
+        final CauseChain current = CURRENT.get();
+        if (current.acquired > 0 && current.indexOf(exception) >= 0) {
+            current.acquired++;
+            return current;
+        }
+        return acquire(exception, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Acquires the chain of the {@link java.lang.Throwable} instance to start a classification.
+     *
+     * <p>The chain being acquired is reused only if it is the same chain, which starts from the {@link java.lang.Throwable}
+     * instance with the same maximum depth. Otherwise, another classification runs while classifying, for example, from an
+     * overridden {@link java.lang.Throwable#getMessage()}. It gets a new chain, which is the current chain of the thread
+     * until it is released.
+     *
+     * @param maxDepth  the maximum number of {@link java.lang.Throwable}s in the chain, including the first one
+     */
+    static CauseChain acquire(final Throwable exception, final int maxDepth) {
+        final CauseChain current = CURRENT.get();
+        if (current.acquired > 0) {
+            if (current.maxDepth == maxDepth && current.indexOf(exception) == 0) {
+                current.acquired++;
+                return current;
+            }
+            final CauseChain nested = new CauseChain();
+            nested.fill(exception, maxDepth);
+            nested.acquired = 1;
+            nested.outer = current;
+            CURRENT.set(nested);
+            return nested;
+        }
+        current.fill(exception, maxDepth);
+        current.acquired = 1;
+        return current;
+    }
+
+    void release() {
+        this.acquired--;
+        if (this.acquired == 0) {
+            Arrays.fill(this.elements, 0, this.length, null);  // Not to retain the Throwable instances.
+            Arrays.fill(this.messages, 0, this.length, null);
+            Arrays.fill(this.isMessageFetched, 0, this.length, false);
+            this.length = 0;
+            if (this.outer != null) {
+                CURRENT.set(this.outer);
+                this.outer = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the position of the {@link java.lang.Throwable} instance in the chain by identity, or {@code -1}.
+     */
+    int indexOf(final Throwable exception) {
+        for (int i = 0; i < this.length; i++) {
+            if (this.elements[i] == exception) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the message of the {@link java.lang.Throwable} instance, which is memoized if it is in the chain being acquired.
+     */
+    static String messageOf(final Throwable exception) {
+        final CauseChain current = CURRENT.get();
+        if (current.acquired > 0) {
+            final int index = current.indexOf(exception);
+            if (index >= 0) {
+                return current.message(index);
+            }
+        }
+        return exception.getMessage();
+    }
+
+    /**
+     * Returns the message of the {@link java.lang.Throwable} at the position, which is retrieved only at the first time.
+     */
+    String message(final int index) {
+        if (!this.isMessageFetched[index]) {
+            this.messages[index] = this.elements[index].getMessage();
+            this.isMessageFetched[index] = true;
+        }
+        return this.messages[index];
+    }
+
+    int length() {
+        return this.length;
+    }
+
+    Throwable get(final int index) {
+        return this.elements[index];
+    }
+
+    private void fill(final Throwable exception, final int maxDepth) {
+        this.length = 0;
+        this.maxDepth = maxDepth;
+        Throwable current = exception;
+        while (current != null && this.length < maxDepth) {
+            if (this.indexOf(current) >= 0) {
+                break;  // A cycle.
+            }
+            if (this.length == this.elements.length) {
+                final int capacity = Math.min(this.elements.length * 2, Math.max(maxDepth, 1));
+                this.elements = Arrays.copyOf(this.elements, capacity);
+                this.messages = Arrays.copyOf(this.messages, capacity);
+                this.isMessageFetched = Arrays.copyOf(this.isMessageFetched, capacity);
+            }
+            this.elements[this.length++] = current;
+            current = current.getCause();
+        }
+    }
+
+    static final int DEFAULT_MAX_DEPTH = 64;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final ThreadLocal<CauseChain> CURRENT = ThreadLocal.withInitial(CauseChain::new);
+
+    private Throwable[] elements;
+    private String[] messages;  // Each element is nullable.
+    private boolean[] isMessageFetched;
+    private int length;
+    private int maxDepth;
+    private int acquired;  // The number of nested acquisitions.
+    private CauseChain outer;  // Nullable. The chain of the classification that this nested classification runs in.
+}
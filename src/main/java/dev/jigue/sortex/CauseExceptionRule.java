@@ -30,6 +30,10 @@ class CauseExceptionRule {
     }
 
     static CauseExceptionRule from(final Map<String, Object> map) {
+        return from(map, RuleContext.eager());
+    }
+
+    static CauseExceptionRule from(final Map<String, Object> map, final RuleContext context) {
         if (!map.containsKey("direct")) {
             throw new IllegalArgumentException("Exception in cause does not contain \"direct\".");
         }
@@ -40,20 +44,50 @@ class CauseExceptionRule {
         if (!(directObject instanceof Boolean)) {
             throw new ClassCastException("Exception in cause contains \"direct\" that is not boolean.");
         }
-        return new CauseExceptionRule(ExceptionRule.from(map), (Boolean) directObject);
+        return new CauseExceptionRule(ExceptionRule.from(map, context), (Boolean) directObject);
     }
 
     boolean matches(final Throwable exception) {
-        Throwable cause = exception.getCause();
-        do {
-            if (this.exceptionRule.matches(cause)) {
+        final CauseChain chain = CauseChain.acquire(exception);
+        try {
+            return this.matches(chain, chain.indexOf(exception));
+        } finally {
+            chain.release();
+        }
+    }
+
+    /**
+     * Matches causes of the {@link java.lang.Throwable} at the position in the chain, which never matches without a cause.
+     */
+    boolean matches(final CauseChain chain, final int position) {
+        final int end = this.isDirect ? Math.min(position + 2, chain.length()) : chain.length();
+        for (int i = position + 1; i < end; i++) {
+            if (this.exceptionRule.matches(chain.get(i))) {
                 return true;
             }
-            cause = cause.getCause();
-        } while (cause != null && !this.isDirect);
+        }
         return false;
     }
 
+    /**
+     * Estimates the cost, assuming that a non-direct cause rule looks into a few causes.
+     */
+    int cost() {
+        return (this.isDirect ? 1 : ASSUMED_DEPTH) * this.exceptionRule.cost();
+    }
+
+    boolean throwsForNullMessage() {
+        return this.exceptionRule.throwsForNullMessage();
+    }
+
+    ExceptionRule exceptionRule() {
+        return this.exceptionRule;
+    }
+
+    boolean isDirect() {
+        return this.isDirect;
+    }
+
     Map<String, Object> toMap() {
         final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
         map.putAll(this.exceptionRule.toMap());
@@ -85,6 +119,9 @@ class CauseExceptionRule {
         return this.toMap().toString();
     }
 
+    // The number of causes assumed to be looked into by a non-direct cause rule, which is typical in wrapped exceptions.
+    private static final int ASSUMED_DEPTH = 4;
+
     private final ExceptionRule exceptionRule;
     private final boolean isDirect;
 }
@@ -27,6 +27,7 @@ import java.util.Objects;
 final class CauseMatchesEitherOfRule extends CauseRule {
     private CauseMatchesEitherOfRule(final List<CauseExceptionRule> causeRules) {
         this.causeRules = Collections.unmodifiableList(new ArrayList<>(causeRules));
+        this.causeRulesArray = causeRules.toArray(new CauseExceptionRule[0]);
     }
 
     static CauseMatchesEitherOfRule of(final List<CauseExceptionRule> causeRules) {
@@ -37,7 +38,7 @@ final class CauseMatchesEitherOfRule extends CauseRule {
         return CauseMatchesEitherOfRule.of(Arrays.asList(causeRules));
     }
 
-    static CauseMatchesEitherOfRule from(final Object causeRulesObject) {
+    static CauseMatchesEitherOfRule from(final Object causeRulesObject, final RuleContext context) {
         if (causeRulesObject == null) {
             throw new NullPointerException("Value of \"" + KEY + "\" is null.");
         }
@@ -48,7 +49,7 @@ final class CauseMatchesEitherOfRule extends CauseRule {
                 if (causeRuleObject == null || !(causeRuleObject instanceof Map)) {
                     throw new ClassCastException("Value of \"" + KEY + "\" does not consist of maps.");
                 }
-                causeRules.add(buildCauseExceptionRuleFromMap((Map) causeRuleObject));
+                causeRules.add(buildCauseExceptionRuleFromMap((Map) causeRuleObject, context));
             }
         } else {
             throw new ClassCastException("Value of \"" + KEY + "\" is not a list/array/sequence.");
@@ -58,19 +59,60 @@ final class CauseMatchesEitherOfRule extends CauseRule {
     }
 
     @Override
-    boolean matches(final Throwable exception) {
-        for (final CauseExceptionRule causeRule : this.causeRules) {
-            if (causeRule.matches(exception)) {
+    int cost() {
+        int cost = 0;
+        for (int i = 0; i < this.causeRulesArray.length; i++) {
+            cost += this.causeRulesArray[i].cost();  // All of them are evaluated if none matches.
+        }
+        return cost;
+    }
+
+    @Override
+    boolean throwsForNullMessage() {
+        for (int i = 0; i < this.causeRulesArray.length; i++) {
+            if (this.causeRulesArray[i].throwsForNullMessage()) {
                 return true;
             }
         }
         return false;
     }
 
+    @Override
+    boolean matches(final Throwable exception) {
+        // The chain is walked only once for all the cause rules, or reused if it is acquired already in the classification.
+        final CauseChain chain = CauseChain.acquire(exception);
+        try {
+            final int position = chain.indexOf(exception);
+            for (int i = 0; i < this.causeRulesArray.length; i++) {
+                if (this.causeRulesArray[i].matches(chain, position)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            chain.release();
+        }
+    }
+
+    @Override
+    void validate(final RuntimeExceptionBuilder exceptionBuilder) {
+        for (final CauseExceptionRule causeRule : this.causeRules) {
+            causeRule.exceptionRule().validate(exceptionBuilder);
+        }
+    }
+
+    List<CauseExceptionRule> causeRules() {
+        return this.causeRules;
+    }
+
     @Override
     Map<String, Object> toMap() {
+        final ArrayList<Map<String, Object>> causeMaps = new ArrayList<>();
+        for (final CauseExceptionRule causeRule : this.causeRules) {
+            causeMaps.add(causeRule.toMap());  // Maps, not the rules, so that it can be built again.
+        }
         final HashMap<String, Object> map = new HashMap<>();
-        map.put(KEY, this.causeRules);
+        map.put(KEY, Collections.unmodifiableList(causeMaps));
         return Collections.unmodifiableMap(map);
     }
 
@@ -98,16 +140,18 @@ final class CauseMatchesEitherOfRule extends CauseRule {
     }
 
     @SuppressWarnings("unchecked")
-    private static CauseExceptionRule buildCauseExceptionRuleFromMap(final Map map) {
+    private static CauseExceptionRule buildCauseExceptionRuleFromMap(final Map map, final RuleContext context) {
         for (final Object key : map.keySet()) {
             if (!(key instanceof String)) {
                 throw new ClassCastException("Value of \"" + KEY + "\" contains a map whose key is not a string.");
             }
         }
-        return CauseExceptionRule.from((Map<String, Object>) map);
+        return CauseExceptionRule.from((Map<String, Object>) map, context);
     }
 
     static final String KEY = "cause_matches_either_of";
 
     private final List<CauseExceptionRule> causeRules;
+
+    private final CauseExceptionRule[] causeRulesArray;  // The same as |causeRules| to iterate without an Iterator.
 }
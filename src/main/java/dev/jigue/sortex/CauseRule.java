@@ -20,10 +20,10 @@ import java.util.Map;
 import java.util.Optional;
 
 abstract class CauseRule {
-    static Optional<CauseRule> from(final Map<String, Object> map) {
+    static Optional<CauseRule> from(final Map<String, Object> map, final RuleContext context) {
         if (map.containsKey(CauseMatchesEitherOfRule.KEY)) {
             try {
-                return Optional.ofNullable(CauseMatchesEitherOfRule.from(map.get(CauseMatchesEitherOfRule.KEY)));
+                return Optional.ofNullable(CauseMatchesEitherOfRule.from(map.get(CauseMatchesEitherOfRule.KEY), context));
             } catch (final RuntimeException ex) {
                 throw new IllegalArgumentException("Invalid cause rule: " + CauseMatchesEitherOfRule.KEY, ex);
             }
@@ -33,5 +33,17 @@ abstract class CauseRule {
 
     abstract boolean matches(Throwable cause);
 
+    /**
+     * Estimates the cost to evaluate this cause rule in the worst case, relative to {@link MessageRule#EXACT_COST}.
+     */
+    abstract int cost();
+
+    /**
+     * Checks if this cause rule may throw {@link java.lang.NullPointerException} for a cause with a {@code null} message.
+     */
+    abstract boolean throwsForNullMessage();
+
+    abstract void validate(RuntimeExceptionBuilder exceptionBuilder);
+
     abstract Map<String, Object> toMap();
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Defines a generated class in the package {@code dev.jigue.sortex} so that it can access package-private classes.
+ *
+ * <p>It is compiled for Java 8, and looks up newer APIs reflectively. It defines a hidden class by
+ * {@code MethodHandles.Lookup#defineHiddenClass} on Java 15 and later so that the class is unloaded together with its
+ * only instance. It falls back to {@code MethodHandles.Lookup#defineClass} on Java 9 and later, and to
+ * {@link java.lang.ClassLoader}'s {@code defineClass} on Java 8.
+ *
+ * <p>A class defined by the fallbacks on Java 8 to 14 is a permanent member of the class loader of this library. It is
+ * never unloaded while the class loader is alive, even after its instance is garbage-collected.
+ */
+abstract class ClassDefiner {
+    abstract Class<?> define(byte[] bytes) throws ReflectiveOperationException;
+
+    static ClassDefiner get() {
+        return DEFAULT;
+    }
+
+    static ClassDefiner hidden() {
+        try {
+            final Class<?> optionClass = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+            final Object options = Array.newInstance(optionClass, 0);
+            final Method defineHiddenClass = MethodHandles.Lookup.class.getMethod(
+                    "defineHiddenClass", byte[].class, boolean.class, options.getClass());
+            return new ClassDefiner() {
+                @Override
+                Class<?> define(final byte[] bytes) throws ReflectiveOperationException {
+                    final MethodHandles.Lookup hidden =
+                            (MethodHandles.Lookup) invoke(defineHiddenClass, MethodHandles.lookup(), bytes, true, options);
+                    return hidden.lookupClass();
+                }
+            };
+        } catch (final ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+    static ClassDefiner lookup() {
+        try {
+            final Method defineClass = MethodHandles.Lookup.class.getMethod("defineClass", byte[].class);
+            return new ClassDefiner() {
+                @Override
+                Class<?> define(final byte[] bytes) throws ReflectiveOperationException {
+                    return (Class<?>) invoke(defineClass, MethodHandles.lookup(), bytes);
+                }
+            };
+        } catch (final ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+    static ClassDefiner classLoader() {
+        try {
+            final Method defineClass = ClassLoader.class.getDeclaredMethod(
+                    "defineClass", String.class, byte[].class, int.class, int.class);
+            defineClass.setAccessible(true);
+            return new ClassDefiner() {
+                @Override
+                Class<?> define(final byte[] bytes) throws ReflectiveOperationException {
+                    return (Class<?>) invoke(defineClass, ClassDefiner.class.getClassLoader(), null, bytes, 0, bytes.length);
+                }
+            };
+        } catch (final ReflectiveOperationException | RuntimeException ex) {
+            // java.lang.reflect.InaccessibleObjectException on Java 9 and later is a RuntimeException.
+            return null;
+        }
+    }
+
+    private static Object invoke(final Method method, final Object target, final Object... arguments)
+            throws ReflectiveOperationException {
+        try {
+            return method.invoke(target, arguments);
+        } catch (final InvocationTargetException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
+    private static ClassDefiner detect() {
+        final ClassDefiner hidden = hidden();
+        if (hidden != null) {
+            return hidden;
+        }
+        final ClassDefiner lookup = lookup();
+        if (lookup != null) {
+            return lookup;
+        }
+        return classLoader();
+    }
+
+    private static final ClassDefiner DEFAULT = detect();
+}
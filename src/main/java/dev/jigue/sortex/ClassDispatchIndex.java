@@ -0,0 +1,353 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dispatches a {@link java.lang.Throwable} instance only to the exception rules whose class rule can match its class.
+ *
+ * <p>Exception rules are indexed by their positions in the original order. {@code class_equals} rules are bucketed by
+ * the {@link java.lang.Class} object, and {@code class_equals_literally} rules are bucketed by the class name. Lazily
+ * resolved {@code class_equals} rules are bucketed by the class name, too, and they are verified by their class rules
+ * without resolving the class unless the name matches. Only {@code class_extends} rules need to be checked one by one.
+ * The candidates from those four sources are merged in ascending positions so that the first matching rule in the
+ * original order still wins.
+ *
+ * <p>The merged candidates are computed only once per concrete {@link java.lang.Class}, and memoized in a
+ * {@link java.lang.ClassValue}. The memoized candidates are released together with this index, and they do not prevent
+ * the {@link java.lang.Class} objects, or their {@link java.lang.ClassLoader}s, from being unloaded. The candidates are
+ * memoized as a {@link CandidatePlan} so that predicates shared among them are evaluated only once per input. Exact
+ * messages of all the exception rules are indexed in an {@link ExactMessageIndex} so that a message is looked up only
+ * once per input, not once per message rule.
+ */
+final class ClassDispatchIndex {
+    private ClassDispatchIndex(
+            final ExceptionRule[] rules,
+            final Map<Class<?>, int[]> classEqualsBuckets,
+            final Map<String, int[]> classNameBuckets,
+            final int[] classExtendsPositions,
+            final ClassRule[] classExtendsRules,
+            final ExactMessageIndex exactMessages) {
+        this.rules = rules;
+        this.classEqualsBuckets = classEqualsBuckets;
+        this.classNameBuckets = classNameBuckets;
+        this.classExtendsPositions = classExtendsPositions;
+        this.classExtendsRules = classExtendsRules;
+        this.exactMessages = exactMessages;
+        this.plans = new ClassValue<CandidatePlan>() {
+            @Override
+            protected CandidatePlan computeValue(final Class<?> clazz) {
+                return CandidatePlan.of(
+                        ClassDispatchIndex.this.computeCandidates(clazz), ClassDispatchIndex.this.rules, ClassDispatchIndex.this.exactMessages);
+            }
+        };
+    }
+
+    static ClassDispatchIndex of(final List<ExceptionRule> rules) {
+        return of(rules, null);
+    }
+
+    /**
+     * Builds an index of the exception rules with the positions of exact messages precomputed for the same rules.
+     *
+     * @param rules  the exception rules
+     * @param exactMessages  the positions of the exception rules by their exact messages, or {@code null} to compute
+     */
+    static ClassDispatchIndex of(final List<ExceptionRule> rules, final Map<String, int[]> exactMessages) {
+        final HashMap<Class<?>, List<Integer>> classEqualsBuckets = new HashMap<>();
+        final HashMap<String, List<Integer>> classNameBuckets = new HashMap<>();
+        final ArrayList<Integer> classExtendsPositions = new ArrayList<>();
+        final ArrayList<ClassRule> classExtendsRules = new ArrayList<>();
+
+        for (int i = 0; i < rules.size(); i++) {
+            final ClassRule classRule = rules.get(i).classRule();
+            if (classRule instanceof ClassEqualsRule && ((ClassEqualsRule) classRule).clazz() == null) {
+                classNameBuckets.computeIfAbsent(((ClassEqualsRule) classRule).className(), k -> new ArrayList<>()).add(i);
+            } else if (classRule instanceof ClassEqualsRule) {
+                classEqualsBuckets.computeIfAbsent(((ClassEqualsRule) classRule).clazz(), k -> new ArrayList<>()).add(i);
+            } else if (classRule instanceof ClassEqualsLiterallyRule) {
+                classNameBuckets.computeIfAbsent(((ClassEqualsLiterallyRule) classRule).className(), k -> new ArrayList<>()).add(i);
+            } else if (classRule instanceof ClassExtendsRule) {
+                classExtendsPositions.add(i);
+                classExtendsRules.add(classRule);
+            } else {
+                throw new IllegalStateException("Unexpected class rule: " + classRule);
+            }
+        }
+
+        final ExceptionRule[] rulesArray = rules.toArray(new ExceptionRule[0]);
+        return new ClassDispatchIndex(
+                rulesArray,
+                toBuckets(classEqualsBuckets),
+                toBuckets(classNameBuckets),
+                toIntArray(classExtendsPositions),
+                classExtendsRules.toArray(new ClassRule[0]),
+                ExactMessageIndex.of(rulesArray, exactMessages));
+    }
+
+    /**
+     * Finds the position of the first exception rule that matches the given {@link java.lang.Throwable} instance.
+     *
+     * @return the position of the first matched exception rule, or {@code -1} if nothing matched
+     */
+    int find(final Throwable exception) {
+        final CandidatePlan plan = this.plan(exception.getClass());
+        final int found = plan.find(exception, null);
+        if (found < 0) {
+            return -1;
+        }
+        return plan.positions()[found];
+    }
+
+    /**
+     * Finds the position of the first exception rule that matches, and records statistics of the evaluations.
+     *
+     * @return the position of the first matched exception rule, or {@code -1} if nothing matched
+     */
+    int find(final Throwable exception, final StatisticsCollector statistics) {
+        final int[] candidates = this.candidates(exception.getClass());
+        for (int i = 0; i < candidates.length; i++) {
+            final long started = System.nanoTime();
+            final boolean isHit = this.rules[candidates[i]].matchesExceptClass(exception);
+            statistics.recordEvaluation(candidates[i], isHit, System.nanoTime() - started);
+            if (isHit) {
+                return candidates[i];
+            }
+        }
+        statistics.recordUnmatched();
+        return -1;
+    }
+
+    /**
+     * Finds the positions of the first matching exception rules for a range of {@link java.lang.Throwable} instances.
+     *
+     * <p>The instances are grouped by their concrete {@link java.lang.Class} and their message. The class rules and the
+     * message rules are evaluated only once per group, and only the cause rules are evaluated per instance.
+     *
+     * @param exceptions  the {@link java.lang.Throwable} instances
+     * @param from  the first index in {@code exceptions} to find, inclusive
+     * @param to  the last index in {@code exceptions} to find, exclusive
+     * @param positions  the array to store the positions of the first matched exception rules, {@code -1} for unmatched
+     * @param statistics  the statistics to record into, or {@code null} not to record
+     * @param maxCauseDepth  the maximum number of {@link java.lang.Throwable}s in a cause chain for cause rules
+     */
+    void findAll(
+            final List<? extends Throwable> exceptions,
+            final int from,
+            final int to,
+            final int[] positions,
+            final StatisticsCollector statistics,
+            final int maxCauseDepth) {
+        if (statistics != null) {
+            // Not grouped so that every evaluation is recorded as it would be one by one.
+            for (int i = from; i < to; i++) {
+                final CauseChain chain = CauseChain.acquire(exceptions.get(i), maxCauseDepth);
+                try {
+                    positions[i] = this.find(exceptions.get(i), statistics);
+                } finally {
+                    chain.release();
+                }
+            }
+            return;
+        }
+
+        final HashMap<Class<?>, HashMap<String, Survivors>> groups = new HashMap<>();
+
+        for (int i = from; i < to; i++) {
+            final Throwable exception = exceptions.get(i);
+            final Class<?> clazz = exception.getClass();
+            final String message = exception.getMessage();
+
+            final HashMap<String, Survivors> groupsOfClass = groups.computeIfAbsent(clazz, k -> new HashMap<>());
+            Survivors survivors = groupsOfClass.get(message);
+            if (survivors == null) {
+                survivors = this.computeSurvivors(clazz, message);
+                groupsOfClass.put(message, survivors);
+            }
+
+            positions[i] = -1;
+            if (survivors.positions.length > 0) {
+                final CauseChain chain = CauseChain.acquire(exception, maxCauseDepth);
+                try {
+                    for (int j = 0; j < survivors.positions.length; j++) {
+                        if (this.rules[survivors.positions[j]].matchesCause(exception)) {
+                            positions[i] = survivors.positions[j];
+                            break;
+                        }
+                    }
+                } finally {
+                    chain.release();
+                }
+            }
+            if (positions[i] < 0 && survivors.thrown != null) {
+                // The exception rule whose message rule threw is reached as it would be by #find.
+                throw survivors.thrown;
+            }
+        }
+    }
+
+    ExceptionRule rule(final int position) {
+        return this.rules[position];
+    }
+
+    /**
+     * Returns the memoized positions of the exception rules whose class rule matches the given {@link java.lang.Class}.
+     */
+    int[] candidates(final Class<?> clazz) {
+        return this.plans.get(clazz).positions();
+    }
+
+    /**
+     * Returns the memoized plan to evaluate candidate exception rules for the given {@link java.lang.Class}.
+     */
+    CandidatePlan plan(final Class<?> clazz) {
+        return this.plans.get(clazz);
+    }
+
+    /**
+     * Computes the positions of the exception rules whose class rule matches the given {@link java.lang.Class}, in ascending order.
+     */
+    int[] computeCandidates(final Class<?> clazz) {
+        final int[] classEquals = this.classEqualsBuckets.getOrDefault(clazz, EMPTY);
+        final int[] classNames = this.verifyClassNames(clazz, this.classNameBuckets.getOrDefault(clazz.getName(), EMPTY));
+
+        final ArrayList<Integer> candidates = new ArrayList<>();
+        int equalsCursor = 0;
+        int namesCursor = 0;
+        int extendsCursor = this.nextClassExtends(clazz, 0);
+
+        while (true) {
+            final int fromEquals = equalsCursor < classEquals.length ? classEquals[equalsCursor] : Integer.MAX_VALUE;
+            final int fromNames = namesCursor < classNames.length ? classNames[namesCursor] : Integer.MAX_VALUE;
+            final int fromExtends = extendsCursor < this.classExtendsPositions.length
+                    ? this.classExtendsPositions[extendsCursor] : Integer.MAX_VALUE;
+
+            final int position = Math.min(fromEquals, Math.min(fromNames, fromExtends));
+            if (position == Integer.MAX_VALUE) {
+                return toIntArray(candidates);
+            }
+            candidates.add(position);
+
+            if (position == fromEquals) {
+                equalsCursor++;
+            } else if (position == fromNames) {
+                namesCursor++;
+            } else {
+                extendsCursor = this.nextClassExtends(clazz, extendsCursor + 1);
+            }
+        }
+    }
+
+    /**
+     * Computes the positions of the exception rules whose class rule and message rule match, in ascending order.
+     *
+     * <p>It stops at the first exception rule without a cause rule because it always matches there. It stops also at the
+     * first exception rule whose message rule throws, such as regular expressions for a {@code null} message. The thrown
+     * exception is kept to be rethrown only if none of the survivors before it matches, as evaluated one by one.
+     */
+    private Survivors computeSurvivors(final Class<?> clazz, final String message) {
+        final int[] candidates = this.candidates(clazz);
+        final int[] accepting = this.exactMessages.lookUp(message);
+        final ArrayList<Integer> survivors = new ArrayList<>();
+        for (int i = 0; i < candidates.length; i++) {
+            final ExceptionRule rule = this.rules[candidates[i]];
+            final boolean isMessageMatched;
+            try {
+                isMessageMatched = this.exactMessages.isIndexed(candidates[i])
+                        ? this.exactMessages.matches(candidates[i], accepting, message)
+                        : rule.matchesMessage(message);
+            } catch (final RuntimeException ex) {
+                return new Survivors(toIntArray(survivors), ex);
+            }
+            if (isMessageMatched) {
+                survivors.add(candidates[i]);
+                if (!rule.hasCauseRule()) {
+                    break;
+                }
+            }
+        }
+        return new Survivors(toIntArray(survivors), null);
+    }
+
+    /**
+     * Filters the positions bucketed by the class name with their class rules, for lazily resolved {@code class_equals}.
+     */
+    private int[] verifyClassNames(final Class<?> clazz, final int[] positions) {
+        final ArrayList<Integer> verified = new ArrayList<>();
+        for (final int position : positions) {
+            if (this.rules[position].classRule().matchesClass(clazz)) {
+                verified.add(position);
+            }
+        }
+        return verified.size() == positions.length ? positions : toIntArray(verified);
+    }
+
+    private int nextClassExtends(final Class<?> clazz, final int from) {
+        for (int i = from; i < this.classExtendsRules.length; i++) {
+            if (this.classExtendsRules[i].matchesClass(clazz)) {
+                return i;
+            }
+        }
+        return this.classExtendsRules.length;
+    }
+
+    private static <K> Map<K, int[]> toBuckets(final Map<K, List<Integer>> lists) {
+        final HashMap<K, int[]> buckets = new HashMap<>();
+        for (final Map.Entry<K, List<Integer>> entry : lists.entrySet()) {
+            buckets.put(entry.getKey(), toIntArray(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(buckets);
+    }
+
+    private static int[] toIntArray(final List<Integer> list) {
+        final int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static final class Survivors {
+        Survivors(final int[] positions, final RuntimeException thrown) {
+            this.positions = positions;
+            this.thrown = thrown;
+        }
+
+        // Positions of the exception rules whose class rule and message rule match, in ascending order.
+        final int[] positions;
+
+        // Nullable. Thrown from the message rule of the exception rule just after the survivors.
+        final RuntimeException thrown;
+    }
+
+    private static final int[] EMPTY = new int[0];
+
+    private final ExceptionRule[] rules;
+
+    private final Map<Class<?>, int[]> classEqualsBuckets;
+    private final Map<String, int[]> classNameBuckets;
+    private final int[] classExtendsPositions;
+    private final ClassRule[] classExtendsRules;
+    private final ExactMessageIndex exactMessages;
+
+    private final ClassValue<CandidatePlan> plans;
+}
@@ -46,6 +46,15 @@ final class ClassEqualsLiterallyRule extends ClassRule {
         return this.className.equals(exception.getClass().getName());
     }
 
+    @Override
+    boolean matchesClass(final Class<?> clazz) {
+        return this.className.equals(clazz.getName());
+    }
+
+    String className() {
+        return this.className;
+    }
+
     @Override
     Map<String, Object> toMap() {
         final HashMap<String, Object> map = new HashMap<>();
@@ -22,28 +22,39 @@ import java.util.Map;
 import java.util.Objects;
 
 final class ClassEqualsRule extends ClassRule {
-    private ClassEqualsRule(final Class<? extends Throwable> clazz) {
+    private ClassEqualsRule(final Class<? extends Throwable> clazz, final LazyClass lazyClass) {
         this.clazz = clazz;
+        this.lazyClass = lazyClass;
     }
 
     static ClassEqualsRule of(final Class<? extends Throwable> clazz) {
-        return new ClassEqualsRule(clazz);
+        return new ClassEqualsRule(clazz, null);
     }
 
-    static ClassEqualsRule from(final Object classNameObject) {
+    static ClassEqualsRule lazily(final String className, final ClassLoader classLoader) {
+        return new ClassEqualsRule(null, LazyClass.of(className, classLoader));
+    }
+
+    static ClassEqualsRule from(final Object classNameObject, final RuleContext context) {
         if (classNameObject == null) {
             throw new NullPointerException("Value of \"" + KEY + "\" is null.");
         }
-        if (!(classNameObject instanceof String)) {
-            throw new ClassCastException("Value of \"" + KEY + "\" is not a string.");
-        }
-
-        final String className = (String) classNameObject;
         final Class<?> clazz;
-        try {
-            clazz = Class.forName(className);
-        } catch (final ClassNotFoundException ex) {
-            throw new IllegalArgumentException("A class \"" + className + "\" is not found.", ex);
+        if (classNameObject instanceof Class) {
+            // A java.lang.Class object can be given directly, for example, from generated code.
+            clazz = (Class<?>) classNameObject;
+        } else if (classNameObject instanceof String) {
+            final String className = (String) classNameObject;
+            if (context.isLazy()) {
+                return lazily(className, context.lazyClassLoader());
+            }
+            try {
+                clazz = context.forName(className);
+            } catch (final ClassNotFoundException ex) {
+                throw new IllegalArgumentException("A class \"" + className + "\" is not found.", ex);
+            }
+        } else {
+            throw new ClassCastException("Value of \"" + KEY + "\" is neither a string nor a class.");
         }
         if (Throwable.class.isAssignableFrom(clazz)) {
             return of(castToThrowableClass(clazz));
@@ -53,19 +64,51 @@ final class ClassEqualsRule extends ClassRule {
 
     @Override
     boolean matches(final Throwable exception) {
-        return this.clazz == exception.getClass();
+        return this.matchesClass(exception.getClass());
+    }
+
+    @Override
+    boolean matchesClass(final Class<?> clazz) {
+        if (this.lazyClass == null) {
+            return this.clazz == clazz;
+        }
+        // The class is resolved only when the name matches, and then the class is already loaded.
+        return clazz.getName().equals(this.lazyClass.name()) && clazz == this.lazyClass.get();
+    }
+
+    @Override
+    void validate(final RuntimeExceptionBuilder exceptionBuilder) {
+        if (this.lazyClass != null) {
+            final RuntimeException failure = this.lazyClass.validate();
+            if (failure != null) {
+                exceptionBuilder.add(new IllegalArgumentException("Invalid class rule: " + KEY, failure));
+            }
+        }
+    }
+
+    /**
+     * Returns the class.
+     *
+     * @return the class, or {@code null} if it resolves the class lazily
+     */
+    Class<? extends Throwable> clazz() {
+        return this.clazz;
+    }
+
+    String className() {
+        return this.lazyClass == null ? this.clazz.getName() : this.lazyClass.name();
     }
 
     @Override
     Map<String, Object> toMap() {
         final HashMap<String, Object> map = new HashMap<>();
-        map.put(KEY, this.clazz.getName());
+        map.put(KEY, this.className());
         return Collections.unmodifiableMap(map);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(ClassEqualsRule.class, this.clazz);
+        return Objects.hash(ClassEqualsRule.class, this.className());
     }
 
     @Override
@@ -77,7 +120,7 @@ final class ClassEqualsRule extends ClassRule {
             return false;
         }
         final ClassEqualsRule other = (ClassEqualsRule) otherObject;
-        return Objects.equals(this.clazz, other.clazz);
+        return Objects.equals(this.clazz, other.clazz) && Objects.equals(this.lazyClass, other.lazyClass);
     }
 
     @Override
@@ -92,5 +135,6 @@ final class ClassEqualsRule extends ClassRule {
 
     static final String KEY = "class_equals";
 
-    private final Class<? extends Throwable> clazz;
+    private final Class<? extends Throwable> clazz;  // Nullable if it resolves the class lazily.
+    private final LazyClass lazyClass;  // Nullable if the class is resolved eagerly.
 }
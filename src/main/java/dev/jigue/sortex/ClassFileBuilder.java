@@ -0,0 +1,425 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Builds a minimal Java class file for {@link MatcherGenerator}.
+ *
+ * <p>It supports only what generated matchers need: a constant pool, instance fields, and methods with a code attribute.
+ * The class file version is 49 (Java 5) so that the JVM verifies it by type inference, and no {@code StackMapTable}
+ * attribute is needed.
+ */
+final class ClassFileBuilder {
+    ClassFileBuilder(final String thisClass, final String superClass) {
+        this.constants = new ByteArrayOutputStream();
+        this.constantsOut = new DataOutputStream(this.constants);
+        this.constantIndices = new HashMap<>();
+        this.constantCount = 1;
+        this.members = new ArrayList<>();
+        this.fieldCount = 0;
+        this.methodCount = 0;
+
+        this.thisClass = this.classRef(thisClass);
+        this.superClass = this.classRef(superClass);
+    }
+
+    int utf8(final String value) {
+        return this.constant("Utf8:" + value, out -> {
+            out.writeByte(CONSTANT_UTF8);
+            out.writeUTF(value);  // It is the "modified UTF-8" in the class file format.
+        });
+    }
+
+    int classRef(final String internalName) {
+        final int name = this.utf8(internalName);
+        return this.constant("Class:" + internalName, out -> {
+            out.writeByte(CONSTANT_CLASS);
+            out.writeShort(name);
+        });
+    }
+
+    int string(final String value) {
+        final int utf8 = this.utf8(value);
+        return this.constant("String:" + value, out -> {
+            out.writeByte(CONSTANT_STRING);
+            out.writeShort(utf8);
+        });
+    }
+
+    int integer(final int value) {
+        return this.constant("Integer:" + value, out -> {
+            out.writeByte(CONSTANT_INTEGER);
+            out.writeInt(value);
+        });
+    }
+
+    int fieldRef(final String owner, final String name, final String descriptor) {
+        return this.memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    int methodRef(final String owner, final String name, final String descriptor) {
+        return this.memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    void addField(final int access, final String name, final String descriptor) {
+        if (this.methodCount > 0) {
+            throw new IllegalStateException("Fields must be added before methods.");
+        }
+        final int nameIndex = this.utf8(name);
+        final int descriptorIndex = this.utf8(descriptor);
+        this.members.add(out -> {
+            out.writeShort(access);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            out.writeShort(0);  // attributes_count
+        });
+        this.fieldCount++;
+    }
+
+    void addMethod(final int access, final String name, final String descriptor, final Code code) {
+        final int nameIndex = this.utf8(name);
+        final int descriptorIndex = this.utf8(descriptor);
+        final int codeIndex = this.utf8("Code");
+        final byte[] bytecode = code.toByteArray();
+        if (bytecode.length > MAX_CODE_LENGTH) {
+            throw new IllegalStateException("Generated method \"" + name + "\" is too large: " + bytecode.length + " bytes");
+        }
+        this.members.add(out -> {
+            out.writeShort(access);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            out.writeShort(1);  // attributes_count
+            out.writeShort(codeIndex);
+            out.writeInt(12 + bytecode.length);
+            out.writeShort(code.maxStack);
+            out.writeShort(code.maxLocals);
+            out.writeInt(bytecode.length);
+            out.write(bytecode);
+            out.writeShort(0);  // exception_table_length
+            out.writeShort(0);  // attributes_count
+        });
+        this.methodCount++;
+    }
+
+    byte[] toByteArray() {
+        if (this.constantCount > 0xffff) {
+            throw new IllegalStateException("Too many constants in a generated class: " + this.constantCount);
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xcafebabe);
+            out.writeShort(0);  // minor_version
+            out.writeShort(CLASS_FILE_VERSION);
+            out.writeShort(this.constantCount);
+            this.constants.writeTo(out);
+            out.writeShort(ACC_FINAL | ACC_SUPER);
+            out.writeShort(this.thisClass);
+            out.writeShort(this.superClass);
+            out.writeShort(0);  // interfaces_count
+            out.writeShort(this.fieldCount);
+            for (int i = 0; i < this.fieldCount; i++) {
+                this.members.get(i).writeTo(out);
+            }
+            out.writeShort(this.methodCount);
+            for (int i = this.fieldCount; i < this.members.size(); i++) {
+                this.members.get(i).writeTo(out);
+            }
+            out.writeShort(0);  // attributes_count
+            out.flush();
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Bytecode of a method with branches to labels resolved at the end.
+     */
+    static final class Code {
+        Code(final int maxStack, final int maxLocals) {
+            this.maxStack = maxStack;
+            this.maxLocals = maxLocals;
+            this.bytes = new byte[256];
+            this.length = 0;
+            this.labels = new int[16];
+            this.labelCount = 0;
+            this.fixups = new ArrayList<>();
+        }
+
+        int newLabel() {
+            if (this.labelCount == this.labels.length) {
+                this.labels = Arrays.copyOf(this.labels, this.labels.length * 2);
+            }
+            this.labels[this.labelCount] = -1;
+            return this.labelCount++;
+        }
+
+        void mark(final int label) {
+            this.labels[label] = this.length;
+        }
+
+        int length() {
+            return this.length;
+        }
+
+        void setMaxLocals(final int maxLocals) {
+            this.maxLocals = maxLocals;
+        }
+
+        /**
+         * Inserts a prologue without labels at the beginning.
+         *
+         * <p>The prologue is padded with {@code nop} to a multiple of 4 bytes so that paddings in {@code lookupswitch}
+         * stay aligned. Branch offsets are relative, and they do not change.
+         */
+        void prepend(final Code prologue) {
+            if (!prologue.fixups.isEmpty()) {
+                throw new IllegalStateException("Prologue must not contain branches.");
+            }
+            while (prologue.length % 4 != 0) {
+                prologue.u1(NOP);
+            }
+            final int shift = prologue.length;
+            final byte[] shifted = new byte[Math.max(this.bytes.length, shift + this.length)];
+            System.arraycopy(prologue.bytes, 0, shifted, 0, shift);
+            System.arraycopy(this.bytes, 0, shifted, shift, this.length);
+            this.bytes = shifted;
+            this.length += shift;
+            for (int i = 0; i < this.labelCount; i++) {
+                if (this.labels[i] >= 0) {
+                    this.labels[i] += shift;
+                }
+            }
+            for (final int[] fixup : this.fixups) {
+                fixup[0] += shift;
+                fixup[1] += shift;
+            }
+        }
+
+        void op(final int opcode) {
+            this.u1(opcode);
+        }
+
+        void op(final int opcode, final int constantIndex) {
+            this.u1(opcode);
+            this.u2(constantIndex);
+        }
+
+        void jump(final int opcode, final int label) {
+            final int instruction = this.length;
+            this.u1(opcode);
+            this.fixups.add(new int[] { instruction, this.length, label, 2 });
+            this.u2(0);
+        }
+
+        /**
+         * Emits {@code lookupswitch} with keys in ascending order.
+         */
+        void lookupSwitch(final int[] keys, final int[] labels, final int defaultLabel) {
+            final int instruction = this.length;
+            this.u1(LOOKUPSWITCH);
+            while (this.length % 4 != 0) {
+                this.u1(0);
+            }
+            this.fixups.add(new int[] { instruction, this.length, defaultLabel, 4 });
+            this.u4(0);
+            this.u4(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                this.u4(keys[i]);
+                this.fixups.add(new int[] { instruction, this.length, labels[i], 4 });
+                this.u4(0);
+            }
+        }
+
+        void local(final int opcode, final int index) {
+            if (index <= 0xff) {
+                this.u1(opcode);
+                this.u1(index);
+            } else {
+                this.u1(WIDE);
+                this.u1(opcode);
+                this.u2(index);
+            }
+        }
+
+        void pushInt(final int value, final ClassFileBuilder builder) {
+            if (-1 <= value && value <= 5) {
+                this.u1(ICONST_0 + value);
+            } else if (Short.MIN_VALUE <= value && value <= Short.MAX_VALUE) {
+                this.u1(SIPUSH);
+                this.u2(value);
+            } else {
+                this.op(LDC_W, builder.integer(value));
+            }
+        }
+
+        byte[] toByteArray() {
+            for (final int[] fixup : this.fixups) {
+                final int target = this.labels[fixup[2]];
+                if (target < 0) {
+                    throw new IllegalStateException("Label is not marked: " + fixup[2]);
+                }
+                final int offset = target - fixup[0];
+                if (fixup[3] == 2) {
+                    if (offset < Short.MIN_VALUE || Short.MAX_VALUE < offset) {
+                        throw new IllegalStateException("Branch is too far in a generated method: " + offset);
+                    }
+                    this.bytes[fixup[1]] = (byte) (offset >> 8);
+                    this.bytes[fixup[1] + 1] = (byte) offset;
+                } else {
+                    this.bytes[fixup[1]] = (byte) (offset >> 24);
+                    this.bytes[fixup[1] + 1] = (byte) (offset >> 16);
+                    this.bytes[fixup[1] + 2] = (byte) (offset >> 8);
+                    this.bytes[fixup[1] + 3] = (byte) offset;
+                }
+            }
+            return Arrays.copyOf(this.bytes, this.length);
+        }
+
+        private void u1(final int value) {
+            if (this.length == this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, this.bytes.length * 2);
+            }
+            this.bytes[this.length++] = (byte) value;
+        }
+
+        private void u2(final int value) {
+            this.u1(value >> 8);
+            this.u1(value);
+        }
+
+        private void u4(final int value) {
+            this.u2(value >> 16);
+            this.u2(value);
+        }
+
+        private final int maxStack;
+        private int maxLocals;
+
+        private byte[] bytes;
+        private int length;
+
+        private int[] labels;  // Bytecode offsets of labels, or -1 if not marked yet.
+        private int labelCount;
+
+        // {instruction offset, offset to write into, label, width}
+        private final ArrayList<int[]> fixups;
+    }
+
+    private int memberRef(final int tag, final String owner, final String name, final String descriptor) {
+        final int ownerIndex = this.classRef(owner);
+        final int nameIndex = this.utf8(name);
+        final int descriptorIndex = this.utf8(descriptor);
+        final int nameAndType = this.constant("NameAndType:" + name + ":" + descriptor, out -> {
+            out.writeByte(CONSTANT_NAME_AND_TYPE);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+        return this.constant(tag + ":" + owner + "." + name + ":" + descriptor, out -> {
+            out.writeByte(tag);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    private int constant(final String key, final Writer writer) {
+        final Integer existing = this.constantIndices.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            writer.writeTo(this.constantsOut);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        final int index = this.constantCount++;
+        this.constantIndices.put(key, index);
+        return index;
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    static final int NOP = 0x00;
+    static final int ACONST_NULL = 0x01;
+    static final int ICONST_M1 = 0x02;
+    static final int ICONST_0 = 0x03;
+    static final int ICONST_1 = 0x04;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int ILOAD = 0x15;
+    static final int ALOAD = 0x19;
+    static final int AALOAD = 0x32;
+    static final int ISTORE = 0x36;
+    static final int ASTORE = 0x3a;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGT = 0x9d;
+    static final int IF_ACMPNE = 0xa6;
+    static final int GOTO = 0xa7;
+    static final int LOOKUPSWITCH = 0xab;
+    static final int IRETURN = 0xac;
+    static final int RETURN = 0xb1;
+    static final int GETFIELD = 0xb4;
+    static final int PUTFIELD = 0xb5;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int CHECKCAST = 0xc0;
+    static final int WIDE = 0xc4;
+    static final int IFNULL = 0xc6;
+
+    private static final int CLASS_FILE_VERSION = 49;
+    private static final int MAX_CODE_LENGTH = 65535;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream constants;
+    private final DataOutputStream constantsOut;
+    private final HashMap<String, Integer> constantIndices;
+    private int constantCount;
+
+    private final ArrayList<Writer> members;  // Fields first, and then methods.
+    private int fieldCount;
+    private int methodCount;
+
+    private final int thisClass;
+    private final int superClass;
+}
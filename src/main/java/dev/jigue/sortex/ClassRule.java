@@ -22,6 +22,10 @@ import java.util.stream.Collectors;
 
 abstract class ClassRule {
     static ClassRule from(final Map<String, Object> map) {
+        return from(map, RuleContext.eager());
+    }
+
+    static ClassRule from(final Map<String, Object> map, final RuleContext context) {
         ClassRule classRule = null;
 
         final ArrayList<String> specifiedClassRules = new ArrayList<>();
@@ -29,7 +33,7 @@ abstract class ClassRule {
         if (map.containsKey(ClassEqualsRule.KEY)) {
             specifiedClassRules.add(ClassEqualsRule.KEY);
             try {
-                classRule = ClassEqualsRule.from(map.get(ClassEqualsRule.KEY));
+                classRule = ClassEqualsRule.from(map.get(ClassEqualsRule.KEY), context);
             } catch (final RuntimeException ex) {
                 exceptionBuilder.add(ex);
             }
@@ -37,7 +41,7 @@ abstract class ClassRule {
         if (map.containsKey(ClassExtendsRule.KEY)) {
             specifiedClassRules.add(ClassExtendsRule.KEY);
             try {
-                classRule = ClassExtendsRule.from(map.get(ClassExtendsRule.KEY));
+                classRule = ClassExtendsRule.from(map.get(ClassExtendsRule.KEY), context);
             } catch (final RuntimeException ex) {
                 exceptionBuilder.add(ex);
             }
@@ -78,5 +82,14 @@ abstract class ClassRule {
 
     abstract boolean matches(Throwable exception);
 
+    abstract boolean matchesClass(Class<?> clazz);
+
+    /**
+     * Resolves classes that are resolved lazily, and adds exceptions for classes that cannot be resolved.
+     */
+    void validate(final RuntimeExceptionBuilder exceptionBuilder) {
+        // Nothing to validate by default.
+    }
+
     abstract Map<String, Object> toMap();
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+/**
+ * Finds the first matching exception rule by bytecode generated for a fixed list of exception rules.
+ *
+ * <p>Its subclass is generated by {@link MatcherGenerator}. The subclass checks classes, exact messages, and regular
+ * expressions of all the rules in straight-line code so that the JIT compiler can inline them without going through
+ * virtual calls of {@link ClassRule}, {@link MessageRule}, and {@link CauseRule}.
+ */
+abstract class CompiledMatcher {
+    /**
+     * Finds the position of the first exception rule that matches the given {@link java.lang.Throwable} instance.
+     *
+     * @return the position of the first matched exception rule, or {@code -1} if nothing matched
+     */
+    abstract int match(Throwable exception);
+}
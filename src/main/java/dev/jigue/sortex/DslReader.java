@@ -0,0 +1,806 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads exception rules of the DSL one by one from JSON, or the subset of YAML used for the DSL.
+ *
+ * <p>It streams the top-level list. Only one exception rule is held as a {@link java.util.Map} at a time, and it is
+ * passed to build an exception rule before the next one is read.
+ *
+ * <p>The input is JSON if it starts with {@code [}. Otherwise, it is read as block-style YAML with the following subset:
+ * block sequences, block mappings, plain scalars in a line, single-quoted and double-quoted scalars, flow sequences and
+ * flow mappings in a line, {@code #} comments, and document markers {@code ---} and {@code ...}. Plain {@code true} and
+ * {@code false} are booleans, plain {@code null} and {@code ~} are null, and other plain scalars, including numbers, are
+ * strings. Anchors, aliases, tags, multi-line scalars, and multiple documents are not supported.
+ *
+ * <p>Syntax errors are thrown as {@link java.lang.IllegalArgumentException} with the line and the column, both 1-based.
+ */
+final class DslReader {
+    private DslReader(final Reader reader) {
+        this.source = new CharSource(reader, 1, 1, true);
+        this.started = false;
+        this.isJson = false;
+        this.isFinished = false;
+        this.current = null;
+        this.topIndent = -1;
+    }
+
+    static DslReader of(final Reader reader) {
+        if (reader == null) {
+            throw new NullPointerException("Value of \"reader\" is null.");
+        }
+        return new DslReader(reader);
+    }
+
+    /**
+     * An exception rule read as a {@link java.util.Map}, with its position.
+     */
+    static final class Entry {
+        Entry(final Map<String, Object> map, final int line, final int column) {
+            this.map = map;
+            this.line = line;
+            this.column = column;
+        }
+
+        Map<String, Object> map() {
+            return this.map;
+        }
+
+        String position() {
+            return "line " + this.line + ", column " + this.column;
+        }
+
+        private final Map<String, Object> map;
+        private final int line;
+        private final int column;
+    }
+
+    /**
+     * Reads the next exception rule.
+     *
+     * @return the next exception rule, or {@code null} at the end
+     * @throws IllegalArgumentException  if the input is syntactically invalid
+     */
+    Entry next() throws IOException {
+        if (this.isFinished) {
+            return null;
+        }
+        if (!this.started) {
+            this.started = true;
+            this.source.skipWhitespacesAndComments();
+            if (this.source.peek() == '[') {
+                this.isJson = true;
+                this.source.read();
+            }
+        }
+        final Entry entry = this.isJson ? this.nextInJson() : this.nextInYaml();
+        if (entry == null) {
+            this.isFinished = true;
+        }
+        return entry;
+    }
+
+    private Entry nextInJson() throws IOException {
+        final FlowParser parser = new FlowParser(this.source, false);
+        this.source.skipWhitespaces();
+        if (this.source.peek() == ']') {
+            this.source.read();
+            this.source.skipWhitespaces();
+            if (this.source.peek() != -1) {
+                throw this.source.error("unexpected content after the list");
+            }
+            return null;
+        }
+        if (this.source.peek() == ',') {
+            if (!this.afterFirstInJson) {
+                throw this.source.error("unexpected ','");
+            }
+            this.source.read();
+            this.source.skipWhitespaces();
+        } else if (this.afterFirstInJson) {
+            throw this.source.error("expected ',' or ']'");
+        }
+        this.afterFirstInJson = true;
+
+        final int line = this.source.line();
+        final int column = this.source.column();
+        if (this.source.peek() != '{') {
+            throw this.source.error("an exception rule must be a mapping");
+        }
+        return new Entry(castMap(parser.parseValue()), line, column);
+    }
+
+    private Entry nextInYaml() throws IOException {
+        if (this.current == null) {
+            this.current = this.readLine();
+        }
+        final Line line = this.current;
+        if (line == null) {
+            return null;
+        }
+        if (this.topIndent < 0) {
+            this.topIndent = line.indent;
+        }
+        if (line.indent != this.topIndent || !line.isSequenceItem()) {
+            throw line.error(0, "expected '- ' of the top-level list");
+        }
+        final Object item = this.parseSequenceItem(line);
+        if (!(item instanceof Map)) {
+            throw line.error(0, "an exception rule must be a mapping");
+        }
+        return new Entry(castMap(item), line.number, line.indent + 1);
+    }
+
+    private Object parseNode(final Line line) throws IOException {
+        if (line.isSequenceItem()) {
+            final ArrayList<Object> list = new ArrayList<>();
+            while (this.current != null && this.current.indent == line.indent && this.current.isSequenceItem()) {
+                list.add(this.parseSequenceItem(this.current));
+            }
+            this.checkDedent(line.indent);
+            return Collections.unmodifiableList(list);
+        }
+        if (line.keySeparator() >= 0) {
+            final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+            while (this.current != null && this.current.indent == line.indent && !this.current.isSequenceItem()) {
+                this.parseMappingEntry(this.current, map);
+            }
+            this.checkDedent(line.indent);
+            return Collections.unmodifiableMap(map);
+        }
+        final Object scalar = parseInlineValue(line, 0);
+        this.current = this.readLine();
+        this.checkDedent(line.indent);
+        return scalar;
+    }
+
+    /**
+     * Parses a sequence item at the current line, and moves to the line after the item.
+     */
+    private Object parseSequenceItem(final Line line) throws IOException {
+        int offset = 1;
+        while (offset < line.text.length() && line.text.charAt(offset) == ' ') {
+            offset++;
+        }
+        if (offset >= line.text.length()) {
+            this.current = this.readLine();
+            if (this.current != null && this.current.indent > line.indent) {
+                return this.parseNode(this.current);
+            }
+            return null;
+        }
+        // The rest of the line is a node indented at the column after "- ".
+        this.current = new Line(line.number, line.indent + offset, line.text.substring(offset));
+        return this.parseNode(this.current);
+    }
+
+    private void parseMappingEntry(final Line line, final LinkedHashMap<String, Object> map) throws IOException {
+        final int separator = line.keySeparator();
+        if (separator < 0) {
+            throw line.error(0, "expected a key of a mapping");
+        }
+        final String key = parseKey(line, separator);
+        if (map.containsKey(key)) {
+            throw line.error(0, "duplicated key \"" + key + "\"");
+        }
+
+        int valueOffset = separator + 1;
+        while (valueOffset < line.text.length() && line.text.charAt(valueOffset) == ' ') {
+            valueOffset++;
+        }
+        if (valueOffset < line.text.length()) {
+            map.put(key, parseInlineValue(line, valueOffset));
+            this.current = this.readLine();
+            return;
+        }
+
+        this.current = this.readLine();
+        final Line next = this.current;
+        if (next != null && (next.indent > line.indent || (next.indent == line.indent && next.isSequenceItem()))) {
+            map.put(key, this.parseNode(next));
+        } else {
+            map.put(key, null);
+        }
+    }
+
+    private void checkDedent(final int indent) {
+        if (this.current != null && this.current.indent > indent) {
+            throw this.current.error(0, "unexpected indentation");
+        }
+    }
+
+    private static String parseKey(final Line line, final int separator) throws IOException {
+        final String keyText = line.text.substring(0, separator).trim();
+        if (keyText.startsWith("\"") || keyText.startsWith("'")) {
+            final Object key = parseInlineValue(new Line(line.number, line.indent, keyText), 0);
+            return (String) key;
+        }
+        if (keyText.isEmpty()) {
+            throw line.error(0, "empty key");
+        }
+        return keyText;
+    }
+
+    private static Object parseInlineValue(final Line line, final int offset) throws IOException {
+        final String text = line.text.substring(offset);
+        final char first = text.charAt(0);
+        if (first == '"' || first == '\'' || first == '[' || first == '{') {
+            final CharSource inline = new CharSource(new StringReader(text), line.number, line.indent + offset + 1, false);
+            final Object value = new FlowParser(inline, true).parseValue();
+            inline.skipWhitespaces();
+            if (inline.peek() != -1) {
+                throw inline.error("unexpected content after the value");
+            }
+            return value;
+        }
+        if (first == '&' || first == '*' || first == '!' || first == '|' || first == '>') {
+            throw line.error(offset, "anchors, aliases, tags, and block scalars are not supported");
+        }
+        return plainScalar(text.trim());
+    }
+
+    private Line readLine() throws IOException {
+        if (this.isDocumentEnded) {
+            return null;
+        }
+        while (true) {
+            final int number = this.source.line();
+            final String raw = this.source.readLine();
+            if (raw == null) {
+                return null;
+            }
+            int indent = 0;
+            while (indent < raw.length() && raw.charAt(indent) == ' ') {
+                indent++;
+            }
+            if (indent < raw.length() && raw.charAt(indent) == '\t') {
+                throw new IllegalArgumentException("Invalid DSL at line " + number + ", column " + (indent + 1) + ": tabs for indentation.");
+            }
+            final String text = stripComment(raw.substring(indent));
+            if (text.isEmpty()) {
+                continue;
+            }
+            if (indent == 0 && (text.equals("---") || text.startsWith("--- "))) {
+                if (this.topIndent >= 0) {
+                    throw new IllegalArgumentException("Invalid DSL at line " + number + ", column 1: multiple documents.");
+                }
+                continue;
+            }
+            if (indent == 0 && text.equals("...")) {
+                this.isDocumentEnded = true;  // Ignoring the rest.
+                return null;
+            }
+            return new Line(number, indent, text);
+        }
+    }
+
+    /**
+     * Strips a comment, which starts with {@code #} at the beginning or after a space, out of quotes.
+     */
+    static String stripComment(final String text) {
+        char quote = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (quote == '"') {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    quote = 0;
+                }
+            } else if (quote == '\'') {
+                if (c == '\'') {
+                    if (i + 1 < text.length() && text.charAt(i + 1) == '\'') {
+                        i++;  // An escaped '' stays in the quote.
+                    } else {
+                        quote = 0;
+                    }
+                }
+            } else if (c == '#' && (i == 0 || text.charAt(i - 1) == ' ' || text.charAt(i - 1) == '\t')) {
+                return rtrim(text.substring(0, i));
+            } else if ((c == '"' || c == '\'') && (i == 0 || " \t[{,:-".indexOf(text.charAt(i - 1)) >= 0)) {
+                quote = c;
+            }
+        }
+        return rtrim(text);
+    }
+
+    private static String rtrim(final String text) {
+        int end = text.length();
+        while (end > 0 && (text.charAt(end - 1) == ' ' || text.charAt(end - 1) == '\t')) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    private static Object plainScalar(final String text) {
+        switch (text) {
+            case "true":
+                return Boolean.TRUE;
+            case "false":
+                return Boolean.FALSE;
+            case "null":
+            case "~":
+                return null;
+            default:
+                return text;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castMap(final Object map) {
+        return (Map<String, Object>) map;
+    }
+
+    /**
+     * A non-empty line of YAML without its indentation and its comment.
+     */
+    private static final class Line {
+        Line(final int number, final int indent, final String text) {
+            this.number = number;
+            this.indent = indent;
+            this.text = text;
+        }
+
+        boolean isSequenceItem() {
+            return this.text.charAt(0) == '-' && (this.text.length() == 1 || this.text.charAt(1) == ' ');
+        }
+
+        /**
+         * Returns the index of {@code :} that separates a key and a value, or {@code -1} if it is not a mapping entry.
+         */
+        int keySeparator() {
+            int from = 0;
+            final char first = this.text.charAt(0);
+            if (first == '"' || first == '\'') {
+                from = closingQuote(this.text, first);
+                if (from < 0) {
+                    return -1;
+                }
+            } else if (first == '[' || first == '{') {
+                return -1;
+            }
+            for (int i = from; i < this.text.length(); i++) {
+                if (this.text.charAt(i) == ':' && (i + 1 == this.text.length() || this.text.charAt(i + 1) == ' ')) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        IllegalArgumentException error(final int offset, final String message) {
+            return new IllegalArgumentException(
+                    "Invalid DSL at line " + this.number + ", column " + (this.indent + offset + 1) + ": " + message + ".");
+        }
+
+        private static int closingQuote(final String text, final char quote) {
+            for (int i = 1; i < text.length(); i++) {
+                final char c = text.charAt(i);
+                if (quote == '"' && c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    if (quote == '\'' && i + 1 < text.length() && text.charAt(i + 1) == '\'') {
+                        i++;
+                    } else {
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private final int number;
+        private final int indent;
+        private final String text;
+    }
+
+    /**
+     * Parses a JSON value, or a YAML flow node.
+     */
+    private static final class FlowParser {
+        FlowParser(final CharSource source, final boolean isYaml) {
+            this.source = source;
+            this.isYaml = isYaml;
+        }
+
+        Object parseValue() throws IOException {
+            this.source.skipWhitespaces();
+            final int c = this.source.peek();
+            switch (c) {
+                case '{':
+                    return this.parseMapping();
+                case '[':
+                    return this.parseSequence();
+                case '"':
+                    return this.parseDoubleQuoted();
+                case '\'':
+                    if (!this.isYaml) {
+                        throw this.source.error("single-quoted strings are not allowed in JSON");
+                    }
+                    return this.parseSingleQuoted();
+                case -1:
+                    throw this.source.error("unexpected end of input");
+                default:
+                    return this.parsePlain();
+            }
+        }
+
+        private Map<String, Object> parseMapping() throws IOException {
+            this.source.read();  // '{'
+            final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+            this.source.skipWhitespaces();
+            if (this.source.peek() == '}') {
+                this.source.read();
+                return Collections.unmodifiableMap(map);
+            }
+            while (true) {
+                this.source.skipWhitespaces();
+                final int line = this.source.line();
+                final int column = this.source.column();
+                final Object key = this.parseValue();
+                if (!(key instanceof String)) {
+                    throw this.source.errorAt(line, column, "a key must be a string");
+                }
+                if (map.containsKey(key)) {
+                    throw this.source.errorAt(line, column, "duplicated key \"" + key + "\"");
+                }
+                this.source.skipWhitespaces();
+                this.expect(':');
+                map.put((String) key, this.parseValue());
+                this.source.skipWhitespaces();
+                final int c = this.source.read();
+                if (c == '}') {
+                    return Collections.unmodifiableMap(map);
+                }
+                if (c != ',') {
+                    throw this.source.errorBefore("expected ',' or '}'");
+                }
+            }
+        }
+
+        private List<Object> parseSequence() throws IOException {
+            this.source.read();  // '['
+            final ArrayList<Object> list = new ArrayList<>();
+            this.source.skipWhitespaces();
+            if (this.source.peek() == ']') {
+                this.source.read();
+                return Collections.unmodifiableList(list);
+            }
+            while (true) {
+                list.add(this.parseValue());
+                this.source.skipWhitespaces();
+                final int c = this.source.read();
+                if (c == ']') {
+                    return Collections.unmodifiableList(list);
+                }
+                if (c != ',') {
+                    throw this.source.errorBefore("expected ',' or ']'");
+                }
+            }
+        }
+
+        private String parseDoubleQuoted() throws IOException {
+            this.source.read();  // '"'
+            final StringBuilder builder = new StringBuilder();
+            while (true) {
+                final int c = this.source.read();
+                if (c == -1 || c == '\n') {
+                    throw this.source.errorBefore("unterminated string");
+                }
+                if (c == '"') {
+                    return builder.toString();
+                }
+                if (c != '\\') {
+                    builder.append((char) c);
+                    continue;
+                }
+                final int escaped = this.source.read();
+                switch (escaped) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        builder.append((char) escaped);
+                        break;
+                    case 'b':
+                        builder.append('\b');
+                        break;
+                    case 'f':
+                        builder.append('\f');
+                        break;
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'u':
+                        builder.append((char) this.readHex(4));
+                        break;
+                    case '0':
+                        this.requireYaml("\\0");
+                        builder.append('\0');
+                        break;
+                    case 'e':
+                        this.requireYaml("\\e");
+                        builder.append('\u001b');
+                        break;
+                    case 'x':
+                        this.requireYaml("\\x");
+                        builder.append((char) this.readHex(2));
+                        break;
+                    case 'U':
+                        this.requireYaml("\\U");
+                        builder.appendCodePoint(this.readHex(8));
+                        break;
+                    default:
+                        throw this.source.errorBefore("invalid escape sequence");
+                }
+            }
+        }
+
+        private String parseSingleQuoted() throws IOException {
+            this.source.read();  // '\''
+            final StringBuilder builder = new StringBuilder();
+            while (true) {
+                final int c = this.source.read();
+                if (c == -1 || c == '\n') {
+                    throw this.source.errorBefore("unterminated string");
+                }
+                if (c == '\'') {
+                    if (this.source.peek() != '\'') {
+                        return builder.toString();
+                    }
+                    this.source.read();
+                }
+                builder.append((char) c);
+            }
+        }
+
+        private Object parsePlain() throws IOException {
+            final int line = this.source.line();
+            final int column = this.source.column();
+            final StringBuilder builder = new StringBuilder();
+            while (true) {
+                final int c = this.source.peek();
+                if (c == -1 || c == ',' || c == ']' || c == '}' || c == '\n' || (c == ':' && !this.isYaml)) {
+                    break;
+                }
+                if (c == ':' && this.isYaml) {
+                    this.source.read();
+                    final int next = this.source.peek();
+                    if (next == ' ' || next == -1 || next == ',' || next == ']' || next == '}' || next == '\n') {
+                        this.source.unread(':');
+                        break;
+                    }
+                    builder.append(':');
+                    continue;
+                }
+                builder.append((char) this.source.read());
+            }
+            final String text = builder.toString().trim();
+            if (text.isEmpty()) {
+                throw this.source.errorAt(line, column, "expected a value");
+            }
+            if (!this.isYaml && !isJsonLiteral(text)) {
+                throw this.source.errorAt(line, column, "invalid literal \"" + text + "\"");
+            }
+            return plainScalar(text);
+        }
+
+        private int readHex(final int digits) throws IOException {
+            int value = 0;
+            for (int i = 0; i < digits; i++) {
+                final int digit = Character.digit(this.source.read(), 16);
+                if (digit < 0) {
+                    throw this.source.errorBefore("invalid hexadecimal escape sequence");
+                }
+                value = value * 16 + digit;
+            }
+            if (!Character.isValidCodePoint(value)) {
+                throw this.source.errorBefore("invalid code point");
+            }
+            return value;
+        }
+
+        private void requireYaml(final String escape) {
+            if (!this.isYaml) {
+                throw this.source.errorBefore("invalid escape sequence " + escape + " in JSON");
+            }
+        }
+
+        private void expect(final char expected) throws IOException {
+            if (this.source.read() != expected) {
+                throw this.source.errorBefore("expected '" + expected + "'");
+            }
+        }
+
+        private static boolean isJsonLiteral(final String text) {
+            return text.equals("true") || text.equals("false") || text.equals("null") || text.matches("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][-+]?[0-9]+)?");
+        }
+
+        private final CharSource source;
+        private final boolean isYaml;
+    }
+
+    /**
+     * Reads characters with their line and column, normalizing line terminators into {@code \n}.
+     */
+    private static final class CharSource {
+        CharSource(final Reader reader, final int line, final int column, final boolean isAtBeginning) {
+            this.reader = reader;
+            this.isAtBeginning = isAtBeginning;
+            this.line = line;
+            this.column = column;
+            this.pushedBack = new StringBuilder();
+            this.lookahead = NONE;
+            this.pendingRaw = NONE;
+            this.lastLine = line;
+            this.lastColumn = column;
+        }
+
+        int peek() throws IOException {
+            if (this.pushedBack.length() > 0) {
+                return this.pushedBack.charAt(this.pushedBack.length() - 1);
+            }
+            if (this.lookahead == NONE) {
+                this.lookahead = this.readRaw();
+            }
+            return this.lookahead;
+        }
+
+        int read() throws IOException {
+            final int c = this.peek();
+            if (this.pushedBack.length() > 0) {
+                this.pushedBack.setLength(this.pushedBack.length() - 1);
+            } else {
+                this.lookahead = NONE;
+            }
+            this.lastLine = this.line;
+            this.lastColumn = this.column;
+            if (c == '\n') {
+                this.line++;
+                this.column = 1;
+            } else if (c != -1) {
+                this.column++;
+            }
+            return c;
+        }
+
+        /**
+         * Pushes back a character read in the same line.
+         */
+        void unread(final char c) {
+            this.pushedBack.append(c);
+            this.column--;
+        }
+
+        String readLine() throws IOException {
+            if (this.peek() == -1) {
+                return null;
+            }
+            final StringBuilder builder = new StringBuilder();
+            while (true) {
+                final int c = this.read();
+                if (c == -1 || c == '\n') {
+                    return builder.toString();
+                }
+                builder.append((char) c);
+            }
+        }
+
+        void skipWhitespaces() throws IOException {
+            while (true) {
+                final int c = this.peek();
+                if (c != ' ' && c != '\t' && c != '\n') {
+                    return;
+                }
+                this.read();
+            }
+        }
+
+        void skipWhitespacesAndComments() throws IOException {
+            while (true) {
+                this.skipWhitespaces();
+                if (this.peek() != '#') {
+                    return;
+                }
+                while (this.peek() != '\n' && this.peek() != -1) {
+                    this.read();
+                }
+            }
+        }
+
+        int line() {
+            return this.line;
+        }
+
+        int column() {
+            return this.column;
+        }
+
+        IllegalArgumentException error(final String message) {
+            return this.errorAt(this.line, this.column, message);
+        }
+
+        /**
+         * Returns an error at the character just read.
+         */
+        IllegalArgumentException errorBefore(final String message) {
+            return this.errorAt(this.lastLine, this.lastColumn, message);
+        }
+
+        IllegalArgumentException errorAt(final int line, final int column, final String message) {
+            return new IllegalArgumentException("Invalid DSL at line " + line + ", column " + column + ": " + message + ".");
+        }
+
+        private int readRaw() throws IOException {
+            final int c;
+            if (this.pendingRaw != NONE) {
+                c = this.pendingRaw;
+                this.pendingRaw = NONE;
+            } else if (this.isAtBeginning) {
+                this.isAtBeginning = false;
+                final int first = this.reader.read();
+                c = first == '\uFEFF' ? this.reader.read() : first;  // A byte order mark is skipped as SnakeYAML does.
+            } else {
+                c = this.reader.read();
+            }
+            if (c != '\r') {
+                return c;
+            }
+            final int next = this.reader.read();
+            if (next != '\n') {
+                this.pendingRaw = next;  // A lone '\r' is also a line terminator.
+            }
+            return '\n';
+        }
+
+        private static final int NONE = -2;
+
+        private final Reader reader;
+        private boolean isAtBeginning;  // True until the first character is read from the beginning of the whole DSL.
+        private int line;
+        private int column;
+        private int lastLine;  // The line of the character read last.
+        private int lastColumn;  // The column of the character read last.
+        private final StringBuilder pushedBack;  // Characters pushed back, to be read before |lookahead|.
+        private int lookahead;  // NONE if not peeked yet.
+        private int pendingRaw;  // NONE, or a character read after '\r' to check "\r\n".
+    }
+
+    private final CharSource source;
+    private boolean started;
+    private boolean isJson;
+    private boolean isFinished;
+    private boolean afterFirstInJson;
+    private boolean isDocumentEnded;
+
+    private Line current;  // Nullable at the end, or before the first line is read.
+    private int topIndent;  // -1 before the first line is read.
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.jigue.sortex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes exact messages of all the exception rules so that a message is looked up only once per classification.
+ *
+ * <p>Each exact message in {@code message_matches_either_of} is mapped to the positions of the exception rules that
+ * accept it, in ascending order. A message is looked up once, and then the message rule of each candidate is resolved by
+ * whether its position is in the looked-up positions. Only the prefixes, the suffixes, and the regular expressions of
+ * the message rule, if any, run after that. It returns the same result as {@link MessageMatchesEitherOfRule#matchesMessage(String)}, including
+ * {@link java.lang.NullPointerException} from regular expressions for a {@code null} message.
+ */
+final class ExactMessageIndex {
+    private ExactMessageIndex(final Map<String, int[]> positions, final MessageMatchesEitherOfRule[] messageRules) {
+        this.positions = positions;
+        this.messageRules = messageRules;
+    }
+
+    static ExactMessageIndex of(final ExceptionRule[] rules) {
+        return of(rules, null);
+    }
+
+    /**
+     * Builds an index of the exception rules, or restores it from the positions precomputed for the same rules.
+     *
+     * @param rules  the exception rules
+     * @param precomputed  the positions of the exception rules by their exact messages, in ascending order, or {@code null} to compute
+     * @throws IllegalArgumentException  if a precomputed position is not of an indexed exception rule
+     */
+    static ExactMessageIndex of(final ExceptionRule[] rules, final Map<String, int[]> precomputed) {
+        final HashMap<String, List<Integer>> lists = new HashMap<>();
+        final MessageMatchesEitherOfRule[] messageRules = new MessageMatchesEitherOfRule[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            final MessageRule messageRule = rules[i].messageRule();
+            if (!(messageRule instanceof MessageMatchesEitherOfRule)) {
+                continue;
+            }
+            final MessageMatchesEitherOfRule rule = (MessageMatchesEitherOfRule) messageRule;
+            if (rule.exactPatterns().isEmpty()) {
+                continue;
+            }
+            if (precomputed == null) {
+                for (final String pattern : rule.exactPatterns()) {
+                    lists.computeIfAbsent(pattern, k -> new ArrayList<>()).add(i);
+                }
+            }
+            messageRules[i] = rule;
+        }
+
+        if (precomputed != null) {
+            for (final int[] array : precomputed.values()) {
+                for (int i = 0; i < array.length; i++) {
+                    if (array[i] < 0 || array[i] >= rules.length || messageRules[array[i]] == null || (i > 0 && array[i - 1] >= array[i])) {
+                        throw new IllegalArgumentException("Precomputed exact messages do not match the exception rules.");
+                    }
+                }
+            }
+            return new ExactMessageIndex(precomputed, messageRules);
+        }
+
+        final HashMap<String, int[]> positions = new HashMap<>();
+        for (final Map.Entry<String, List<Integer>> entry : lists.entrySet()) {
+            final int[] array = new int[entry.getValue().size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = entry.getValue().get(i);
+            }
+            positions.put(entry.getKey(), array);
+        }
+        return new ExactMessageIndex(Collections.unmodifiableMap(positions), messageRules);
+    }
+
+    /**
+     * Returns the positions of the exception rules that accept the message exactly, in ascending order.
+     *
+     * @return the positions, or an empty array if no exception rule accepts the message exactly
+     */
+    int[] lookUp(final String message) {
+        final int[] found = this.positions.get(message);
+        return found == null ? EMPTY : found;
+    }
+
+    /**
+     * Returns the positions of the exception rules by their exact messages, to be precomputed.
+     */
+    Map<String, int[]> positions() {
+        return this.positions;
+    }
+
+    /**
+     * Checks if the message rule of the exception rule at the position is resolved by this index.
+     */
+    boolean isIndexed(final int position) {
+        return this.messageRules[position] != null;
+    }
+
+    /**
+     * Matches the message rule of the indexed exception rule at the position.
+     *
+     * @param position  the position of the exception rule, which must be indexed
+     * @param accepting  the positions looked up by {@link #lookUp(String)} for the message
+     * @param message  the message, which is used only for prefixes, suffixes, and regular expressions
+     */
+    boolean matches(final int position, final int[] accepting, final String message) {
+        if (Arrays.binarySearch(accepting, position) >= 0) {
+            return true;
+        }
+        return this.messageRules[position].matchesExceptExact(message);
+    }
+
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<String, int[]> positions;
+
+    // Indexed message rules, or null for exception rules that are not indexed.
+    private final MessageMatchesEitherOfRule[] messageRules;
+}
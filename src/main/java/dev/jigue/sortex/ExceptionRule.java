@@ -29,21 +29,121 @@ final class ExceptionRule {
         this.classRule = classRule;
         this.messageRule = messageRule;
         this.causeRule = causeRule;
+
+        // The cause rule is evaluated first only if it is cheaper. All the rules are conjunctive, and their order does
+        // not change the result. A tie keeps the order as declared.
+        //
+        // A cause rule that may throw for a cause with a null message is never evaluated first. The interpreter as
+        // declared does not reach the cause rule if the message rule does not match, and then it must not throw.
+        this.isCauseFirst = messageRule != null && causeRule != null
+                && causeRule.cost() < messageRule.cost()
+                && !causeRule.throwsForNullMessage();
     }
 
     static ExceptionRule from(final Map<String, Object> map) {
+        return from(map, RuleContext.eager());
+    }
+
+    static ExceptionRule from(final Map<String, Object> map, final RuleContext context) {
         return new ExceptionRule(
-                ClassRule.from(map),
-                MessageRule.from(map).orElse(null),
-                CauseRule.from(map).orElse(null));
+                ClassRule.from(map, context),
+                MessageRule.from(map, context).orElse(null),
+                CauseRule.from(map, context).orElse(null));
     }
 
     boolean matches(final Throwable cause) {
-        return this.classRule.matches(cause)
-                && (this.messageRule == null || this.messageRule.matches(cause))
+        return this.classRule.matches(cause) && this.matchesExceptClass(cause);
+    }
+
+    /**
+     * Matches the message rule and the cause rule, assuming the class rule has already been matched.
+     *
+     * <p>The class rule is always evaluated first as the cheapest. The message rule and the cause rule are evaluated in
+     * the order of their estimated costs.
+     */
+    boolean matchesExceptClass(final Throwable cause) {
+        if (this.isCauseFirst(cause)) {
+            return this.causeRule.matches(cause) && this.messageRule.matches(cause);
+        }
+        return (this.messageRule == null || this.messageRule.matches(cause))
                 && (this.causeRule == null || this.causeRule.matches(cause));
     }
 
+    boolean matchesMessage(final String message) {
+        return this.messageRule == null || this.messageRule.matchesMessage(message);
+    }
+
+    boolean matchesCause(final Throwable cause) {
+        return this.causeRule == null || this.causeRule.matches(cause);
+    }
+
+    /**
+     * Checks if no {@link java.lang.Throwable} instance can match both this exception rule and the other exception rule.
+     *
+     * <p>It is conservative. It returns {@code false} unless it is provable.
+     */
+    boolean isExclusiveWith(final ExceptionRule other) {
+        return this.messageRule != null && other.messageRule != null && this.messageRule.isExclusiveWith(other.messageRule);
+    }
+
+    /**
+     * Resolves classes that are resolved lazily, and adds exceptions for classes that cannot be resolved.
+     */
+    void validate(final RuntimeExceptionBuilder exceptionBuilder) {
+        this.classRule.validate(exceptionBuilder);
+        if (this.causeRule != null) {
+            this.causeRule.validate(exceptionBuilder);
+        }
+    }
+
+    /**
+     * Checks if the cause rule is evaluated before the message rule for the {@link java.lang.Throwable} instance.
+     *
+     * <p>A message rule with regular expressions throws {@link java.lang.NullPointerException} for a {@code null} message.
+     * The message rule is evaluated first for a {@code null} message so that it throws as if it is not reordered.
+     */
+    boolean isCauseFirst(final Throwable exception) {
+        return this.isCauseFirst && CauseChain.messageOf(exception) != null;
+    }
+
+    boolean isCauseFirst() {
+        return this.isCauseFirst;
+    }
+
+    /**
+     * Estimates the cost to evaluate this exception rule in the worst case.
+     */
+    int cost() {
+        return CLASS_COST
+                + (this.messageRule == null ? 0 : this.messageRule.cost())
+                + (this.causeRule == null ? 0 : this.causeRule.cost());
+    }
+
+    /**
+     * Checks if this exception rule may throw {@link java.lang.NullPointerException} for a {@code null} message of the
+     * exception or of its causes.
+     */
+    boolean throwsForNullMessage() {
+        return (this.messageRule != null && this.messageRule.throwsForNullMessage())
+                || (this.causeRule != null && this.causeRule.throwsForNullMessage());
+    }
+
+    boolean hasCauseRule() {
+        return this.causeRule != null;
+    }
+
+    ClassRule classRule() {
+        return this.classRule;
+    }
+
+    MessageRule messageRule() {
+        return this.messageRule;
+    }
+
+    CauseRule causeRule() {
+        return this.causeRule;
+    }
+
     Map<String, Object> toMap() {
         final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
         map.putAll(this.classRule.toMap());
@@ -80,7 +180,11 @@ final class ExceptionRule {
         return this.toMap().toString();
     }
 
+    // An identity comparison, or an intrinsic Class#isAssignableFrom, which is the same order as a hash lookup.
+    private static final int CLASS_COST = 1;
+
     private final ClassRule classRule;
     private final MessageRule messageRule;  // Nullable
     private final CauseRule causeRule;  // Nullable
+    private final boolean isCauseFirst;
 }
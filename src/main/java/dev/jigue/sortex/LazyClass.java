@@ -0,0 +1,119 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.Objects;
+
+/**
+ * Refers to a {@link java.lang.Throwable} class by its name, and resolves it on its first use.
+ *
+ * <p>It resolves the class by {@link java.lang.Class#forName(String, boolean, ClassLoader)} without initializing it,
+ * and caches the result, including a failure. Resolution is idempotent, and it does not need to be exclusive.
+ */
+final class LazyClass {
+    private LazyClass(final String name, final ClassLoader classLoader) {
+        this.name = name;
+        this.classLoader = classLoader;
+        this.clazz = null;
+        this.failure = null;
+        this.isResolved = false;
+    }
+
+    static LazyClass of(final String name, final ClassLoader classLoader) {
+        return new LazyClass(name, classLoader);
+    }
+
+    String name() {
+        return this.name;
+    }
+
+    /**
+     * Returns the resolved class.
+     *
+     * @return the resolved class, or {@code null} if it cannot be resolved
+     */
+    Class<? extends Throwable> get() {
+        if (!this.isResolved) {
+            this.resolve();
+        }
+        return this.clazz;
+    }
+
+    /**
+     * Resolves the class, and returns why it cannot be resolved.
+     *
+     * @return the failure, or {@code null} if it is resolved
+     */
+    RuntimeException validate() {
+        if (this.get() == null) {
+            return this.failure;
+        }
+        return null;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(LazyClass.class, this.name);
+    }
+
+    @Override
+    public boolean equals(final Object otherObject) {
+        if (this == otherObject) {
+            return true;
+        }
+        if (!(otherObject instanceof LazyClass)) {
+            return false;
+        }
+        final LazyClass other = (LazyClass) otherObject;
+        return Objects.equals(this.name, other.name) && this.classLoader == other.classLoader;
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+
+    private void resolve() {
+        final Class<?> resolved;
+        try {
+            resolved = Class.forName(this.name, false, this.classLoader);
+        } catch (final ClassNotFoundException | LinkageError ex) {
+            this.failure = new IllegalArgumentException("A class \"" + this.name + "\" is not found.", ex);
+            this.isResolved = true;
+            return;
+        }
+        if (!Throwable.class.isAssignableFrom(resolved)) {
+            this.failure = new ClassCastException("Class " + resolved.getName() + " is not Throwable.");
+            this.isResolved = true;
+            return;
+        }
+        this.clazz = castToThrowableClass(resolved);
+        this.isResolved = true;  // Written at last so that a thread that reads it sees the others.
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Throwable> castToThrowableClass(final Class<?> clazz) {
+        return (Class<? extends Throwable>) clazz;
+    }
+
+    private final String name;
+    private final ClassLoader classLoader;
+
+    private volatile Class<? extends Throwable> clazz;  // Nullable until resolved, or if it cannot be resolved.
+    private volatile RuntimeException failure;  // Nullable unless it cannot be resolved.
+    private volatile boolean isResolved;
+}
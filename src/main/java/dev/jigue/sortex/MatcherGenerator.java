@@ -0,0 +1,448 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import static dev.jigue.sortex.ClassFileBuilder.AALOAD;
+import static dev.jigue.sortex.ClassFileBuilder.ACC_FINAL;
+import static dev.jigue.sortex.ClassFileBuilder.ACC_PRIVATE;
+import static dev.jigue.sortex.ClassFileBuilder.ACC_PUBLIC;
+import static dev.jigue.sortex.ClassFileBuilder.ACONST_NULL;
+import static dev.jigue.sortex.ClassFileBuilder.ALOAD;
+import static dev.jigue.sortex.ClassFileBuilder.ASTORE;
+import static dev.jigue.sortex.ClassFileBuilder.CHECKCAST;
+import static dev.jigue.sortex.ClassFileBuilder.GETFIELD;
+import static dev.jigue.sortex.ClassFileBuilder.GOTO;
+import static dev.jigue.sortex.ClassFileBuilder.ICONST_0;
+import static dev.jigue.sortex.ClassFileBuilder.ICONST_1;
+import static dev.jigue.sortex.ClassFileBuilder.ICONST_M1;
+import static dev.jigue.sortex.ClassFileBuilder.IFEQ;
+import static dev.jigue.sortex.ClassFileBuilder.IFGT;
+import static dev.jigue.sortex.ClassFileBuilder.IFLT;
+import static dev.jigue.sortex.ClassFileBuilder.IFNE;
+import static dev.jigue.sortex.ClassFileBuilder.IFNULL;
+import static dev.jigue.sortex.ClassFileBuilder.IF_ACMPNE;
+import static dev.jigue.sortex.ClassFileBuilder.ILOAD;
+import static dev.jigue.sortex.ClassFileBuilder.INVOKESPECIAL;
+import static dev.jigue.sortex.ClassFileBuilder.INVOKESTATIC;
+import static dev.jigue.sortex.ClassFileBuilder.INVOKEVIRTUAL;
+import static dev.jigue.sortex.ClassFileBuilder.IRETURN;
+import static dev.jigue.sortex.ClassFileBuilder.ISTORE;
+import static dev.jigue.sortex.ClassFileBuilder.LDC_W;
+import static dev.jigue.sortex.ClassFileBuilder.PUTFIELD;
+import static dev.jigue.sortex.ClassFileBuilder.RETURN;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates a subclass of {@link CompiledMatcher} for a list of exception rules.
+ *
+ * <p>The generated {@code match} method checks the rules in the original order, and returns the position of the first
+ * matching rule, just as {@link ClassDispatchIndex#find(Throwable)} does. For each rule:
+ *
+ * <ul>
+ * <li>{@code class_equals} is an identity comparison with a {@link java.lang.Class} in a field.
+ * <li>{@code class_equals_literally} is a {@link java.lang.String#equals(Object)} with a constant class name.
+ * <li>{@code class_extends} is an intrinsic {@link java.lang.Class#isAssignableFrom(Class)}.
+ * <li>{@code class_equals} and {@code class_extends} resolved lazily are direct calls to the concrete rule classes.
+ * <li>Exact messages of {@code message_matches_either_of} are a {@code lookupswitch} on {@link java.lang.String#hashCode()}.
+ * <li>Regular expressions of {@code message_matches_either_of} are a direct call to {@link MultiRegexMatcher}.
+ * <li>Other message rules and cause rules are direct calls to the concrete rule classes.
+ * </ul>
+ *
+ * <p>The message rule and the cause rule of each rule are generated in the order of their costs, as
+ * {@link ExceptionRule#matchesExceptClass(Throwable)} evaluates them.
+ *
+ * <p>The message is retrieved by {@link CauseChain#messageOf(Throwable)} at most once per generated method. Results of equal message rules and equal cause rules
+ * are memoized in local variables as {@link CandidatePlan} does, so that they are evaluated at most once per input in a
+ * generated method. Many rules are split into multiple methods so that each method can be compiled by the JIT compiler.
+ */
+final class MatcherGenerator {
+    private MatcherGenerator(final String className) {
+        this.className = className;
+        this.builder = new ClassFileBuilder(className, BASE_CLASS);
+        this.constants = new ArrayList<>();
+        this.fieldDescriptors = new ArrayList<>();
+        this.fieldIndices = new IdentityHashMap<>();
+        this.messageSlots = new HashMap<>();
+        this.causeSlots = new HashMap<>();
+    }
+
+    /**
+     * Generates, defines, and instantiates a {@link CompiledMatcher} for the exception rules.
+     *
+     * @throws IllegalStateException  if the rules are too many to generate a class, or the class cannot be defined
+     */
+    static CompiledMatcher generate(final List<ExceptionRule> rules) {
+        return generate(rules, ClassDefiner.get());
+    }
+
+    static CompiledMatcher generate(final List<ExceptionRule> rules, final ClassDefiner definer) {
+        if (definer == null) {
+            throw new IllegalStateException("No way to define a class is available in this JVM.");
+        }
+        final MatcherGenerator generator =
+                new MatcherGenerator(CLASS_NAME_PREFIX + Long.toString(SEQUENCE.incrementAndGet()));
+        final byte[] bytes = generator.generateClass(rules);
+        try {
+            final Class<?> clazz = definer.define(bytes);
+            return (CompiledMatcher) clazz.getDeclaredConstructor(Object[].class).newInstance(
+                    (Object) generator.constants.toArray());
+        } catch (final ReflectiveOperationException | LinkageError ex) {
+            throw new IllegalStateException("Failed to define a generated matcher class.", ex);
+        }
+    }
+
+    private byte[] generateClass(final List<ExceptionRule> rules) {
+        // The methods are generated before the constructor and the fields because they register the fields.
+        final List<ClassFileBuilder.Code> chunks = this.generateChunks(rules);
+        for (int i = 0; i < this.fieldDescriptors.size(); i++) {
+            this.builder.addField(ACC_PRIVATE | ACC_FINAL, fieldName(i), this.fieldDescriptors.get(i));
+        }
+        this.builder.addMethod(ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V", this.generateConstructor());
+        if (chunks.size() == 1) {
+            this.builder.addMethod(0, "match", MATCH_DESCRIPTOR, chunks.get(0));
+        } else {
+            for (int i = 0; i < chunks.size(); i++) {
+                this.builder.addMethod(ACC_PRIVATE, chunkName(i), MATCH_DESCRIPTOR, chunks.get(i));
+            }
+            this.builder.addMethod(0, "match", MATCH_DESCRIPTOR, this.generateDispatcher(chunks.size()));
+        }
+        return this.builder.toByteArray();
+    }
+
+    /**
+     * Generates methods for consecutive chunks of the rules, each of which returns a position, or {@code -1}.
+     *
+     * <p>The rules are split so that each method is small enough to be compiled by the JIT compiler. HotSpot does not
+     * compile a method larger than 8000 bytes by default ({@code -XX:-DontCompileHugeMethods}).
+     */
+    private List<ClassFileBuilder.Code> generateChunks(final List<ExceptionRule> rules) {
+        final ArrayList<ClassFileBuilder.Code> chunks = new ArrayList<>();
+        int position = 0;
+        do {
+            this.messageSlots.clear();
+            this.causeSlots.clear();
+            final ClassFileBuilder.Code code = new ClassFileBuilder.Code(4, FIRST_SLOT_LOCAL);
+            while (position < rules.size() && code.length() < CHUNK_LENGTH) {
+                this.generateRule(code, rules.get(position), position);
+                position++;
+            }
+            code.op(ICONST_M1);
+            code.op(IRETURN);
+
+            final int slotCount = this.messageSlots.size() + this.causeSlots.size();
+            final ClassFileBuilder.Code prologue = new ClassFileBuilder.Code(4, FIRST_SLOT_LOCAL);
+            prologue.local(ALOAD, EXCEPTION_LOCAL);
+            prologue.op(INVOKEVIRTUAL, this.builder.methodRef("java/lang/Object", "getClass", "()Ljava/lang/Class;"));
+            prologue.local(ASTORE, CLASS_LOCAL);
+            prologue.op(ACONST_NULL);
+            prologue.local(ASTORE, MESSAGE_LOCAL);
+            prologue.op(ICONST_0);
+            prologue.local(ISTORE, MESSAGE_LOADED_LOCAL);
+            for (int slot = 0; slot < slotCount; slot++) {
+                prologue.op(ICONST_0);  // 0 for not evaluated yet, 1 for matched, and -1 for not matched.
+                prologue.local(ISTORE, FIRST_SLOT_LOCAL + slot);
+            }
+            code.prepend(prologue);
+            code.setMaxLocals(FIRST_SLOT_LOCAL + slotCount);
+            chunks.add(code);
+        } while (position < rules.size());
+        return chunks;
+    }
+
+    private ClassFileBuilder.Code generateDispatcher(final int chunkCount) {
+        final ClassFileBuilder.Code code = new ClassFileBuilder.Code(2, 3);
+        for (int i = 0; i < chunkCount; i++) {
+            final int next = code.newLabel();
+            code.local(ALOAD, 0);
+            code.local(ALOAD, EXCEPTION_LOCAL);
+            // Private methods are invoked by invokespecial in class files older than Java 11.
+            code.op(INVOKESPECIAL, this.builder.methodRef(this.className, chunkName(i), MATCH_DESCRIPTOR));
+            code.local(ISTORE, 2);
+            code.local(ILOAD, 2);
+            code.jump(IFLT, next);
+            code.local(ILOAD, 2);
+            code.op(IRETURN);
+            code.mark(next);
+        }
+        code.op(ICONST_M1);
+        code.op(IRETURN);
+        return code;
+    }
+
+    private ClassFileBuilder.Code generateConstructor() {
+        final ClassFileBuilder.Code code = new ClassFileBuilder.Code(4, 2);
+        code.local(ALOAD, 0);
+        code.op(INVOKESPECIAL, this.builder.methodRef(BASE_CLASS, "<init>", "()V"));
+        for (int i = 0; i < this.fieldDescriptors.size(); i++) {
+            final String descriptor = this.fieldDescriptors.get(i);
+            code.local(ALOAD, 0);
+            code.local(ALOAD, 1);
+            code.pushInt(i, this.builder);
+            code.op(AALOAD);
+            code.op(CHECKCAST, this.builder.classRef(descriptor.substring(1, descriptor.length() - 1)));
+            code.op(PUTFIELD, this.builder.fieldRef(this.className, fieldName(i), descriptor));
+        }
+        code.op(RETURN);
+        return code;
+    }
+
+    private void generateRule(final ClassFileBuilder.Code code, final ExceptionRule rule, final int position) {
+        if (rule.messageRule() != null) {
+            this.messageSlots.putIfAbsent(rule.messageRule(), this.messageSlots.size() + this.causeSlots.size());
+        }
+        if (rule.causeRule() != null) {
+            this.causeSlots.putIfAbsent(rule.causeRule(), this.messageSlots.size() + this.causeSlots.size());
+        }
+
+        final int next = code.newLabel();
+
+        this.generateClassRule(code, rule.classRule(), next);
+        if (rule.isCauseFirst()) {
+            // The message rule is evaluated first for a null message as ExceptionRule#isCauseFirst(Throwable) does.
+            final int isMessageFirst = code.newLabel();
+            this.generateLoadMessage(code);
+            code.local(ALOAD, MESSAGE_LOCAL);
+            code.jump(IFNULL, isMessageFirst);
+            this.generateCauseRule(code, rule.causeRule(), next);
+            this.generateMemoizedMessageRule(code, rule.messageRule(), next);
+            code.pushInt(position, this.builder);
+            code.op(IRETURN);
+            code.mark(isMessageFirst);
+        }
+        if (rule.messageRule() != null) {
+            this.generateMemoizedMessageRule(code, rule.messageRule(), next);
+        }
+        if (rule.causeRule() != null) {
+            this.generateCauseRule(code, rule.causeRule(), next);
+        }
+        code.pushInt(position, this.builder);
+        code.op(IRETURN);
+        code.mark(next);
+    }
+
+    private void generateMemoizedMessageRule(final ClassFileBuilder.Code code, final MessageRule messageRule, final int next) {
+        this.generateMemoized(code, this.messageSlots.get(messageRule), next, (isTrue, isFalse) -> {
+            this.generateMessageRule(code, messageRule, isTrue, isFalse);
+        });
+    }
+
+    private void generateCauseRule(final ClassFileBuilder.Code code, final CauseRule causeRule, final int next) {
+        this.generateMemoized(code, this.causeSlots.get(causeRule), next, (isTrue, isFalse) -> {
+            final String owner = internalName(causeRule.getClass());
+            this.loadField(code, causeRule);
+            code.local(ALOAD, EXCEPTION_LOCAL);
+            code.op(INVOKEVIRTUAL, this.builder.methodRef(owner, "matches", "(Ljava/lang/Throwable;)Z"));
+            code.jump(IFNE, isTrue);
+            code.jump(GOTO, isFalse);
+        });
+    }
+
+    private void generateClassRule(final ClassFileBuilder.Code code, final ClassRule classRule, final int next) {
+        if ((classRule instanceof ClassEqualsRule && ((ClassEqualsRule) classRule).clazz() == null)
+                || (classRule instanceof ClassExtendsRule && ((ClassExtendsRule) classRule).clazz() == null)) {
+            // A class resolved lazily is checked by the rule itself so that it is not resolved here.
+            this.loadField(code, classRule);
+            code.local(ALOAD, CLASS_LOCAL);
+            code.op(INVOKEVIRTUAL, this.builder.methodRef(internalName(classRule.getClass()), "matchesClass", "(Ljava/lang/Class;)Z"));
+            code.jump(IFEQ, next);
+        } else if (classRule instanceof ClassEqualsRule) {
+            code.local(ALOAD, CLASS_LOCAL);
+            this.loadField(code, ((ClassEqualsRule) classRule).clazz());
+            code.jump(IF_ACMPNE, next);
+        } else if (classRule instanceof ClassEqualsLiterallyRule) {
+            code.local(ALOAD, CLASS_LOCAL);
+            code.op(INVOKEVIRTUAL, this.builder.methodRef("java/lang/Class", "getName", "()Ljava/lang/String;"));
+            code.op(LDC_W, this.builder.string(((ClassEqualsLiterallyRule) classRule).className()));
+            code.op(INVOKEVIRTUAL, this.builder.methodRef("java/lang/String", "equals", "(Ljava/lang/Object;)Z"));
+            code.jump(IFEQ, next);
+        } else if (classRule instanceof ClassExtendsRule) {
+            this.loadField(code, ((ClassExtendsRule) classRule).clazz());
+            code.local(ALOAD, CLASS_LOCAL);
+            code.op(INVOKEVIRTUAL, this.builder.methodRef("java/lang/Class", "isAssignableFrom", "(Ljava/lang/Class;)Z"));
+            code.jump(IFEQ, next);
+        } else {
+            throw new IllegalStateException("Unexpected class rule: " + classRule);
+        }
+    }
+
+    private void generateMessageRule(
+            final ClassFileBuilder.Code code,
+            final MessageRule messageRule,
+            final int isTrue,
+            final int isFalse) {
+        if (!(messageRule instanceof MessageMatchesEitherOfRule)) {
+            this.loadField(code, messageRule);
+            code.local(ALOAD, EXCEPTION_LOCAL);
+            code.op(INVOKEVIRTUAL, this.builder.methodRef(internalName(messageRule.getClass()), "matches", "(Ljava/lang/Throwable;)Z"));
+            code.jump(IFNE, isTrue);
+            code.jump(GOTO, isFalse);
+            return;
+        }
+        final MessageMatchesEitherOfRule rule = (MessageMatchesEitherOfRule) messageRule;
+
+        this.generateLoadMessage(code);
+
+        final int afterExact = code.newLabel();
+        if (!rule.exactPatterns().isEmpty()) {
+            final TreeMap<Integer, List<String>> byHashCode = new TreeMap<>();
+            for (final String pattern : rule.exactPatterns()) {
+                byHashCode.computeIfAbsent(pattern.hashCode(), k -> new ArrayList<>()).add(pattern);
+            }
+            final int[] keys = new int[byHashCode.size()];
+            final int[] labels = new int[byHashCode.size()];
+            int i = 0;
+            for (final Integer hashCode : byHashCode.keySet()) {
+                keys[i] = hashCode;
+                labels[i] = code.newLabel();
+                i++;
+            }
+
+            code.local(ALOAD, MESSAGE_LOCAL);
+            code.jump(IFNULL, afterExact);
+            code.local(ALOAD, MESSAGE_LOCAL);
+            code.op(INVOKEVIRTUAL, this.builder.methodRef("java/lang/String", "hashCode", "()I"));
+            code.lookupSwitch(keys, labels, afterExact);
+
+            i = 0;
+            for (final List<String> patterns : byHashCode.values()) {
+                code.mark(labels[i++]);
+                for (final String pattern : patterns) {
+                    code.local(ALOAD, MESSAGE_LOCAL);
+                    code.op(LDC_W, this.builder.string(pattern));
+                    code.op(INVOKEVIRTUAL, this.builder.methodRef("java/lang/String", "equals", "(Ljava/lang/Object;)Z"));
+                    code.jump(IFNE, isTrue);
+                }
+                code.jump(GOTO, afterExact);
+            }
+        }
+        code.mark(afterExact);
+
+        if (!rule.hasRegex()) {
+            code.jump(GOTO, isFalse);
+            return;
+        }
+        // A null message throws NullPointerException from the rule as the interpreter does, even if the regular
+        // expressions are all simplified into exact patterns.
+        this.loadField(code, rule);
+        code.local(ALOAD, MESSAGE_LOCAL);
+        code.op(INVOKEVIRTUAL, this.builder.methodRef(internalName(MessageMatchesEitherOfRule.class), "matchesExceptExact", "(Ljava/lang/String;)Z"));
+        code.jump(IFNE, isTrue);
+        code.jump(GOTO, isFalse);
+    }
+
+    private void generateLoadMessage(final ClassFileBuilder.Code code) {
+        final int loaded = code.newLabel();
+        code.local(ILOAD, MESSAGE_LOADED_LOCAL);
+        code.jump(IFNE, loaded);
+        code.local(ALOAD, EXCEPTION_LOCAL);
+        code.op(INVOKESTATIC, this.builder.methodRef(internalName(CauseChain.class), "messageOf", "(Ljava/lang/Throwable;)Ljava/lang/String;"));
+        code.local(ASTORE, MESSAGE_LOCAL);
+        code.op(ICONST_1);
+        code.local(ISTORE, MESSAGE_LOADED_LOCAL);
+        code.mark(loaded);
+    }
+
+    /**
+     * Generates a predicate whose result is memoized in a local variable, and jumps to {@code next} if it does not match.
+     */
+    private void generateMemoized(final ClassFileBuilder.Code code, final int slot, final int next, final Predicate predicate) {
+        final int local = FIRST_SLOT_LOCAL + slot;
+        final int pass = code.newLabel();
+        final int isTrue = code.newLabel();
+        final int isFalse = code.newLabel();
+
+        code.local(ILOAD, local);
+        code.jump(IFLT, next);
+        code.local(ILOAD, local);
+        code.jump(IFGT, pass);
+
+        predicate.generate(isTrue, isFalse);
+
+        code.mark(isTrue);
+        code.op(ICONST_1);
+        code.local(ISTORE, local);
+        code.jump(GOTO, pass);
+        code.mark(isFalse);
+        code.op(ICONST_M1);
+        code.local(ISTORE, local);
+        code.jump(GOTO, next);
+        code.mark(pass);
+    }
+
+    private void loadField(final ClassFileBuilder.Code code, final Object constant) {
+        Integer index = this.fieldIndices.get(constant);
+        if (index == null) {
+            index = this.constants.size();
+            this.constants.add(constant);
+            this.fieldDescriptors.add("L" + internalName(constant.getClass()) + ";");
+            this.fieldIndices.put(constant, index);
+        }
+        code.local(ALOAD, 0);
+        code.op(GETFIELD, this.builder.fieldRef(this.className, fieldName(index), this.fieldDescriptors.get(index)));
+    }
+
+    private static String fieldName(final int index) {
+        return "c" + index;
+    }
+
+    private static String chunkName(final int index) {
+        return "match" + index;
+    }
+
+    private static String internalName(final Class<?> clazz) {
+        return clazz.getName().replace('.', '/');
+    }
+
+    @FunctionalInterface
+    private interface Predicate {
+        void generate(int isTrue, int isFalse);
+    }
+
+    private static final String BASE_CLASS = internalName(CompiledMatcher.class);
+    private static final String CLASS_NAME_PREFIX = BASE_CLASS + "$Generated";
+
+    private static final String MATCH_DESCRIPTOR = "(Ljava/lang/Throwable;)I";
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    // Rules are split into methods when a method exceeds this length, which is below HotSpot's HugeMethodLimit, 8000.
+    private static final int CHUNK_LENGTH = 6000;
+
+    private static final int EXCEPTION_LOCAL = 1;
+    private static final int CLASS_LOCAL = 2;
+    private static final int MESSAGE_LOCAL = 3;
+    private static final int MESSAGE_LOADED_LOCAL = 4;
+    private static final int FIRST_SLOT_LOCAL = 5;
+
+    private final String className;
+    private final ClassFileBuilder builder;
+
+    // Objects referred from the generated code, stored in fields |c0|, |c1|, ... in the same order.
+    private final ArrayList<Object> constants;
+    private final ArrayList<String> fieldDescriptors;
+    private final IdentityHashMap<Object, Integer> fieldIndices;
+
+    private final Map<MessageRule, Integer> messageSlots;
+    private final Map<CauseRule, Integer> causeSlots;
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.jigue.sortex;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A message rule that matches if the message contains either of literal strings.
+ *
+ * <p>The literals are searched at once by {@link AhoCorasick} when the rule is evaluated alone.
+ */
+final class MessageContainsRule extends MessageLiteralRule {
+    private MessageContainsRule(final List<String> literals, final RuleContext context) {
+        super(literals);
+        this.searcher = context.ahoCorasick(this.literals());
+    }
+
+    static MessageContainsRule of(final String... literals) {
+        return new MessageContainsRule(Arrays.asList(literals), RuleContext.eager());
+    }
+
+    static MessageContainsRule from(final Object literalsObject, final RuleContext context) {
+        return new MessageContainsRule(literalsFrom(literalsObject, KEY), context);
+    }
+
+    @Override
+    boolean matchesMessage(final String message) {
+        return message != null && this.searcher.containsAny(message);
+    }
+
+    @Override
+    boolean matchesLiteral(final String message, final String literal) {
+        return message.contains(literal);
+    }
+
+    @Override
+    String key() {
+        return KEY;
+    }
+
+    @Override
+    int cost() {
+        return SCAN_COST;
+    }
+
+    @Override
+    boolean isExclusiveWith(final MessageRule other) {
+        return this.isExclusiveWithExactMessagesOf(other);
+    }
+
+    static final String KEY = "message_contains";
+
+    private final AhoCorasick searcher;
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.jigue.sortex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A message rule that matches if the message has either of literal strings at a certain place, without regular expressions.
+ *
+ * <p>It is for a part of a message that is written in a regular expression only to be a literal, such as
+ * {@code /Connection reset.*}{@code /}. It is plain string comparisons. A {@code null} message never matches, which is
+ * unlike regular expressions.
+ *
+ * <p>Literal message rules in candidates of a {@link java.lang.Class} are resolved by one scan of the message together
+ * in {@link MessageLiteralScanner}. The rule itself is used where it is evaluated alone, such as in cause rules.
+ */
+abstract class MessageLiteralRule extends MessageRule {
+    MessageLiteralRule(final List<String> literals) {
+        this.literals = Collections.unmodifiableList(new ArrayList<>(literals));
+        this.literalsArray = literals.toArray(new String[0]);
+    }
+
+    static List<String> literalsFrom(final Object literalsObject, final String key) {
+        if (literalsObject == null) {
+            throw new NullPointerException("Value of \"" + key + "\" is null.");
+        }
+
+        final ArrayList<String> literals = new ArrayList<>();
+        if (literalsObject instanceof String) {
+            literals.add((String) literalsObject);
+        } else if (literalsObject instanceof List) {
+            for (final Object literalObject : (List) literalsObject) {
+                if (literalObject == null || !(literalObject instanceof String)) {
+                    throw new ClassCastException("Value of \"" + key + "\" does not consist of strings.");
+                }
+                literals.add((String) literalObject);
+            }
+        } else {
+            throw new ClassCastException("Value of \"" + key + "\" is neither a string nor a list/array/sequence.");
+        }
+        return literals;
+    }
+
+    @Override
+    boolean matches(final Throwable exception) {
+        return this.matchesMessage(CauseChain.messageOf(exception));
+    }
+
+    @Override
+    boolean matchesMessage(final String message) {
+        if (message == null) {
+            return false;
+        }
+        for (int i = 0; i < this.literalsArray.length; i++) {
+            if (this.matchesLiteral(message, this.literalsArray[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    abstract boolean matchesLiteral(String message, String literal);
+
+    abstract String key();
+
+    @Override
+    boolean throwsForNullMessage() {
+        return false;
+    }
+
+    @Override
+    int cost() {
+        return EXACT_COST;
+    }
+
+    /**
+     * Checks if none of the exact messages of the other message rule can match this message rule.
+     */
+    boolean isExclusiveWithExactMessagesOf(final MessageRule otherRule) {
+        if (!(otherRule instanceof MessageMatchesEitherOfRule)) {
+            return false;
+        }
+        final MessageMatchesEitherOfRule other = (MessageMatchesEitherOfRule) otherRule;
+        if (!other.isExact()) {
+            return false;
+        }
+        for (final String exact : other.exactPatterns()) {
+            if (this.matchesMessage(exact)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    List<String> literals() {
+        return this.literals;
+    }
+
+    @Override
+    Map<String, Object> toMap() {
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put(this.key(), this.literals);
+        return Collections.unmodifiableMap(map);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.getClass(), this.literals);
+    }
+
+    @Override
+    public boolean equals(final Object otherObject) {
+        if (this == otherObject) {
+            return true;
+        }
+        if (otherObject == null || otherObject.getClass() != this.getClass()) {
+            return false;
+        }
+        final MessageLiteralRule other = (MessageLiteralRule) otherObject;
+        return Objects.equals(this.literals, other.literals);
+    }
+
+    @Override
+    public String toString() {
+        return this.toMap().toString();
+    }
+
+    private final List<String> literals;
+    private final String[] literalsArray;
+}
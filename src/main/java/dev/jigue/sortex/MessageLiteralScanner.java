@@ -0,0 +1,140 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.jigue.sortex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves many literal message rules by one scan of a message.
+ *
+ * <p>The literals of {@code message_starts_with} rules are in one trie walked from the head of the message, the literals
+ * of {@code message_ends_with} rules are reversed in one trie walked from the tail, and the literals of
+ * {@code message_contains} rules are in one {@link AhoCorasick} automaton scanned through the message. Each literal
+ * reports the bit of its rule, and the bits of all the matched rules are collected at once without allocating.
+ */
+final class MessageLiteralScanner {
+    private MessageLiteralScanner(final AhoCorasick prefixes, final AhoCorasick suffixes, final AhoCorasick substrings, final long bits) {
+        this.prefixes = prefixes;
+        this.suffixes = suffixes;
+        this.substrings = substrings;
+        this.bits = bits;
+    }
+
+    /**
+     * Builds a scanner for literal message rules, in which the rule at index {@code i} is reported as the bit {@code 1L << i}.
+     *
+     * @param messageRules  message rules, whose literal rules only in the first 64 are resolved by the scanner
+     * @return the scanner, or {@code null} if no literal rule is resolved by the scanner
+     */
+    static MessageLiteralScanner of(final MessageRule[] messageRules) {
+        final Literals prefixes = new Literals();
+        final Literals suffixes = new Literals();
+        final Literals substrings = new Literals();
+        long bits = 0L;
+        for (int i = 0; i < messageRules.length && i < Long.SIZE; i++) {
+            final MessageRule rule = messageRules[i];
+            final long bit = 1L << i;
+            if (rule instanceof MessageStartsWithRule) {
+                prefixes.add(((MessageStartsWithRule) rule).literals(), bit, false);
+            } else if (rule instanceof MessageEndsWithRule) {
+                suffixes.add(((MessageEndsWithRule) rule).literals(), bit, true);
+            } else if (rule instanceof MessageContainsRule) {
+                substrings.add(((MessageContainsRule) rule).literals(), bit, false);
+            } else {
+                continue;
+            }
+            bits |= bit;
+        }
+        if (bits == 0L) {
+            return null;
+        }
+        return new MessageLiteralScanner(prefixes.build(), suffixes.build(), substrings.build(), bits);
+    }
+
+    /**
+     * Returns the bits of the rules resolved by this scanner.
+     */
+    long bits() {
+        return this.bits;
+    }
+
+    /**
+     * Scans the message, and returns the bits of the matched rules. A {@code null} message matches no rule.
+     */
+    long scan(final String message) {
+        if (message == null) {
+            return 0L;
+        }
+        long matched = 0L;
+        if (this.prefixes != null) {
+            matched |= this.prefixes.collectPrefixes(message);
+        }
+        if (this.suffixes != null) {
+            matched |= this.suffixes.collectReversedPrefixes(message);
+        }
+        if (this.substrings != null) {
+            matched |= this.substrings.collect(message);
+        }
+        return matched;
+    }
+
+    private static final class Literals {
+        Literals() {
+            this.literals = new ArrayList<>();
+            this.masks = new ArrayList<>();
+        }
+
+        void add(final List<String> literals, final long bit, final boolean isReversed) {
+            for (final String literal : literals) {
+                this.literals.add(isReversed ? reverse(literal) : literal);
+                this.masks.add(bit);
+            }
+        }
+
+        /**
+         * Reverses a string char by char, not as {@link java.lang.StringBuilder#reverse()} keeping surrogate pairs, to be walked from the tail.
+         */
+        private static String reverse(final String literal) {
+            final char[] reversed = new char[literal.length()];
+            for (int i = 0; i < reversed.length; i++) {
+                reversed[i] = literal.charAt(reversed.length - 1 - i);
+            }
+            return new String(reversed);
+        }
+
+        AhoCorasick build() {
+            if (this.literals.isEmpty()) {
+                return null;
+            }
+            final long[] masks = new long[this.masks.size()];
+            for (int i = 0; i < masks.length; i++) {
+                masks[i] = this.masks.get(i);
+            }
+            return AhoCorasick.of(this.literals, masks);
+        }
+
+        private final ArrayList<String> literals;
+        private final ArrayList<Long> masks;
+    }
+
+    private final AhoCorasick prefixes;  // Nullable
+    private final AhoCorasick suffixes;  // Nullable
+    private final AhoCorasick substrings;  // Nullable
+    private final long bits;
+}
@@ -25,35 +25,54 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 final class MessageMatchesEitherOfRule extends MessageRule {
-    private MessageMatchesEitherOfRule(final List<String> patterns) {
+    private MessageMatchesEitherOfRule(final List<String> patterns, final RuleContext context) {
         this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
 
-        final ArrayList<Pattern> regexPatterns = new ArrayList<>();
+        final ArrayList<String> regexPatterns = new ArrayList<>();
         final LinkedHashSet<String> exactPatterns = new LinkedHashSet<>();
+        final LinkedHashSet<String> prefixes = new LinkedHashSet<>();
+        final LinkedHashSet<String> suffixes = new LinkedHashSet<>();
+        boolean hasRegex = false;
         for (final String pattern : patterns) {
             final int length = pattern.length();
             if (length >= 2 && pattern.startsWith("/") && pattern.endsWith("/")) {
-                regexPatterns.add(Pattern.compile(pattern.substring(1, length - 1)));
+                final String regex = pattern.substring(1, length - 1);
+                hasRegex = true;
+                if (!context.isValidated(regex)) {  // Not validated yet when the tables were recorded.
+                    context.compile(regex);  // Compiled to report a broken regular expression even if it is simplified.
+                }
+                final RegexSimplifier.Simplified simplified = context.simplify(regex);
+                if (simplified == null) {
+                    regexPatterns.add(regex);
+                } else if (simplified.kind() == RegexSimplifier.Kind.EXACT) {
+                    exactPatterns.addAll(simplified.strings());
+                } else if (simplified.kind() == RegexSimplifier.Kind.PREFIX) {
+                    prefixes.addAll(simplified.strings());
+                } else {
+                    suffixes.addAll(simplified.strings());
+                }
             } else {
                 exactPatterns.add(pattern);
             }
         }
-        this.regexPatterns = Collections.unmodifiableList(regexPatterns);
+        this.regexMatcher = MultiRegexMatcher.of(regexPatterns, context);
         this.exactPatterns = Collections.unmodifiableSet(exactPatterns);
+        this.prefixes = prefixes.toArray(new String[0]);
+        this.suffixes = suffixes.toArray(new String[0]);
+        this.hasRegex = hasRegex;
     }
 
     static MessageMatchesEitherOfRule of(final List<String> patterns) {
-        return new MessageMatchesEitherOfRule(patterns);
+        return new MessageMatchesEitherOfRule(patterns, RuleContext.eager());
     }
 
     static MessageMatchesEitherOfRule of(final String... patterns) {
         return MessageMatchesEitherOfRule.of(Arrays.asList(patterns));
     }
 
-    static MessageMatchesEitherOfRule from(final Object patternsObject) {
+    static MessageMatchesEitherOfRule from(final Object patternsObject, final RuleContext context) {
         if (patternsObject == null) {
             throw new NullPointerException("Value of \"" + KEY + "\" is null.");
         }
@@ -72,21 +91,90 @@ final class MessageMatchesEitherOfRule extends MessageRule {
             throw new ClassCastException("Value of \"" + KEY + "\" is neither a string nor a list/array/sequence.");
         }
 
-        return MessageMatchesEitherOfRule.of(patterns);
+        return new MessageMatchesEitherOfRule(patterns, context);
     }
 
     @Override
     boolean matches(final Throwable exception) {
-        final String message = exception.getMessage();
+        return this.matchesMessage(CauseChain.messageOf(exception));
+    }
+
+    @Override
+    boolean matchesMessage(final String message) {
         if (this.exactPatterns.contains(message)) {
             return true;
         }
-        for (final Pattern regexPattern : this.regexPatterns) {
-            if (regexPattern.matcher(message).matches()) {
+        return this.matchesExceptExact(message);
+    }
+
+    /**
+     * Matches the message with the prefixes, the suffixes, and the regular expressions left after simplification.
+     *
+     * <p>A {@code null} message throws {@link java.lang.NullPointerException} if the original patterns contain a regular
+     * expression, even if it has been simplified, as {@link java.util.regex.Pattern#matcher(CharSequence)} does.
+     */
+    boolean matchesExceptExact(final String message) {
+        if (message == null) {
+            if (this.hasRegex) {
+                throw new NullPointerException("Message is null for regular expressions.");
+            }
+            return false;
+        }
+        for (final String prefix : this.prefixes) {
+            if (message.startsWith(prefix) && !RegexSimplifier.containsLineTerminator(message, prefix.length(), message.length())) {
+                return true;
+            }
+        }
+        for (final String suffix : this.suffixes) {
+            if (message.endsWith(suffix) && !RegexSimplifier.containsLineTerminator(message, 0, message.length() - suffix.length())) {
                 return true;
             }
         }
-        return false;
+        return !this.regexMatcher.isEmpty() && this.regexMatcher.matches(message);
+    }
+
+    @Override
+    boolean throwsForNullMessage() {
+        return this.hasRegex;
+    }
+
+    @Override
+    int cost() {
+        final int affixCost = (this.prefixes.length + this.suffixes.length > 0) ? EXACT_COST : 0;
+        return EXACT_COST + affixCost + REGEX_COST * this.regexMatcher.countMatchers();
+    }
+
+    @Override
+    boolean isExclusiveWith(final MessageRule otherRule) {
+        if (otherRule instanceof MessageLiteralRule) {
+            return otherRule.isExclusiveWith(this);
+        }
+        if (!(otherRule instanceof MessageMatchesEitherOfRule)) {
+            return false;
+        }
+        final MessageMatchesEitherOfRule other = (MessageMatchesEitherOfRule) otherRule;
+        if (!this.isExact() || !other.isExact()) {
+            return false;
+        }
+        return Collections.disjoint(this.exactPatterns, other.exactPatterns);
+    }
+
+    Set<String> exactPatterns() {
+        return this.exactPatterns;
+    }
+
+    /**
+     * Checks if it matches only its exact patterns, including the ones expanded from regular expressions.
+     */
+    boolean isExact() {
+        return this.prefixes.length == 0 && this.suffixes.length == 0 && this.regexMatcher.isEmpty();
+    }
+
+    /**
+     * Checks if the original patterns contain a regular expression, which makes a {@code null} message throw.
+     */
+    boolean hasRegex() {
+        return this.hasRegex;
     }
 
     @Override
@@ -125,6 +213,9 @@ final class MessageMatchesEitherOfRule extends MessageRule {
 
     private final List<String> patterns;
 
-    private final List<Pattern> regexPatterns;
+    private final MultiRegexMatcher regexMatcher;
     private final Set<String> exactPatterns;
+    private final String[] prefixes;
+    private final String[] suffixes;
+    private final boolean hasRegex;
 }
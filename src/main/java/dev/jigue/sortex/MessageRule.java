@@ -16,22 +16,91 @@
 
 package dev.jigue.sortex;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 abstract class MessageRule {
     static Optional<MessageRule> from(final Map<String, Object> map) {
-        if (map.containsKey(MessageMatchesEitherOfRule.KEY)) {
-            try {
-                return Optional.of(MessageMatchesEitherOfRule.from(map.get(MessageMatchesEitherOfRule.KEY)));
-            } catch (final RuntimeException ex) {
-                throw new IllegalArgumentException("Invalid message rule: " + MessageMatchesEitherOfRule.KEY, ex);
+        return from(map, RuleContext.eager());
+    }
+
+    static Optional<MessageRule> from(final Map<String, Object> map, final RuleContext context) {
+        final ArrayList<String> specifiedMessageRules = new ArrayList<>();
+        for (final String key : KEYS) {
+            if (map.containsKey(key)) {
+                specifiedMessageRules.add(key);
+            }
+        }
+
+        if (specifiedMessageRules.isEmpty()) {
+            return Optional.empty();
+        }
+        if (specifiedMessageRules.size() > 1) {
+            throw new IllegalArgumentException(
+                    "Message rules "
+                        + specifiedMessageRules.stream().collect(Collectors.joining(", ", "[", "]"))
+                        + " cannot co-exist.");
+        }
+
+        final String key = specifiedMessageRules.get(0);
+        try {
+            switch (key) {
+                case MessageMatchesEitherOfRule.KEY:
+                    return Optional.of(MessageMatchesEitherOfRule.from(map.get(key), context));
+                case MessageStartsWithRule.KEY:
+                    return Optional.of(MessageStartsWithRule.from(map.get(key)));
+                case MessageEndsWithRule.KEY:
+                    return Optional.of(MessageEndsWithRule.from(map.get(key)));
+                case MessageContainsRule.KEY:
+                    return Optional.of(MessageContainsRule.from(map.get(key), context));
+                default:
+                    throw new IllegalStateException("Unexpected message rule: " + key);
             }
+        } catch (final RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid message rule: " + key, ex);
         }
-        return Optional.empty();
     }
 
     abstract boolean matches(Throwable messaage);
 
+    abstract boolean matchesMessage(String message);
+
+    /**
+     * Estimates the cost to evaluate this message rule for a message that does not match, relative to {@link #EXACT_COST}.
+     */
+    abstract int cost();
+
+    /**
+     * Checks if this message rule throws {@link java.lang.NullPointerException} for a {@code null} message.
+     */
+    abstract boolean throwsForNullMessage();
+
+    /**
+     * Checks if no message can match both this message rule and the other message rule.
+     *
+     * <p>It is conservative. It returns {@code false} unless it is provable.
+     */
+    abstract boolean isExclusiveWith(MessageRule other);
+
     abstract Map<String, Object> toMap();
+
+    // A hash lookup of exact messages.
+    static final int EXACT_COST = 1;
+
+    // A scan of the whole message without backtracking.
+    static final int SCAN_COST = 4;
+
+    // A regular expression run by a java.util.regex.Matcher, which is far more expensive than a hash lookup.
+    static final int REGEX_COST = 16;
+
+    private static final List<String> KEYS = Collections.unmodifiableList(Arrays.asList(
+            MessageMatchesEitherOfRule.KEY,
+            MessageStartsWithRule.KEY,
+            MessageEndsWithRule.KEY,
+            MessageContainsRule.KEY));
 }
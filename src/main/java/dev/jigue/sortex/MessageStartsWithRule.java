@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.jigue.sortex;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A message rule that matches if the message starts with either of literal strings.
+ */
+final class MessageStartsWithRule extends MessageLiteralRule {
+    private MessageStartsWithRule(final List<String> literals) {
+        super(literals);
+    }
+
+    static MessageStartsWithRule of(final String... literals) {
+        return new MessageStartsWithRule(Arrays.asList(literals));
+    }
+
+    static MessageStartsWithRule from(final Object literalsObject) {
+        return new MessageStartsWithRule(literalsFrom(literalsObject, KEY));
+    }
+
+    @Override
+    boolean matchesLiteral(final String message, final String literal) {
+        return message.startsWith(literal);
+    }
+
+    @Override
+    String key() {
+        return KEY;
+    }
+
+    @Override
+    boolean isExclusiveWith(final MessageRule other) {
+        if (other instanceof MessageStartsWithRule) {
+            // No message can start with both if no literal starts with another.
+            for (final String literal : this.literals()) {
+                for (final String otherLiteral : ((MessageStartsWithRule) other).literals()) {
+                    if (literal.startsWith(otherLiteral) || otherLiteral.startsWith(literal)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return this.isExclusiveWithExactMessagesOf(other);
+    }
+
+    static final String KEY = "message_starts_with";
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Matches a message against multiple regular expressions in one pass, as much as possible.
+ *
+ * <p>Regular expressions are combined into one alternation {@code (?:r1)|(?:r2)|...} so that only one
+ * {@link java.util.regex.Matcher} runs over the message. {@link java.util.regex.Matcher#matches()} against the alternation
+ * succeeds if and only if either of the regular expressions matches the entire message.
+ *
+ * <p>Some regular expressions cannot be combined without changing their meanings, for example, ones with back references
+ * whose group numbers would shift, with named groups that may conflict, with {@code \Q} quotations that may swallow the
+ * closing parenthesis, or with the {@code x} (comments) flag that may comment out the closing parenthesis. They are
+ * matched one by one with their own {@link java.util.regex.Pattern}s as before.
+ *
+ * <p>Before running a {@link java.util.regex.Matcher}, a message is pre-filtered with literal substrings required by the
+ * regular expressions. See {@link RegexLiterals}. If every combined regular expression requires a literal, the message is
+ * rejected without the {@link java.util.regex.Matcher} unless it contains either of them, which is searched at once by
+ * {@link AhoCorasick}. A separated regular expression is skipped in the same way if its literal is not contained.
+ */
+final class MultiRegexMatcher {
+    private MultiRegexMatcher(
+            final Pattern combined,
+            final AhoCorasick combinedPrefilter,
+            final List<Pattern> separated,
+            final List<String> separatedLiterals) {
+        this.combined = combined;
+        this.combinedPrefilter = combinedPrefilter;
+        this.separated = separated.toArray(new Pattern[0]);
+        this.separatedLiterals = separatedLiterals.toArray(new String[0]);
+    }
+
+    static MultiRegexMatcher of(final List<String> regexes) {
+        return of(regexes, RuleContext.eager());
+    }
+
+    /**
+     * Creates a matcher, compiling regular expressions through the context, which may reuse ones compiled previously.
+     */
+    static MultiRegexMatcher of(final List<String> regexes, final RuleContext context) {
+        final ArrayList<String> combinable = new ArrayList<>();
+        final ArrayList<String> combinableLiterals = new ArrayList<>();
+        final ArrayList<Pattern> separated = new ArrayList<>();
+        final ArrayList<String> separatedLiterals = new ArrayList<>();
+        for (final String regex : regexes) {
+            final Pattern pattern = context.compile(regex);  // Compiled here at first to throw for an invalid regex.
+            if (isCombinable(regex)) {
+                combinable.add(regex);
+                combinableLiterals.add(context.requiredLiteral(regex));
+            } else {
+                separated.add(pattern);
+                separatedLiterals.add(context.requiredLiteral(regex));
+            }
+        }
+
+        final AhoCorasick combinedPrefilter = combinableLiterals.contains(null) ? null : context.ahoCorasick(combinableLiterals);
+
+        if (combinable.isEmpty()) {
+            return new MultiRegexMatcher(null, null, separated, separatedLiterals);
+        }
+        if (combinable.size() == 1) {
+            return new MultiRegexMatcher(context.compile(combinable.get(0)), combinedPrefilter, separated, separatedLiterals);
+        }
+
+        final StringBuilder builder = new StringBuilder();
+        for (final String regex : combinable) {
+            if (builder.length() > 0) {
+                builder.append('|');
+            }
+            builder.append("(?:").append(regex).append(')');
+        }
+
+        final Pattern combined;
+        try {
+            combined = context.compile(builder.toString());
+        } catch (final PatternSyntaxException ex) {
+            // Not expected, but falling back to match them one by one.
+            final ArrayList<Pattern> all = new ArrayList<>();
+            final ArrayList<String> allLiterals = new ArrayList<>();
+            for (final String regex : regexes) {
+                all.add(context.compile(regex));
+                allLiterals.add(context.requiredLiteral(regex));
+            }
+            return new MultiRegexMatcher(null, null, all, allLiterals);
+        }
+        return new MultiRegexMatcher(combined, combinedPrefilter, separated, separatedLiterals);
+    }
+
+    boolean isEmpty() {
+        return this.combined == null && this.separated.length == 0;
+    }
+
+    /**
+     * Counts {@link java.util.regex.Matcher}s that may run for a message in the worst case.
+     */
+    int countMatchers() {
+        return (this.combined == null ? 0 : 1) + this.separated.length;
+    }
+
+    boolean matches(final String message) {
+        if (message == null) {
+            throw new NullPointerException();  // Consistent with java.util.regex.Pattern#matcher(null).
+        }
+        if (this.combined != null
+                && (this.combinedPrefilter == null || this.combinedPrefilter.containsAny(message))
+                && this.combined.matcher(message).matches()) {
+            return true;
+        }
+        for (int i = 0; i < this.separated.length; i++) {
+            if (this.separatedLiterals[i] != null && !message.contains(this.separatedLiterals[i])) {
+                continue;
+            }
+            if (this.separated[i].matcher(message).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks conservatively if a regular expression keeps its meaning when wrapped in {@code (?:...)} with others.
+     */
+    static boolean isCombinable(final String regex) {
+        final int length = regex.length();
+        for (int i = 0; i < length - 1; i++) {
+            final char c = regex.charAt(i);
+            final char next = regex.charAt(i + 1);
+            if (c == '\\') {
+                if (next == 'Q' || next == 'k' || ('0' <= next && next <= '9')) {
+                    return false;  // Quotation, or back reference.
+                }
+                i++;  // Skipping the escaped character.
+            } else if (c == '(' && next == '?') {
+                if (i + 2 < length && regex.charAt(i + 2) == '<') {
+                    if (i + 3 < length && regex.charAt(i + 3) != '=' && regex.charAt(i + 3) != '!') {
+                        return false;  // Named group.
+                    }
+                }
+                for (int j = i + 2; j < length; j++) {
+                    final char flag = regex.charAt(j);
+                    if (flag == 'x') {
+                        return false;  // Comments flag.
+                    }
+                    if (!(('a' <= flag && flag <= 'z') || flag == '-')) {
+                        break;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private final Pattern combined;  // Nullable
+    private final AhoCorasick combinedPrefilter;  // Nullable if either of the combined regular expressions has no literal.
+    private final Pattern[] separated;
+    private final String[] separatedLiterals;  // Each element is nullable.
+}
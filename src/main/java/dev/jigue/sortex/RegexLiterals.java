@@ -0,0 +1,232 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.ArrayList;
+
+/**
+ * Extracts a literal substring that any message matching a regular expression must contain.
+ *
+ * <p>It looks only into the top-level sequence of the regular expression, and it gives up conservatively for anything it
+ * does not understand, such as a top-level alternation, an inline flag, a quotation, or an unknown escape. Groups,
+ * character classes, and predefined character classes just split literal runs. A literal followed by a quantifier that
+ * may repeat it zero times is dropped from the run.
+ */
+final class RegexLiterals {
+    private RegexLiterals() {
+        // No instantiation.
+    }
+
+    /**
+     * Returns the longest literal substring required by the regular expression, or {@code null} if none is found.
+     */
+    static String requiredLiteral(final String regex) {
+        final ArrayList<String> runs = new ArrayList<>();
+        final StringBuilder run = new StringBuilder();
+        boolean lastIsLiteral = false;
+
+        final int length = regex.length();
+        int i = 0;
+        while (i < length) {
+            final char c = regex.charAt(i);
+            switch (c) {
+                case '\\':
+                    if (i + 1 >= length) {
+                        return null;
+                    }
+                    final char escaped = regex.charAt(i + 1);
+                    if (isAsciiLetterOrDigit(escaped)) {
+                        if (SIMPLE_ESCAPES.indexOf(escaped) < 0) {
+                            return null;
+                        }
+                        flush(runs, run);
+                        lastIsLiteral = false;
+                    } else {
+                        run.append(escaped);
+                        lastIsLiteral = true;
+                    }
+                    i += 2;
+                    break;
+                case '[':
+                    flush(runs, run);
+                    lastIsLiteral = false;
+                    i = skipCharacterClass(regex, i);
+                    if (i < 0) {
+                        return null;
+                    }
+                    break;
+                case '(':
+                    if (i + 2 < length && regex.charAt(i + 1) == '?') {
+                        final char groupType = regex.charAt(i + 2);
+                        if (isAsciiLetterOrDigit(groupType) || groupType == '-') {
+                            return null;  // Inline flags.
+                        }
+                    }
+                    flush(runs, run);
+                    lastIsLiteral = false;
+                    i = skipGroup(regex, i);
+                    if (i < 0) {
+                        return null;
+                    }
+                    break;
+                case '|':
+                case ')':
+                    return null;
+                case '.':
+                case '^':
+                case '$':
+                    flush(runs, run);
+                    lastIsLiteral = false;
+                    i++;
+                    break;
+                case '*':
+                case '?':
+                case '{':
+                    if (lastIsLiteral) {
+                        dropLastCodePoint(run);
+                    }
+                    flush(runs, run);
+                    lastIsLiteral = false;
+                    if (c == '{') {
+                        i = regex.indexOf('}', i);
+                        if (i < 0) {
+                            return null;
+                        }
+                    }
+                    i = skipQuantifierSuffix(regex, i + 1);
+                    break;
+                case '+':
+                    flush(runs, run);
+                    lastIsLiteral = false;
+                    i = skipQuantifierSuffix(regex, i + 1);
+                    break;
+                default:
+                    run.append(c);
+                    lastIsLiteral = true;
+                    i++;
+                    break;
+            }
+        }
+        flush(runs, run);
+
+        String longest = null;
+        for (final String literal : runs) {
+            if (longest == null || literal.length() > longest.length()) {
+                longest = literal;
+            }
+        }
+        return longest;
+    }
+
+    private static void flush(final ArrayList<String> runs, final StringBuilder run) {
+        if (run.length() > 0) {
+            runs.add(run.toString());
+            run.setLength(0);
+        }
+    }
+
+    private static void dropLastCodePoint(final StringBuilder run) {
+        final int length = run.length();
+        if (length >= 2 && Character.isLowSurrogate(run.charAt(length - 1)) && Character.isHighSurrogate(run.charAt(length - 2))) {
+            run.setLength(length - 2);
+        } else if (length >= 1) {
+            run.setLength(length - 1);
+        }
+    }
+
+    private static int skipQuantifierSuffix(final String regex, final int i) {
+        if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+            return i + 1;  // Reluctant or possessive.
+        }
+        return i;
+    }
+
+    /**
+     * Returns the index just after the character class starting at {@code start}, or {@code -1} if it is not closed.
+     */
+    static int skipCharacterClass(final String regex, final int start) {
+        final int length = regex.length();
+        int i = start + 1;
+        if (i < length && regex.charAt(i) == '^') {
+            i++;
+        }
+        if (i < length && regex.charAt(i) == ']') {
+            i++;  // A leading ']' is a literal.
+        }
+        int depth = 1;
+        while (i < length) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index just after the group starting at {@code start}, or {@code -1} if it is not closed.
+     */
+    static int skipGroup(final String regex, final int start) {
+        final int length = regex.length();
+        int depth = 0;
+        int i = start;
+        while (i < length) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < length && regex.charAt(i + 1) == 'Q') {
+                    return -1;
+                }
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                i = skipCharacterClass(regex, i);
+                if (i < 0) {
+                    return -1;
+                }
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static boolean isAsciiLetterOrDigit(final char c) {
+        return ('a' <= c && c <= 'z') || ('A' <= c && c <= 'Z') || ('0' <= c && c <= '9');
+    }
+
+    // Escapes that consume no argument. They are either a predefined character class, a boundary, or a control character.
+    private static final String SIMPLE_ESCAPES = "dDsSwWbBAGZzhHvVRXntrfae";
+}
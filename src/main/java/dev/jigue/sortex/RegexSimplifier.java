@@ -0,0 +1,283 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Simplifies a regular expression whose language is small enough to be matched without {@link java.util.regex.Matcher}.
+ *
+ * <p>A regular expression that matches only a finite set of strings, such as {@code (Read|Connect) timed out}, is
+ * expanded into the strings. A finite set followed by {@code .*} is a set of prefixes, and {@code .*} followed by a finite
+ * set is a set of suffixes. Note that {@code .} does not match line terminators without the {@code s} flag, so the rest of
+ * a message after a prefix, or before a suffix, must not contain line terminators.
+ *
+ * <p>It gives up conservatively for anything it does not understand. It understands only literal characters, escaped
+ * non-alphanumeric characters, groups, alternations, and the {@code ?} quantifier.
+ */
+final class RegexSimplifier {
+    private RegexSimplifier(final String regex) {
+        this.regex = regex;
+        this.index = 0;
+    }
+
+    enum Kind {
+        EXACT,
+        PREFIX,
+        SUFFIX;
+    }
+
+    static final class Simplified {
+        private Simplified(final Kind kind, final Set<String> strings) {
+            this.kind = kind;
+            this.strings = Collections.unmodifiableSet(strings);
+        }
+
+        /**
+         * Restores a simplification, for example, precomputed in {@link RuleTables}.
+         */
+        static Simplified of(final Kind kind, final Set<String> strings) {
+            return new Simplified(kind, new LinkedHashSet<>(strings));
+        }
+
+        Kind kind() {
+            return this.kind;
+        }
+
+        Set<String> strings() {
+            return this.strings;
+        }
+
+        @Override
+        public String toString() {
+            return this.kind + this.strings.toString();
+        }
+
+        private final Kind kind;
+        private final Set<String> strings;
+    }
+
+    /**
+     * Simplifies the regular expression.
+     *
+     * @return the simplified regular expression, or {@code null} if it cannot be simplified
+     */
+    static Simplified simplify(final String regex) {
+        final Set<String> exact = expand(regex, true);
+        if (exact != null) {
+            return new Simplified(Kind.EXACT, exact);
+        }
+
+        if (regex.endsWith(".*") && !isEscaped(regex, regex.length() - 2)) {
+            final Set<String> prefixes = expand(regex.substring(0, regex.length() - 2), false);
+            if (prefixes != null) {
+                return new Simplified(Kind.PREFIX, prefixes);
+            }
+        }
+        if (regex.startsWith(".*")) {
+            final Set<String> suffixes = expand(regex.substring(2), false);
+            if (suffixes != null) {
+                return new Simplified(Kind.SUFFIX, suffixes);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the string contains a line terminator in the range, which {@code .} does not match.
+     */
+    static boolean containsLineTerminator(final String string, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            switch (string.charAt(i)) {
+                case '\n':
+                case '\r':
+                case '\u0085':
+                case '\u2028':
+                case '\u2029':
+                    return true;
+                default:
+                    break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Expands the regular expression into the finite set of strings it matches.
+     *
+     * @param allowsAlternation  whether to accept a top-level alternation, which must not be concatenated with {@code .*}
+     * @return the strings, or {@code null} if it cannot be expanded
+     */
+    private static Set<String> expand(final String regex, final boolean allowsAlternation) {
+        final RegexSimplifier simplifier = new RegexSimplifier(regex);
+        final Set<String> strings = simplifier.parseAlternation(allowsAlternation);
+        if (strings == null || simplifier.index != regex.length()) {
+            return null;
+        }
+        return strings;
+    }
+
+    private static boolean isEscaped(final String regex, final int position) {
+        int backslashes = 0;
+        for (int i = position - 1; i >= 0 && regex.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return backslashes % 2 != 0;
+    }
+
+    private Set<String> parseAlternation(final boolean allowsAlternation) {
+        final LinkedHashSet<String> strings = new LinkedHashSet<>();
+        while (true) {
+            final Set<String> sequence = this.parseSequence();
+            if (sequence == null) {
+                return null;
+            }
+            strings.addAll(sequence);
+            if (strings.size() > MAX_STRINGS) {
+                return null;
+            }
+            if (this.index >= this.regex.length() || this.regex.charAt(this.index) != '|') {
+                return strings;
+            }
+            if (!allowsAlternation) {
+                return null;
+            }
+            this.index++;
+        }
+    }
+
+    private Set<String> parseSequence() {
+        Set<String> strings = Collections.singleton("");
+        while (this.index < this.regex.length()) {
+            final char c = this.regex.charAt(this.index);
+            if (c == '|' || c == ')') {
+                break;
+            }
+            final Set<String> atom = this.parseAtom();
+            if (atom == null) {
+                return null;
+            }
+            final Set<String> quantified = this.parseQuantifier(atom);
+            if (quantified == null) {
+                return null;
+            }
+            strings = concatenate(strings, quantified);
+            if (strings == null) {
+                return null;
+            }
+        }
+        return strings;
+    }
+
+    private Set<String> parseAtom() {
+        final int length = this.regex.length();
+        final char c = this.regex.charAt(this.index);
+        if (Character.isSurrogate(c)) {
+            return null;  // A quantifier would apply to the whole code point.
+        }
+        switch (c) {
+            case '\\':
+                if (this.index + 1 >= length) {
+                    return null;
+                }
+                final char escaped = this.regex.charAt(this.index + 1);
+                if (escaped >= 0x80 || Character.isLetterOrDigit(escaped)) {
+                    return null;
+                }
+                this.index += 2;
+                return Collections.singleton(String.valueOf(escaped));
+            case '(':
+                this.index++;
+                if (this.regex.startsWith("?:", this.index)) {
+                    this.index += 2;
+                } else if (this.index < length && this.regex.charAt(this.index) == '?') {
+                    return null;  // Inline flags, lookarounds, named groups, and so on.
+                }
+                final Set<String> group = this.parseAlternation(true);
+                if (group == null || this.index >= length || this.regex.charAt(this.index) != ')') {
+                    return null;
+                }
+                this.index++;
+                return group;
+            case '.':
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+            case '}':
+            case '[':
+            case ']':
+            case '^':
+            case '$':
+                return null;
+            default:
+                this.index++;
+                return Collections.singleton(String.valueOf(c));
+        }
+    }
+
+    private Set<String> parseQuantifier(final Set<String> atom) {
+        final int length = this.regex.length();
+        if (this.index >= length) {
+            return atom;
+        }
+        final char c = this.regex.charAt(this.index);
+        if (c == '*' || c == '+' || c == '{') {
+            return null;
+        }
+        if (c != '?') {
+            return atom;
+        }
+        this.index++;
+        if (this.index < length) {
+            final char next = this.regex.charAt(this.index);
+            if (next == '+') {
+                return null;  // A possessive quantifier may give up a match that backtracking would find.
+            }
+            if (next == '?') {
+                this.index++;  // A reluctant quantifier matches the same set of strings.
+            }
+        }
+        final LinkedHashSet<String> optional = new LinkedHashSet<>(atom);
+        optional.add("");
+        return optional;
+    }
+
+    private static Set<String> concatenate(final Set<String> heads, final Set<String> tails) {
+        if (heads.size() * tails.size() > MAX_STRINGS) {
+            return null;
+        }
+        final LinkedHashSet<String> strings = new LinkedHashSet<>();
+        for (final String head : heads) {
+            for (final String tail : tails) {
+                strings.add(head + tail);
+            }
+        }
+        return strings;
+    }
+
+    /**
+     * The maximum number of strings that a regular expression is expanded into.
+     */
+    static final int MAX_STRINGS = 64;
+
+    private final String regex;
+
+    private int index;
+}
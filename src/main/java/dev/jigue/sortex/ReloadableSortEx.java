@@ -0,0 +1,246 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Holds a {@link SortEx} instance that can be replaced with new rules at runtime.
+ *
+ * <p>{@link #reload(List)} builds a new {@link SortEx} instance from a {@link java.util.Map}-based DSL representation
+ * in an {@link java.util.concurrent.Executor}, with full validation as {@link SortEx#from(List, Class)}. Then, it
+ * replaces the current instance by a single volatile write. {@link #matches(Throwable, Enum)} never blocks, and it
+ * always runs with either the previous instance or the new instance, never with a half-built one. If building fails,
+ * the current instance is kept.
+ *
+ * <blockquote><pre>{@code  final ReloadableSortEx<Target> reloadable = ReloadableSortEx.of(SortEx.from(maps, Target.class));
+ *
+ * // In a request handler.
+ * final Target sorted = reloadable.matches(exception, Target.DEFAULT);
+ *
+ * // When the rules are changed.
+ * reloadable.reload(newMaps, warmUpSamples).whenComplete((sortex, ex) -> log(sortex, ex));}</pre></blockquote>
+ */
+public final class ReloadableSortEx<E extends Enum<E>> {
+    private ReloadableSortEx(
+            final SortEx<E> initial,
+            final Function<List<Map<String, Object>>, SortEx<E>> factory,
+            final Executor executor) {
+        this.current = initial;
+        this.factory = factory;
+        this.executor = executor;
+        this.requested = 0L;
+        this.published = 0L;
+    }
+
+    /**
+     * Creates a {@link ReloadableSortEx} instance that starts with the given {@link SortEx} instance.
+     *
+     * <p>New rules are built by {@link SortEx#recompile(List)} of the current instance in
+     * {@link java.util.concurrent.ForkJoinPool#commonPool()} so that unchanged rules are reused. The result cache and the
+     * maximum cause depth of the current instance are carried over, but statistics, adaptive ordering, and a generated
+     * bytecode matcher are not.
+     *
+     * @param <E>  the {@link java.lang.Enum} class to sort {@link java.lang.Throwable} objects into
+     * @param initial  the initial {@link SortEx} instance
+     * @return the {@link ReloadableSortEx} instance
+     */
+    public static <E extends Enum<E>> ReloadableSortEx<E> of(final SortEx<E> initial) {
+        if (initial == null) {
+            throw new NullPointerException("Value of \"initial\" is null.");
+        }
+        return new ReloadableSortEx<>(initial, null, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a {@link ReloadableSortEx} instance that starts with the given {@link SortEx} instance.
+     *
+     * <p>The factory builds a new {@link SortEx} instance from a {@link java.util.Map}-based DSL representation, for
+     * example, {@code maps -> SortEx.from(maps, Target.class).withResultCache(1024)}. It runs in the executor. Note that
+     * a factory with {@link SortEx#withBytecodeMatcher()} leaks a class on every reload on Java 8 to 14, where the
+     * generated class is never unloaded.
+     *
+     * @param <E>  the {@link java.lang.Enum} class to sort {@link java.lang.Throwable} objects into
+     * @param initial  the initial {@link SortEx} instance
+     * @param factory  the function to build a new {@link SortEx} instance, which throws an exception if the DSL is invalid
+     * @param executor  the {@link java.util.concurrent.Executor} to build new {@link SortEx} instances in
+     * @return the {@link ReloadableSortEx} instance
+     */
+    public static <E extends Enum<E>> ReloadableSortEx<E> of(
+            final SortEx<E> initial,
+            final Function<List<Map<String, Object>>, SortEx<E>> factory,
+            final Executor executor) {
+        final RuntimeExceptionBuilder exceptionBuilder = new RuntimeExceptionBuilder();
+        if (initial == null) {
+            exceptionBuilder.add(new NullPointerException("Value of \"initial\" is null."));
+        }
+        if (factory == null) {
+            exceptionBuilder.add(new NullPointerException("Value of \"factory\" is null."));
+        }
+        if (executor == null) {
+            exceptionBuilder.add(new NullPointerException("Value of \"executor\" is null."));
+        }
+        if (exceptionBuilder.isPresent()) {
+            throw exceptionBuilder.get();
+        }
+        return new ReloadableSortEx<>(initial, factory, executor);
+    }
+
+    /**
+     * Returns the current {@link SortEx} instance.
+     *
+     * @return the current {@link SortEx} instance, not null
+     */
+    public SortEx<E> get() {
+        return this.current;
+    }
+
+    /**
+     * Attempts to match the given input {@link java.lang.Throwable} instance against the current {@link SortEx} instance.
+     *
+     * @param exception  an {@link java.lang.Throwable} instance to match
+     * @return an {@link java.util.Optional} describing the matched {@link java.lang.Enum} constant
+     */
+    public Optional<E> matches(final Throwable exception) {
+        return this.current.matches(exception);
+    }
+
+    /**
+     * Attempts to match the given input {@link java.lang.Throwable} instance against the current {@link SortEx} instance.
+     *
+     * @param exception  an {@link java.lang.Throwable} instance to match
+     * @param defaultTarget  an {@code enum} constant to return if the {@link java.lang.Throwable} instance did not match, nullable
+     * @return the matched {@link java.lang.Enum} constant, or {@code defaultTarget} if it did not match
+     */
+    public E matches(final Throwable exception, final E defaultTarget) {
+        return this.current.matches(exception, defaultTarget);
+    }
+
+    /**
+     * Builds a new {@link SortEx} instance from the DSL off-thread, and replaces the current instance with it.
+     *
+     * @param maps  a {@link java.util.Map}-based DSL representation
+     * @return a {@link java.util.concurrent.CompletableFuture} completed with the new {@link SortEx} instance after it
+     *     replaces the current one, or completed exceptionally if building failed
+     */
+    public CompletableFuture<SortEx<E>> reload(final List<Map<String, Object>> maps) {
+        return this.reload(maps, Collections.<Throwable>emptyList());
+    }
+
+    /**
+     * Builds a new {@link SortEx} instance from the DSL off-thread, warms it up, and replaces the current instance with it.
+     *
+     * <p>The new instance matches each of the warm-up samples repeatedly before it replaces the current instance. It
+     * prepares the per-class dispatch, and lets the JIT compiler compile the hot paths so that the first calls after the
+     * reload do not hit a latency spike. Note that the samples are counted as inputs if the new instance collects
+     * statistics, or adapts its evaluation order.
+     *
+     * <p>A sample that throws from {@link SortEx#matches(Throwable, Enum)}, for example, a {@code null} message against a
+     * regular expression, is skipped without failing the reload. If the new instance caches results, only the first
+     * match of each sample runs the matching path, and the rest just hit the cache.
+     *
+     * <p>Reloads may overlap. A reload requested earlier never replaces an instance by a reload requested later. Its
+     * {@link java.util.concurrent.CompletableFuture} is cancelled instead.
+     *
+     * @param maps  a {@link java.util.Map}-based DSL representation
+     * @param warmUpSamples  {@link java.lang.Throwable} instances to warm up the new instance with, which can be empty
+     * @return a {@link java.util.concurrent.CompletableFuture} completed with the new {@link SortEx} instance after it
+     *     replaces the current one, or completed exceptionally if building failed
+     */
+    public CompletableFuture<SortEx<E>> reload(final List<Map<String, Object>> maps, final List<? extends Throwable> warmUpSamples) {
+        final long sequence;
+        synchronized (this) {
+            sequence = ++this.requested;
+        }
+        final List<Throwable> samples = Collections.unmodifiableList(new ArrayList<Throwable>(warmUpSamples));
+
+        final CompletableFuture<SortEx<E>> future = new CompletableFuture<>();
+        try {
+            this.executor.execute(() -> {
+                try {
+                    final SortEx<E> sortex = this.factory == null ? this.current.recompile(maps) : this.factory.apply(maps);
+                    if (sortex == null) {
+                        throw new NullPointerException("The factory returned null.");
+                    }
+                    warmUp(sortex, samples);
+                    if (this.publish(sequence, sortex)) {
+                        future.complete(sortex);
+                    } else {
+                        future.cancel(false);  // Superseded by a reload requested later.
+                    }
+                } catch (final RuntimeException | Error ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (final RuntimeException ex) {
+            // For example, java.util.concurrent.RejectedExecutionException.
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    private synchronized boolean publish(final long sequence, final SortEx<E> sortex) {
+        if (sequence < this.published) {
+            return false;
+        }
+        this.published = sequence;
+        this.current = sortex;  // The single volatile write that readers see.
+        return true;
+    }
+
+    private static <E extends Enum<E>> void warmUp(final SortEx<E> sortex, final List<Throwable> samples) {
+        // A sample that throws is skipped so that it does not fail the reload, nor throw repeatedly.
+        final ArrayList<Throwable> matchable = new ArrayList<>();
+        for (final Throwable sample : samples) {
+            try {
+                sortex.matches(sample, null);
+            } catch (final RuntimeException ex) {
+                continue;
+            }
+            matchable.add(sample);
+        }
+        if (matchable.isEmpty()) {
+            return;
+        }
+        final int rounds = (WARM_UP_MATCHES + matchable.size() - 1) / matchable.size();
+        for (int round = 1; round < rounds; round++) {
+            for (final Throwable sample : matchable) {
+                sortex.matches(sample, null);
+            }
+        }
+    }
+
+    // Enough for HotSpot's C2 compiler to compile the hot paths, whose threshold is around 10000 invocations.
+    private static final int WARM_UP_MATCHES = 20000;
+
+    private volatile SortEx<E> current;
+
+    private final Function<List<Map<String, Object>>, SortEx<E>> factory;  // Nullable to recompile the current instance.
+    private final Executor executor;
+
+    // Sequences of reloads, guarded by |this|.
+    private long requested;
+    private long published;
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches results of matching by fingerprints of {@link java.lang.Throwable} instances.
+ *
+ * <p>A fingerprint consists of the {@link java.lang.Class} and the message of each {@link java.lang.Throwable} in the
+ * cause chain, which are all that exception rules can observe. {@link java.lang.Throwable} instances with the same
+ * fingerprint always match the same exception rule. The fingerprint is compared exactly, not only by its hash, so that
+ * a hash collision never returns a wrong result. A cause chain deeper than {@link #MAX_DEPTH} is not cached.
+ *
+ * <p>The cache is set-associative with {@link #WAYS} entries per set, and each set is evicted by the CLOCK algorithm,
+ * an approximation of LRU. An entry that has been hit since the hand passed it last gets a second chance. Lookups are
+ * lock-free. They do not allocate, and they write to the shared memory only to mark an entry that is not marked yet.
+ * Concurrent insertions may overwrite each other in a set, which only loses a cached result.
+ */
+final class ResultCache {
+    private ResultCache(final int sets) {
+        this.sets = sets;
+        this.entries = new AtomicReferenceArray<>(sets * WAYS);
+        this.hands = new int[sets];
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    static ResultCache of(final int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Value of \"maximumSize\" must be positive: " + maximumSize);
+        }
+        int sets = 1;
+        while (sets < (maximumSize + WAYS - 1) / WAYS && sets < (1 << 24)) {
+            sets <<= 1;
+        }
+        return new ResultCache(sets);
+    }
+
+    /**
+     * Creates an empty cache of the same size, for example, for new rules.
+     */
+    ResultCache emptyCopy() {
+        return new ResultCache(this.sets);
+    }
+
+    /**
+     * Returns the position of the exception rule cached for the fingerprint of the {@link java.lang.Throwable} instance.
+     *
+     * @return the cached position, {@code -1} if it is cached as unmatched, or {@link #MISS} if it is not cached
+     */
+    int get(final Throwable exception) {
+        final int hash = hash(exception);
+        if (hash != UNCACHEABLE) {
+            final int base = (hash & (this.sets - 1)) * WAYS;
+            for (int i = 0; i < WAYS; i++) {
+                final Entry entry = this.entries.get(base + i);
+                if (entry != null && entry.hash == hash && entry.matches(exception)) {
+                    if (!entry.referenced) {
+                        entry.referenced = true;
+                    }
+                    this.hits.increment();
+                    return entry.position;
+                }
+            }
+        }
+        this.misses.increment();
+        return MISS;
+    }
+
+    /**
+     * Caches the position of the matched exception rule, or {@code -1} for unmatched, for the {@link java.lang.Throwable} instance.
+     */
+    void put(final Throwable exception, final int position) {
+        final int hash = hash(exception);
+        if (hash == UNCACHEABLE) {
+            return;
+        }
+        final Entry newEntry = Entry.of(exception, hash, position);
+        final int set = hash & (this.sets - 1);
+        final int base = set * WAYS;
+
+        for (int i = 0; i < WAYS; i++) {
+            final Entry entry = this.entries.get(base + i);
+            if (entry == null) {
+                if (this.entries.compareAndSet(base + i, null, newEntry)) {
+                    return;
+                }
+            } else if (entry.hash == hash && entry.matches(exception)) {
+                return;  // Cached by another thread.
+            }
+        }
+
+        // CLOCK: clears marks until finding an unmarked entry, which is found at most in the second round.
+        int hand = this.hands[set];  // Races are harmless. It is only a hint where to start.
+        for (int i = 0; i < WAYS * 2; i++) {
+            final int way = hand;
+            hand = (hand + 1) % WAYS;
+            final Entry entry = this.entries.get(base + way);
+            if (entry != null && entry.referenced) {
+                entry.referenced = false;
+                continue;
+            }
+            this.entries.set(base + way, newEntry);
+            this.evictions.increment();
+            break;
+        }
+        this.hands[set] = hand;
+    }
+
+    SortExCacheStatistics snapshot() {
+        int size = 0;
+        for (int i = 0; i < this.entries.length(); i++) {
+            if (this.entries.get(i) != null) {
+                size++;
+            }
+        }
+        return new SortExCacheStatistics(this.hits.sum(), this.misses.sum(), this.evictions.sum(), size, this.entries.length());
+    }
+
+    /**
+     * Computes the hash of the fingerprint of a {@link java.lang.Throwable} instance without allocating it.
+     *
+     * @return the hash, or {@link #UNCACHEABLE} if the cause chain is too deep
+     */
+    static int hash(final Throwable exception) {
+        int hash = 1;
+        Throwable current = exception;
+        for (int depth = 0; current != null; depth++) {
+            if (depth >= MAX_DEPTH) {
+                return UNCACHEABLE;
+            }
+            hash = 31 * hash + System.identityHashCode(current.getClass());
+            hash = 31 * hash + Objects.hashCode(CauseChain.messageOf(current));
+            current = current.getCause();
+        }
+        hash ^= (hash >>> 16);  // Spreading higher bits into the bits to choose a set.
+        return hash == UNCACHEABLE ? 0 : hash;
+    }
+
+    private static final class Entry {
+        private Entry(final Class<?>[] classes, final String[] messages, final int hash, final int position) {
+            this.classes = classes;
+            this.messages = messages;
+            this.hash = hash;
+            this.position = position;
+            this.referenced = false;
+        }
+
+        static Entry of(final Throwable exception, final int hash, final int position) {
+            int depth = 0;
+            for (Throwable current = exception; current != null && depth < MAX_DEPTH; current = current.getCause()) {
+                depth++;
+            }
+            final Class<?>[] classes = new Class<?>[depth];
+            final String[] messages = new String[depth];
+            Throwable current = exception;
+            for (int i = 0; i < depth; i++) {
+                classes[i] = current.getClass();
+                messages[i] = CauseChain.messageOf(current);
+                current = current.getCause();
+            }
+            return new Entry(classes, messages, hash, position);
+        }
+
+        boolean matches(final Throwable exception) {
+            Throwable current = exception;
+            for (int i = 0; i < this.classes.length; i++) {
+                if (current == null || current.getClass() != this.classes[i] || !Objects.equals(CauseChain.messageOf(current), this.messages[i])) {
+                    return false;
+                }
+                current = current.getCause();
+            }
+            return current == null;
+        }
+
+        private final Class<?>[] classes;
+        private final String[] messages;  // Each element is nullable.
+        private final int hash;
+        private final int position;
+
+        // Marked when hit, and cleared when the CLOCK hand passes. Lost updates only affect which entry is evicted.
+        private volatile boolean referenced;
+    }
+
+    static final int MISS = Integer.MIN_VALUE;
+
+    // The maximum number of Throwable instances in a cause chain to cache.
+    static final int MAX_DEPTH = 16;
+
+    private static final int WAYS = 8;
+    private static final int UNCACHEABLE = Integer.MIN_VALUE;
+
+    private final int sets;  // A power of two.
+    private final AtomicReferenceArray<Entry> entries;
+    private final int[] hands;  // The CLOCK hand of each set.
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Caches what is compiled while building exception rules so that a next build can reuse them.
+ *
+ * <p>It caches exception rules by their DSL representation, {@link java.util.regex.Pattern}s by their regular expressions,
+ * classes by their names, and validated {@code enum} constants by their names. An exception rule is reused only when its
+ * DSL representation is equal to the previous one, which builds an equal exception rule.
+ *
+ * <p>Caches are generational. A next generation looks up the previous generation on its miss, and it keeps only what is
+ * looked up while building the next rules. It does not refer to the generation before the previous one so that removed
+ * rules are released after a few generations.
+ */
+final class RuleCache {
+    private RuleCache(final RuleCache previous) {
+        this.rules = new ConcurrentHashMap<>();
+        this.patterns = new ConcurrentHashMap<>();
+        this.classes = new ConcurrentHashMap<>();
+        this.enumConstants = new ConcurrentHashMap<>();
+        if (previous == null) {
+            this.previousRules = Collections.emptyMap();
+            this.previousPatterns = Collections.emptyMap();
+            this.previousClasses = Collections.emptyMap();
+            this.previousEnumConstants = Collections.emptyMap();
+        } else {
+            this.previousRules = previous.rules;
+            this.previousPatterns = previous.patterns;
+            this.previousClasses = previous.classes;
+            this.previousEnumConstants = previous.enumConstants;
+        }
+    }
+
+    static RuleCache empty() {
+        return new RuleCache(null);
+    }
+
+    /**
+     * Creates a cache that contains the exception rules keyed by their DSL representations from {@link ExceptionRule#toMap()}.
+     *
+     * <p>It is built only when rules are recompiled, not to retain DSL representations in every {@link SortEx} instance.
+     */
+    static RuleCache of(final Collection<ExceptionRule> rules) {
+        final RuleCache cache = new RuleCache(null);
+        for (final ExceptionRule rule : rules) {
+            cache.rules.putIfAbsent(keyOf(rule.toMap()), rule);
+        }
+        return cache;
+    }
+
+    /**
+     * Creates a next generation that looks up this generation on its miss.
+     */
+    RuleCache next() {
+        return new RuleCache(this);
+    }
+
+    /**
+     * Returns an exception rule cached for the DSL representation, or builds and caches a new one.
+     *
+     * <p>The DSL representation, except for {@code sorted_into}, is copied deeply into the key so that later modifications
+     * on it do not break the cache.
+     */
+    ExceptionRule rule(final Map<String, Object> map, final Supplier<ExceptionRule> builder) {
+        return lookUp(this.rules, this.previousRules, keyOf(map), builder);
+    }
+
+    Pattern pattern(final String regex) {
+        return lookUp(this.patterns, this.previousPatterns, regex, () -> Pattern.compile(regex));
+    }
+
+    Class<?> forName(final String className) throws ClassNotFoundException {
+        final Class<?> cached = this.classes.get(className);
+        if (cached != null) {
+            return cached;
+        }
+        final Class<?> previous = this.previousClasses.get(className);
+        final Class<?> clazz = previous != null ? previous : Class.forName(className);
+        this.classes.put(className, clazz);  // Only a resolved class is cached. A missing class may be added later.
+        return clazz;
+    }
+
+    /**
+     * Returns {@code enum} constants by their names cached for the {@link java.lang.Enum} class, or validates and caches them.
+     */
+    Map<String, ? extends Enum<?>> enumConstants(final Class<?> enumClass, final Supplier<Map<String, ? extends Enum<?>>> validator) {
+        return lookUp(this.enumConstants, this.previousEnumConstants, enumClass, validator);
+    }
+
+    private static <K, V> V lookUp(final Map<K, V> current, final Map<K, V> previous, final K key, final Supplier<V> builder) {
+        final V cached = current.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final V fromPrevious = previous.get(key);
+        final V value = fromPrevious != null ? fromPrevious : builder.get();
+        if (value == null) {
+            return null;
+        }
+        final V raced = current.putIfAbsent(key, value);
+        return raced != null ? raced : value;
+    }
+
+    private static Object keyOf(final Map<String, Object> map) {
+        final LinkedHashMap<Object, Object> key = new LinkedHashMap<>();
+        for (final Map.Entry<String, Object> entry : map.entrySet()) {
+            if (!"sorted_into".equals(entry.getKey())) {  // Not a part of the exception rule.
+                key.put(entry.getKey(), freeze(entry.getValue()));
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Copies maps and lists in the DSL representation deeply into unmodifiable ones.
+     */
+    private static Object freeze(final Object object) {
+        if (object instanceof Map) {
+            final LinkedHashMap<Object, Object> map = new LinkedHashMap<>();
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+                map.put(entry.getKey(), freeze(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(map);
+        }
+        if (object instanceof List) {
+            final ArrayList<Object> list = new ArrayList<>();
+            for (final Object element : (List<?>) object) {
+                list.add(freeze(element));
+            }
+            return Collections.unmodifiableList(list);
+        }
+        return object;
+    }
+
+    private final ConcurrentHashMap<Object, ExceptionRule> rules;
+    private final ConcurrentHashMap<String, Pattern> patterns;
+    private final ConcurrentHashMap<String, Class<?>> classes;
+    private final ConcurrentHashMap<Class<?>, Map<String, ? extends Enum<?>>> enumConstants;
+
+    // Maps of the previous generation, not the previous generation itself, not to chain all the generations.
+    private final Map<Object, ExceptionRule> previousRules;
+    private final Map<String, Pattern> previousPatterns;
+    private final Map<String, Class<?>> previousClasses;
+    private final Map<Class<?>, Map<String, ? extends Enum<?>>> previousEnumConstants;
+}
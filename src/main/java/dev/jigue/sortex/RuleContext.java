@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Options shared while building exception rules from a {@link java.util.Map}-based DSL.
+ */
+final class RuleContext {
+    private RuleContext(final ClassLoader lazyClassLoader, final RuleCache cache, final RuleTables tables) {
+        this.lazyClassLoader = lazyClassLoader;
+        this.cache = cache;
+        this.tables = tables;
+    }
+
+    /**
+     * Returns the default context that resolves classes eagerly by {@link java.lang.Class#forName(String)}.
+     */
+    static RuleContext eager() {
+        return EAGER;
+    }
+
+    /**
+     * Returns a context that resolves classes lazily through the {@link java.lang.ClassLoader} on their first use.
+     */
+    static RuleContext lazy(final ClassLoader classLoader) {
+        if (classLoader == null) {
+            throw new NullPointerException("Value of \"classLoader\" is null.");
+        }
+        return new RuleContext(classLoader, null, null);
+    }
+
+    /**
+     * Returns a context with the same options that compiles through the cache.
+     */
+    RuleContext withCache(final RuleCache cache) {
+        return new RuleContext(this.lazyClassLoader, cache, this.tables);
+    }
+
+    /**
+     * Returns a context with the same options that looks up precomputed tables.
+     */
+    RuleContext withTables(final RuleTables tables) {
+        return new RuleContext(this.lazyClassLoader, this.cache, tables);
+    }
+
+    boolean isLazy() {
+        return this.lazyClassLoader != null;
+    }
+
+    ClassLoader lazyClassLoader() {
+        return this.lazyClassLoader;
+    }
+
+    RuleCache cache() {
+        return this.cache;
+    }
+
+    RuleTables tables() {
+        return this.tables;
+    }
+
+    /**
+     * Returns an exception rule cached for the DSL representation, or builds a new one.
+     */
+    ExceptionRule rule(final Map<String, Object> map, final Supplier<ExceptionRule> builder) {
+        if (this.cache == null) {
+            return builder.get();
+        }
+        return this.cache.rule(map, builder);
+    }
+
+    /**
+     * Returns {@code enum} constants by their names cached for the {@link java.lang.Enum} class, or validates them.
+     */
+    Map<String, ? extends Enum<?>> enumConstants(final Class<?> enumClass, final Supplier<Map<String, ? extends Enum<?>>> validator) {
+        if (this.cache == null) {
+            return validator.get();
+        }
+        return this.cache.enumConstants(enumClass, validator);
+    }
+
+    Pattern compile(final String regex) {
+        if (this.cache == null) {
+            return Pattern.compile(regex);
+        }
+        return this.cache.pattern(regex);
+    }
+
+    /**
+     * Checks if the regular expression has been validated, with its simplification precomputed in the tables.
+     */
+    boolean isValidated(final String regex) {
+        return this.tables != null && this.tables.hasSimplification(regex);
+    }
+
+    RegexSimplifier.Simplified simplify(final String regex) {
+        if (this.tables == null) {
+            return RegexSimplifier.simplify(regex);
+        }
+        return this.tables.simplify(regex);
+    }
+
+    String requiredLiteral(final String regex) {
+        if (this.tables == null) {
+            return RegexLiterals.requiredLiteral(regex);
+        }
+        return this.tables.requiredLiteral(regex);
+    }
+
+    AhoCorasick ahoCorasick(final List<String> literals) {
+        if (this.tables == null) {
+            return AhoCorasick.of(literals);
+        }
+        return this.tables.ahoCorasick(literals);
+    }
+
+    Class<?> forName(final String className) throws ClassNotFoundException {
+        if (this.cache == null) {
+            return Class.forName(className);
+        }
+        return this.cache.forName(className);
+    }
+
+    private static final RuleContext EAGER = new RuleContext(null, null, null);
+
+    private final ClassLoader lazyClassLoader;  // Nullable if it resolves classes eagerly.
+    private final RuleCache cache;  // Nullable if it does not cache.
+    private final RuleTables tables;  // Nullable if nothing is precomputed.
+}
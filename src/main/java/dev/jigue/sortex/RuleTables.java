@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.jigue.sortex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Tables precomputed from exception rules, which do not depend on the runtime, such as loaded classes.
+ *
+ * <p>They are simplifications of regular expressions by {@link RegexSimplifier}, literals required by regular expressions
+ * from {@link RegexLiterals}, {@link AhoCorasick} automata by their literals, and the positions of exact messages for an
+ * {@link ExactMessageIndex}. {@link SortExBinaryFormat} writes them together with the rules, and reads them back so that
+ * loading the rules does not compute them again. A regular expression whose simplification is in the tables is not
+ * compiled only to be validated because it was validated when the tables were recorded.
+ *
+ * <p>A miss is computed, and recorded. Tables are used only while building one set of exception rules, and they are not
+ * thread-safe. The positions of exact messages are valid only for the exception rules in the same order.
+ */
+final class RuleTables {
+    private RuleTables(
+            final Map<String, Optional<RegexSimplifier.Simplified>> simplifications,
+            final Map<String, Optional<String>> requiredLiterals,
+            final Map<List<String>, AhoCorasick> automata,
+            final Map<String, int[]> exactMessages) {
+        this.simplifications = simplifications;
+        this.requiredLiterals = requiredLiterals;
+        this.automata = automata;
+        this.exactMessages = exactMessages;
+    }
+
+    /**
+     * Creates empty tables that record what is computed while building exception rules.
+     */
+    static RuleTables recording() {
+        return new RuleTables(new LinkedHashMap<>(), new LinkedHashMap<>(), new LinkedHashMap<>(), null);
+    }
+
+    /**
+     * Creates tables from what is precomputed. The maps, except for the positions of exact messages, are modifiable to
+     * record misses into them.
+     *
+     * @param simplifications  simplifications by their regular expressions, empty for ones that cannot be simplified
+     * @param requiredLiterals  required literals by their regular expressions, empty for ones that require no literal
+     * @param automata  automata by their literals, each built as {@link AhoCorasick#of(List)}
+     * @param exactMessages  positions of exception rules by their exact messages, or {@code null} not to precompute them
+     */
+    static RuleTables of(
+            final Map<String, Optional<RegexSimplifier.Simplified>> simplifications,
+            final Map<String, Optional<String>> requiredLiterals,
+            final Map<List<String>, AhoCorasick> automata,
+            final Map<String, int[]> exactMessages) {
+        return new RuleTables(
+                simplifications, requiredLiterals, automata, exactMessages == null ? null : Collections.unmodifiableMap(exactMessages));
+    }
+
+    /**
+     * Checks if the simplification of the regular expression is in the tables, which means it has been validated.
+     */
+    boolean hasSimplification(final String regex) {
+        return this.simplifications.containsKey(regex);
+    }
+
+    /**
+     * Returns the simplification of the regular expression as {@link RegexSimplifier#simplify(String)}.
+     *
+     * @return the simplification, or {@code null} if it cannot be simplified
+     */
+    RegexSimplifier.Simplified simplify(final String regex) {
+        return this.simplifications.computeIfAbsent(regex, k -> Optional.ofNullable(RegexSimplifier.simplify(k))).orElse(null);
+    }
+
+    /**
+     * Returns the literal required by the regular expression as {@link RegexLiterals#requiredLiteral(String)}.
+     *
+     * @return the literal, or {@code null} if no literal is required
+     */
+    String requiredLiteral(final String regex) {
+        return this.requiredLiterals.computeIfAbsent(regex, k -> Optional.ofNullable(RegexLiterals.requiredLiteral(k))).orElse(null);
+    }
+
+    /**
+     * Returns the automaton of the literals as {@link AhoCorasick#of(List)}.
+     */
+    AhoCorasick ahoCorasick(final List<String> literals) {
+        final AhoCorasick found = this.automata.get(literals);
+        if (found != null) {
+            return found;
+        }
+        final AhoCorasick built = AhoCorasick.of(literals);
+        this.automata.put(Collections.unmodifiableList(new ArrayList<>(literals)), built);
+        return built;
+    }
+
+    Map<String, Optional<RegexSimplifier.Simplified>> simplifications() {
+        return Collections.unmodifiableMap(this.simplifications);
+    }
+
+    Map<String, Optional<String>> requiredLiterals() {
+        return Collections.unmodifiableMap(this.requiredLiterals);
+    }
+
+    Map<List<String>, AhoCorasick> automata() {
+        return Collections.unmodifiableMap(this.automata);
+    }
+
+    /**
+     * Returns the positions of exception rules by their exact messages.
+     *
+     * @return the positions, or {@code null} if they are not precomputed
+     */
+    Map<String, int[]> exactMessages() {
+        return this.exactMessages;
+    }
+
+    private final Map<String, Optional<RegexSimplifier.Simplified>> simplifications;
+    private final Map<String, Optional<String>> requiredLiterals;
+    private final Map<List<String>, AhoCorasick> automata;
+    private final Map<String, int[]> exactMessages;  // Nullable if not precomputed.
+}
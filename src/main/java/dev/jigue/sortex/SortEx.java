@@ -16,8 +16,15 @@
 
 package dev.jigue.sortex;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -26,7 +33,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Sorts a {@link Throwable} object into an {@code enum} constant based on a {@link java.util.Map}-based domain specific language (DSL).
@@ -45,13 +55,60 @@ import java.util.Set;
  *        "direct": true  // Direct cause.
  *      ],
  *      "sorted_into": "EXPECTED_1"  // It expects the enum contains a constant "EXPECTED_1".
+ *    },
+ *    {
+ *      "class_extends": "java.net.SocketException",
+ *      "message_starts_with": [  // Or, "message_ends_with", or "message_contains".
+ *        "Connection reset"
+ *      ],
+ *      "sorted_into": "EXPECTED_2"
  *    }
  *  ]}</pre></blockquote>
+ *
+ * <p>{@code message_starts_with}, {@code message_ends_with}, and {@code message_contains} are plain string comparisons
+ * with either of literals, without regular expressions. An exception rule can have only one of them, or
+ * {@code message_matches_either_of}. They never match a {@code null} message.
  */
 public final class SortEx<E extends Enum<E>> {
-    private SortEx(final Map<ExceptionRule, E> rules, final Class<E> enumClass) {
+    private SortEx(
+            final Map<ExceptionRule, E> rules,
+            final Class<E> enumClass,
+            final RuleContext context,
+            final Map<String, int[]> exactMessages) {
+        this(rules,
+             enumClass,
+             context,
+             ClassDispatchIndex.of(new ArrayList<>(rules.keySet()), exactMessages),
+             rules.values().toArray(castValues(Array.newInstance(enumClass, rules.size()), enumClass)),
+             null,
+             null,
+             null,
+             null,
+             CauseChain.DEFAULT_MAX_DEPTH);
+    }
+
+    private SortEx(
+            final Map<ExceptionRule, E> rules,
+            final Class<E> enumClass,
+            final RuleContext context,
+            final ClassDispatchIndex index,
+            final E[] targets,
+            final StatisticsCollector statistics,
+            final AdaptiveDispatch adaptive,
+            final CompiledMatcher compiled,
+            final ResultCache cache,
+            final int maxCauseDepth) {
         this.rules = rules;
         this.enumClass = enumClass;
+        this.context = context;
+        this.index = index;
+        this.targets = targets;
+        this.statistics = statistics;
+        this.adaptive = adaptive;
+        this.compiled = compiled;
+        this.cache = cache;
+        this.maxCauseDepth = maxCauseDepth;
+        this.usesCauseChain = cache != null || rules.keySet().stream().anyMatch(rule -> rule.hasCauseRule() || rule.messageRule() != null);
     }
 
     /**
@@ -62,12 +119,67 @@ public final class SortEx<E extends Enum<E>> {
      * {@code sorted_into}. Those are to find mistakes in the DSL representation earlier, not when an {@link Exception}
      * is it actually throws, and it attempts to match.
      *
+     * <p>Values of {@code class_equals} and {@code class_extends} can be {@link java.lang.Class} objects instead of class
+     * names, and values of {@code sorted_into} can be constants of {@code enumClass} instead of their names. They do not
+     * need reflection to resolve. {@link SortExSourceGenerator} generates Java code that builds the DSL in that way.
+     *
      * @param <E>  the {@link java.lang.Enum} class to sort {@link java.lang.Throwable} objects into
      * @param maps  a {@link java.util.Map}-based DSL representation
      * @param enumClass  the {@link java.lang.Enum} class object to sort {@link java.lang.Throwable} objects into
      * @return the {@link SortEx} instance
      */
     public static <E extends Enum<E>> SortEx<E> from(final List<Map<String, Object>> maps, final Class<E> enumClass) {
+        return from(maps, enumClass, RuleContext.eager());
+    }
+
+    /**
+     * Builds a {@link SortEx} instance from a {@link java.util.Map}-based DSL representation, resolving classes lazily.
+     *
+     * <p>It is the same as {@link #from(List, Class)} except that class names in {@code class_equals} and
+     * {@code class_extends} are not resolved when building. They are resolved through {@link SortEx}'s
+     * {@link java.lang.ClassLoader} without initialization only when a {@link java.lang.Throwable} whose class, or
+     * superclass, has the same name is matched for the first time. Classes from libraries that never throw in the
+     * process are never loaded.
+     *
+     * <p>A class name that cannot be resolved just never matches. Call {@link #validate()} to fail fast for them.
+     *
+     * @param <E>  the {@link java.lang.Enum} class to sort {@link java.lang.Throwable} objects into
+     * @param maps  a {@link java.util.Map}-based DSL representation
+     * @param enumClass  the {@link java.lang.Enum} class object to sort {@link java.lang.Throwable} objects into
+     * @return the {@link SortEx} instance
+     */
+    public static <E extends Enum<E>> SortEx<E> fromLazily(final List<Map<String, Object>> maps, final Class<E> enumClass) {
+        return fromLazily(maps, enumClass, SortEx.class.getClassLoader());
+    }
+
+    /**
+     * Builds a {@link SortEx} instance from a {@link java.util.Map}-based DSL representation, resolving classes lazily.
+     *
+     * <p>It is the same as {@link #fromLazily(List, Class)} except that classes are resolved through the given
+     * {@link java.lang.ClassLoader}, such as the caller's.
+     *
+     * @param <E>  the {@link java.lang.Enum} class to sort {@link java.lang.Throwable} objects into
+     * @param maps  a {@link java.util.Map}-based DSL representation
+     * @param enumClass  the {@link java.lang.Enum} class object to sort {@link java.lang.Throwable} objects into
+     * @param classLoader  the {@link java.lang.ClassLoader} to resolve classes through
+     * @return the {@link SortEx} instance
+     */
+    public static <E extends Enum<E>> SortEx<E> fromLazily(
+            final List<Map<String, Object>> maps,
+            final Class<E> enumClass,
+            final ClassLoader classLoader) {
+        return from(maps, enumClass, RuleContext.lazy(classLoader));
+    }
+
+    /**
+     * Builds a {@link SortEx} instance from a {@link java.util.Map}-based DSL representation in the context.
+     *
+     * <p>The context may have tables precomputed for the DSL, for example, by {@link SortExBinaryFormat}.
+     */
+    static <E extends Enum<E>> SortEx<E> from(
+            final List<Map<String, Object>> maps,
+            final Class<E> enumClass,
+            final RuleContext context) {
         final RuntimeExceptionBuilder exceptionBuilder = new RuntimeExceptionBuilder();
 
         if (maps == null) {
@@ -80,61 +192,150 @@ public final class SortEx<E extends Enum<E>> {
             throw exceptionBuilder.get();
         }
 
-        final Method valueOfMethod = getValueOfMethod(enumClass);
-        final Set<String> targets = checkEnum(enumClass, valueOfMethod);
-
-        final LinkedHashMap<ExceptionRule, E> rules = new LinkedHashMap<>();
-
+        final RulesBuilder<E> builder = new RulesBuilder<>(enumClass, context);
         for (final Map<String, Object> map : maps) {
-            final ExceptionRule rule;
-            try {
-                rule = ExceptionRule.from(map);
-            } catch (final RuntimeException ex) {
-                exceptionBuilder.add(ex);
-                continue;
-            }
+            builder.add(map, exceptionBuilder);
+        }
 
-            if (rule == null) {
-                exceptionBuilder.add(new NullPointerException("Value of the exception rule is null."));
-                continue;
-            }
+        if (exceptionBuilder.isPresent()) {
+            throw exceptionBuilder.get();
+        }
+        return builder.build();
+    }
 
-            if (!map.containsKey("sorted_into")) {
-                exceptionBuilder.add(new IllegalArgumentException("No sorted_info specified in the exception rule: " + rule));
-                continue;
-            }
+    /**
+     * Loads a {@link SortEx} instance from the DSL in JSON, or in YAML, without a third-party library.
+     *
+     * <p>It reads the DSL as a stream, and builds each exception rule as soon as it is read. It does not build a whole
+     * {@link java.util.Map}-based DSL representation in memory. The DSL is validated in the same way as
+     * {@link #from(List, Class)}, and exceptions are reported with the line and the column of the invalid exception
+     * rule. A syntax error stops reading there.
+     *
+     * <p>The DSL is read as JSON if it starts with {@code [}. Otherwise, it is read as YAML. Only a subset of YAML is
+     * supported: block sequences and mappings, plain and quoted scalars, flow sequences and mappings in a line, and
+     * comments. Anchors, aliases, tags, multi-line scalars, and multiple documents are not supported.
+     *
+     * @param <E>  the {@link java.lang.Enum} class to sort {@link java.lang.Throwable} objects into
+     * @param reader  the {@link java.io.Reader} to read the DSL from, which is not closed
+     * @param enumClass  the {@link java.lang.Enum} class object to sort {@link java.lang.Throwable} objects into
+     * @return the {@link SortEx} instance
+     * @throws IOException  if reading fails
+     * @throws IllegalArgumentException  if the DSL is invalid
+     */
+    public static <E extends Enum<E>> SortEx<E> load(final Reader reader, final Class<E> enumClass) throws IOException {
+        final RuntimeExceptionBuilder exceptionBuilder = new RuntimeExceptionBuilder();
 
-            final Object sortedIntoObject = map.get("sorted_into");
-            if (sortedIntoObject == null) {
-                exceptionBuilder.add(new NullPointerException("Value of \"sorted_into\" is null."));
-                continue;
+        if (reader == null) {
+            exceptionBuilder.add(new NullPointerException("Value of \"reader\" is null."));
+        }
+        if (enumClass == null) {
+            exceptionBuilder.add(new NullPointerException("Value of \"enumClass\" is null"));
+        }
+        if (exceptionBuilder.isPresent()) {
+            throw exceptionBuilder.get();
+        }
+
+        final DslReader dslReader = DslReader.of(reader instanceof BufferedReader ? reader : new BufferedReader(reader));
+        final RulesBuilder<E> builder = new RulesBuilder<>(enumClass, RuleContext.eager());
+        while (true) {
+            final DslReader.Entry entry;
+            try {
+                entry = dslReader.next();
+            } catch (final IllegalArgumentException ex) {
+                exceptionBuilder.add(ex);
+                break;  // Not to continue after a syntax error because the rest cannot be read reliably.
             }
-            if (!(sortedIntoObject instanceof String)) {
-                exceptionBuilder.add(new ClassCastException("Value of \"sorted_into\" is not a string."));
-                continue;
+            if (entry == null) {
+                break;
             }
 
-            final String sortedInto = (String) sortedIntoObject;
-            if (!targets.contains(sortedInto)) {
+            final RuntimeExceptionBuilder ruleExceptionBuilder = new RuntimeExceptionBuilder();
+            builder.add(entry.map(), ruleExceptionBuilder);
+            if (ruleExceptionBuilder.isPresent()) {
                 exceptionBuilder.add(new IllegalArgumentException(
-                        "Value of \"sorted_into\", <\"" + sortedInto + "\">, is not expected in Enum class passed to SortEx. "
-                                + "Expected values are: " + targets.toString()));
-                continue;
+                        "Invalid exception rule at " + entry.position() + ".", ruleExceptionBuilder.get()));
             }
+        }
 
-            if (rules.containsKey(rule)) {
-                exceptionBuilder.add(new IllegalArgumentException("The exception rule is duplicated: " + rule.toString()));
-                continue;
-            }
+        if (exceptionBuilder.isPresent()) {
+            throw exceptionBuilder.get();
+        }
+        return builder.build();
+    }
 
-            rules.put(rule, invokeValueOf(enumClass, valueOfMethod, sortedInto));
+    /**
+     * Loads a {@link SortEx} instance from the DSL in JSON, or in YAML, encoded in UTF-8.
+     *
+     * <p>It is the same as {@link #load(Reader, Class)} except that it reads from an {@link java.io.InputStream}.
+     *
+     * @param <E>  the {@link java.lang.Enum} class to sort {@link java.lang.Throwable} objects into
+     * @param input  the {@link java.io.InputStream} to read the DSL from, which is not closed
+     * @param enumClass  the {@link java.lang.Enum} class object to sort {@link java.lang.Throwable} objects into
+     * @return the {@link SortEx} instance
+     * @throws IOException  if reading fails
+     * @throws IllegalArgumentException  if the DSL is invalid
+     */
+    public static <E extends Enum<E>> SortEx<E> load(final InputStream input, final Class<E> enumClass) throws IOException {
+        if (input == null) {
+            throw new NullPointerException("Value of \"input\" is null.");
         }
+        return load(new InputStreamReader(input, StandardCharsets.UTF_8), enumClass);
+    }
 
+    /**
+     * Builds a new {@link SortEx} instance from a {@link java.util.Map}-based DSL representation incrementally.
+     *
+     * <p>It is the same as {@link #from(List, Class)}, or {@link #fromLazily(List, Class)} if this instance is built
+     * lazily, with the same {@link java.lang.Enum} class, except that it reuses the exception rules of this instance. An
+     * exception rule whose DSL representation is equal to {@link #toListOfMaps()} of one in this instance, except for
+     * {@code sorted_into}, is reused without parsing, compiling regular expressions, and resolving classes. It takes time
+     * only for what is changed when a large set of rules is changed partially.
+     *
+     * <p>The DSL representations of this instance are rebuilt only while recompiling. Neither this instance nor the new
+     * instance retains them, nor a cache of what is compiled.
+     *
+     * <p>The new instance carries over the settings of {@link #withResultCache(int)}, with an empty cache of the same
+     * size, and {@link #withMaxCauseDepth(int)}. It does not collect statistics, does not adapt its evaluation order, and
+     * does not match by a generated bytecode even if this instance does, as an instance built by
+     * {@link #from(List, Class)}. This instance is not changed.
+     *
+     * @param maps  a {@link java.util.Map}-based DSL representation
+     * @return the new {@link SortEx} instance
+     */
+    public SortEx<E> recompile(final List<Map<String, Object>> maps) {
+        final SortEx<E> recompiled = from(maps, this.enumClass, this.context.withCache(RuleCache.of(this.rules.keySet())));
+        return new SortEx<E>(
+                recompiled.rules,
+                recompiled.enumClass,
+                recompiled.context,
+                recompiled.index,
+                recompiled.targets,
+                null,
+                null,
+                null,
+                this.cache == null ? null : this.cache.emptyCopy(),
+                this.maxCauseDepth);
+    }
+
+    /**
+     * Resolves all the classes in the rules, and throws an {@link Exception} if any of them cannot be resolved.
+     *
+     * <p>It is to fail fast for a {@link SortEx} instance built by {@link #fromLazily(List, Class)}, for example, in a
+     * test or a health check. The resolved classes are cached, but they are not initialized. It does nothing for a
+     * {@link SortEx} instance built by {@link #from(List, Class)}, whose classes have been resolved already.
+     *
+     * @return this {@link SortEx} instance
+     * @throws IllegalArgumentException  if a class is not found, or a class is not {@link java.lang.Throwable}
+     */
+    public SortEx<E> validate() {
+        final RuntimeExceptionBuilder exceptionBuilder = new RuntimeExceptionBuilder();
+        for (final ExceptionRule rule : this.rules.keySet()) {
+            rule.validate(exceptionBuilder);
+        }
         if (exceptionBuilder.isPresent()) {
             throw exceptionBuilder.get();
         }
-
-        return new SortEx<E>(Collections.unmodifiableMap(rules), enumClass);
+        return this;
     }
 
     /**
@@ -144,23 +345,302 @@ public final class SortEx<E extends Enum<E>> {
      * @return an {@link java.util.Optional} describing the matched {@link java.lang.Enum} constant
      */
     public Optional<E> matches(final Throwable exception) {
-        for (final Map.Entry<ExceptionRule, E> entry : this.rules.entrySet()) {
-            if (entry.getKey().matches(exception)) {
-                return Optional.of(entry.getValue());
-            }
-        }
-        return Optional.empty();
+        return Optional.ofNullable(this.matches(exception, null));
     }
 
     /**
      * Attempts to match the given input {@link java.lang.Throwable} instance against it.
      *
+     * <p>It does not allocate any object by itself unless a regular expression runs, or a class is seen for the first time.
+     * It is suitable to call in a hot path, such as an exception handler in a low-latency loop.
+     *
      * @param exception  an {@link java.lang.Throwable} instance to match
-     * @param defaultTarget  an {@code enum} constant to return if the {@link java.lang.Throwable} instance did not match
-     * @return the matched {@link java.lang.Enum} constant
+     * @param defaultTarget  an {@code enum} constant to return if the {@link java.lang.Throwable} instance did not match, nullable
+     * @return the matched {@link java.lang.Enum} constant, or {@code defaultTarget} if it did not match
      */
     public E matches(final Throwable exception, final E defaultTarget) {
-        return this.matches(exception).orElse(defaultTarget);
+        final int position;
+        if (this.usesCauseChain) {
+            // Acquired here so that the cause chain is walked, and each message is retrieved, only once in this classification.
+            final CauseChain chain = CauseChain.acquire(exception, this.maxCauseDepth);
+            try {
+                position = this.findCached(exception);
+            } finally {
+                chain.release();
+            }
+        } else {
+            position = this.findCached(exception);
+        }
+        if (position < 0) {
+            return defaultTarget;
+        }
+        return this.targets[position];
+    }
+
+    private int findCached(final Throwable exception) {
+        if (this.cache == null) {
+            return this.find(exception);
+        }
+        final int cached = this.cache.get(exception);
+        if (cached != ResultCache.MISS) {
+            return cached;
+        }
+        final int position = this.find(exception);
+        this.cache.put(exception, position);
+        return position;
+    }
+
+    private int find(final Throwable exception) {
+        final int position;
+        if (this.adaptive != null) {
+            position = this.adaptive.find(exception, this.statistics);
+        } else if (this.statistics != null) {
+            position = this.index.find(exception, this.statistics);
+        } else if (this.compiled != null) {
+            position = this.compiled.match(exception);
+        } else {
+            position = this.index.find(exception);
+        }
+        return position;
+    }
+
+    /**
+     * Attempts to match each of the given input {@link java.lang.Throwable} instances against it in bulk.
+     *
+     * <p>It is equivalent to calling {@link #matches(Throwable, Enum)} for each, but faster for many instances. The
+     * instances are grouped by their concrete {@link java.lang.Class} and their message. Class rules and message rules
+     * are evaluated only once per group, and only cause rules are evaluated per instance.
+     *
+     * @param exceptions  {@link java.lang.Throwable} instances to match
+     * @param defaultTarget  an {@code enum} constant for a {@link java.lang.Throwable} instance that did not match, nullable
+     * @return an array of the matched {@link java.lang.Enum} constants in the same order with {@code exceptions}
+     */
+    public E[] matchesAll(final List<? extends Throwable> exceptions, final E defaultTarget) {
+        final List<? extends Throwable> randomAccessExceptions = toRandomAccess(exceptions);
+        final int[] positions = new int[randomAccessExceptions.size()];
+        this.index.findAll(randomAccessExceptions, 0, positions.length, positions, this.statistics, this.maxCauseDepth);
+        return this.toTargets(positions, defaultTarget);
+    }
+
+    /**
+     * Attempts to match each of the given input {@link java.lang.Throwable} instances against it in bulk, in parallel.
+     *
+     * <p>The instances are split into chunks, and the chunks are matched in the given {@link java.util.concurrent.ForkJoinPool}
+     * in the same way as {@link #matchesAll(List, Enum)}. The result is the same as {@link #matchesAll(List, Enum)},
+     * including its order. A {@link SortEx} instance is immutable, and it is safe to be shared among threads.
+     *
+     * @param exceptions  {@link java.lang.Throwable} instances to match
+     * @param defaultTarget  an {@code enum} constant for a {@link java.lang.Throwable} instance that did not match, nullable
+     * @param pool  a {@link java.util.concurrent.ForkJoinPool} to run in, such as {@link java.util.concurrent.ForkJoinPool#commonPool()}
+     * @return an array of the matched {@link java.lang.Enum} constants in the same order with {@code exceptions}
+     */
+    public E[] matchesAll(final List<? extends Throwable> exceptions, final E defaultTarget, final ForkJoinPool pool) {
+        final List<? extends Throwable> randomAccessExceptions = toRandomAccess(exceptions);
+        final int[] positions = new int[randomAccessExceptions.size()];
+        final int threshold = Math.max(MIN_PARALLEL_CHUNK, positions.length / (pool.getParallelism() * 8) + 1);
+        pool.invoke(new FindAllTask(
+                this.index, randomAccessExceptions, 0, positions.length, positions, threshold, this.statistics, this.maxCauseDepth));
+        return this.toTargets(positions, defaultTarget);
+    }
+
+    /**
+     * Creates a new {@link SortEx} instance with the same rules that collects per-rule statistics.
+     *
+     * <p>The new instance counts evaluations, hits, and cumulative nanoseconds per rule, and unmatched inputs, with
+     * {@link java.util.concurrent.atomic.LongAdder}s. Get them by {@link #statistics()} or {@link #statisticsBean()}. The
+     * compiled rules are shared with this instance, and the new instance starts with zero counts.
+     *
+     * <p>A {@link SortEx} instance created by {@link #from(List, Class)} does not collect statistics, and it does not pay
+     * for them.
+     *
+     * @return the new {@link SortEx} instance that collects statistics
+     */
+    public SortEx<E> withStatistics() {
+        return new SortEx<E>(
+                this.rules,
+                this.enumClass,
+                this.context,
+                this.index,
+                this.targets,
+                new StatisticsCollector(this.targets.length),
+                this.adaptive,
+                this.compiled,
+                this.cache,
+                this.maxCauseDepth);
+    }
+
+    /**
+     * Creates a new {@link SortEx} instance with the same rules that adapts its evaluation order to observed hits.
+     *
+     * <p>The new instance counts hits of rules per concrete {@link java.lang.Class} of {@link java.lang.Throwable} in
+     * {@link #matches(Throwable, Enum)}. Its evaluation order is updated when {@link #reorder()} is called, typically
+     * periodically in the background, for example:
+     *
+     * <pre>{@code scheduler.scheduleWithFixedDelay(sortex::reorder, 1, 1, TimeUnit.MINUTES);}</pre>
+     *
+     * <p>Rules are reordered only when it never changes the result. Two rules are swapped only if no
+     * {@link java.lang.Throwable} instance can match both, for example, when both have only exact messages, and they
+     * share no message. Note that rules whose class rules cannot match the same {@link java.lang.Class} are never
+     * evaluated together in the first place.
+     *
+     * @return the new {@link SortEx} instance that adapts its evaluation order
+     */
+    public SortEx<E> withAdaptiveOrdering() {
+        return new SortEx<E>(
+                this.rules,
+                this.enumClass,
+                this.context,
+                this.index,
+                this.targets,
+                this.statistics,
+                new AdaptiveDispatch(this.index),
+                this.compiled,
+                this.cache,
+                this.maxCauseDepth);
+    }
+
+    /**
+     * Creates a new {@link SortEx} instance with the same rules that matches by a generated bytecode.
+     *
+     * <p>The new instance generates a class dedicated to its rules, and {@link #matches(Throwable, Enum)} runs it. The
+     * generated code checks classes, exact messages, and regular expressions of the rules in straight-line code that the
+     * JIT compiler can inline, instead of interpreting the rules through virtual calls. It always returns the same
+     * result as the interpreter.
+     *
+     * <p>The class is defined as a hidden class on Java 15 and later, which is unloaded together with the new instance.
+     * It is defined as an ordinary class in the class loader of {@link SortEx} on older Java, and it is never unloaded
+     * while the class loader is alive. Avoid calling this method repeatedly, for example, on every reload of rules, on
+     * Java 8 to 14 because every call leaks a class. Statistics and adaptive ordering take precedence over the generated
+     * code if they are enabled.
+     *
+     * @return the new {@link SortEx} instance that matches by a generated bytecode
+     * @throws IllegalStateException  if the rules are too many to generate a class, or the JVM does not allow to define it
+     */
+    public SortEx<E> withBytecodeMatcher() {
+        return new SortEx<E>(
+                this.rules,
+                this.enumClass,
+                this.context,
+                this.index,
+                this.targets,
+                this.statistics,
+                this.adaptive,
+                MatcherGenerator.generate(new ArrayList<>(this.rules.keySet())),
+                this.cache,
+                this.maxCauseDepth);
+    }
+
+    /**
+     * Creates a new {@link SortEx} instance with the same rules that caches results of {@link #matches(Throwable, Enum)}.
+     *
+     * <p>The results are cached by fingerprints of {@link java.lang.Throwable} instances, which consist of the
+     * {@link java.lang.Class} and the message of each {@link java.lang.Throwable} in the cause chain. They are all that
+     * rules can observe. A {@link java.lang.Throwable} instance that repeats, for example, during an outage, is sorted
+     * by one lookup without evaluating rules. The fingerprint is compared exactly, and a cached result is always the
+     * same as the result without the cache. A cause chain deeper than 16 is not cached.
+     *
+     * <p>The cache is bounded, and it evicts results that have not been hit recently in an approximation of LRU. Lookups
+     * are lock-free, and they do not allocate. Get its hits and misses by {@link #cacheStatistics()}. Note that the
+     * cache holds {@link java.lang.Class} objects and messages of cached {@link java.lang.Throwable} instances, not
+     * the instances themselves. If statistics are collected, or the evaluation order is adaptive, they see only cache
+     * misses.
+     *
+     * @param maximumSize  the maximum number of cached results, which is rounded up to a power of two
+     * @return the new {@link SortEx} instance that caches results
+     * @throws IllegalArgumentException  if {@code maximumSize} is not positive
+     */
+    public SortEx<E> withResultCache(final int maximumSize) {
+        return new SortEx<E>(
+                this.rules,
+                this.enumClass,
+                this.context,
+                this.index,
+                this.targets,
+                this.statistics,
+                this.adaptive,
+                this.compiled,
+                ResultCache.of(maximumSize),
+                this.maxCauseDepth);
+    }
+
+    /**
+     * Creates a new {@link SortEx} instance with the same rules that looks into cause chains only up to the depth.
+     *
+     * <p>The cause chain of a {@link java.lang.Throwable} instance is walked only once per classification, and all the
+     * cause rules share it. The walk stops at the maximum depth, or at a {@link java.lang.Throwable} that has appeared
+     * in the chain already. Cause rules never match {@link java.lang.Throwable}s after that. The default maximum depth
+     * is 64. If this instance caches results, the new instance has an empty cache of the same size unless the depth is
+     * the same.
+     *
+     * @param maxCauseDepth  the maximum number of {@link java.lang.Throwable}s in a cause chain, including the first one
+     * @return the new {@link SortEx} instance
+     * @throws IllegalArgumentException  if {@code maxCauseDepth} is not positive
+     */
+    public SortEx<E> withMaxCauseDepth(final int maxCauseDepth) {
+        if (maxCauseDepth < 1) {
+            throw new IllegalArgumentException("Value of \"maxCauseDepth\" must be positive: " + maxCauseDepth);
+        }
+        return new SortEx<E>(
+                this.rules,
+                this.enumClass,
+                this.context,
+                this.index,
+                this.targets,
+                this.statistics,
+                this.adaptive,
+                this.compiled,
+                // Results cached with another depth may differ.
+                (this.cache == null || maxCauseDepth == this.maxCauseDepth) ? this.cache : this.cache.emptyCopy(),
+                maxCauseDepth);
+    }
+
+    /**
+     * Reorders rules based on hits observed so far if this {@link SortEx} instance adapts its evaluation order.
+     *
+     * <p>It is thread-safe. In-flight and later {@link #matches(Throwable, Enum)} calls continue without blocking, and
+     * they see either the previous order or the new order atomically. It does nothing for a {@link SortEx} instance
+     * that does not adapt its evaluation order.
+     */
+    public void reorder() {
+        if (this.adaptive != null) {
+            this.adaptive.reorder();
+        }
+    }
+
+    /**
+     * Takes a snapshot of per-rule statistics if this {@link SortEx} instance collects statistics.
+     *
+     * @return an {@link java.util.Optional} describing the snapshot, or empty if it does not collect statistics
+     */
+    public Optional<SortExStatistics> statistics() {
+        if (this.statistics == null) {
+            return Optional.empty();
+        }
+        return Optional.of(this.statistics.snapshot(this.toListOfMaps()));
+    }
+
+    /**
+     * Returns a JMX MXBean to expose per-rule statistics if this {@link SortEx} instance collects statistics.
+     *
+     * @return an {@link java.util.Optional} describing the MXBean, or empty if it does not collect statistics
+     */
+    public Optional<SortExStatisticsBean> statisticsBean() {
+        if (this.statistics == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new StatisticsBean(this));
+    }
+
+    /**
+     * Returns statistics of the result cache if this {@link SortEx} instance caches results.
+     *
+     * @return statistics of the result cache, or empty if it does not cache results
+     */
+    public Optional<SortExCacheStatistics> cacheStatistics() {
+        if (this.cache == null) {
+            return Optional.empty();
+        }
+        return Optional.of(this.cache.snapshot());
     }
 
     /**
@@ -216,6 +696,37 @@ public final class SortEx<E extends Enum<E>> {
         return this.toListOfMaps().toString();
     }
 
+    Map<ExceptionRule, E> rules() {
+        return this.rules;
+    }
+
+    private static List<? extends Throwable> toRandomAccess(final List<? extends Throwable> exceptions) {
+        if (exceptions instanceof RandomAccess) {
+            return exceptions;
+        }
+        return new ArrayList<>(exceptions);
+    }
+
+    private E[] toTargets(final int[] positions, final E defaultTarget) {
+        final E[] sorted = castValues(Array.newInstance(this.enumClass, positions.length), this.enumClass);
+        for (int i = 0; i < positions.length; i++) {
+            sorted[i] = positions[i] < 0 ? defaultTarget : this.targets[positions[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * Validates the {@link java.lang.Enum} class, and returns its constants by their names.
+     */
+    private static <E extends Enum<E>> Map<String, E> validateEnum(final Class<E> enumClass) {
+        final Method valueOfMethod = getValueOfMethod(enumClass);
+        final LinkedHashMap<String, E> constants = new LinkedHashMap<>();
+        for (final String name : checkEnum(enumClass, valueOfMethod)) {
+            constants.put(name, invokeValueOf(enumClass, valueOfMethod, name));
+        }
+        return Collections.unmodifiableMap(constants);
+    }
+
     static <E extends Enum<E>> Set<String> checkEnum(final Class<E> enumClass, final Method valueOfMethod) {
         final E[] values = invokeValues(enumClass);
         checkEnumValues(enumClass, valueOfMethod, values);
@@ -310,11 +821,218 @@ public final class SortEx<E extends Enum<E>> {
         return (E[]) valuesObject;
     }
 
+    @SuppressWarnings("unchecked")
+    private static <E extends Enum<E>> Map<String, E> castConstants(final Map<String, ? extends Enum<?>> constants) {
+        return (Map<String, E>) constants;
+    }
+
     @SuppressWarnings("unchecked")
     private static <E extends Enum<E>> E castValue(final Object valueObject, final Class<E> enumClass) {
         return (E) valueObject;
     }
 
+    /**
+     * Builds exception rules one by one, and a {@link SortEx} instance from them.
+     */
+    private static final class RulesBuilder<E extends Enum<E>> {
+        RulesBuilder(final Class<E> enumClass, final RuleContext context) {
+            this.enumClass = enumClass;
+            this.context = context;
+            this.rules = new LinkedHashMap<>();
+            this.targets = null;
+        }
+
+        /**
+         * Builds an exception rule from its DSL representation, and adds exceptions if it is invalid.
+         */
+        void add(final Map<String, Object> map, final RuntimeExceptionBuilder exceptionBuilder) {
+            final ExceptionRule rule;
+            try {
+                rule = this.context.rule(map, () -> ExceptionRule.from(map, this.context));
+            } catch (final RuntimeException ex) {
+                exceptionBuilder.add(ex);
+                return;
+            }
+
+            if (rule == null) {
+                exceptionBuilder.add(new NullPointerException("Value of the exception rule is null."));
+                return;
+            }
+
+            if (!map.containsKey("sorted_into")) {
+                exceptionBuilder.add(new IllegalArgumentException("No sorted_info specified in the exception rule: " + rule));
+                return;
+            }
+
+            final Object sortedIntoObject = map.get("sorted_into");
+            if (sortedIntoObject == null) {
+                exceptionBuilder.add(new NullPointerException("Value of \"sorted_into\" is null."));
+                return;
+            }
+            final E target;
+            if (this.enumClass.isInstance(sortedIntoObject)) {
+                target = this.enumClass.cast(sortedIntoObject);
+            } else if (sortedIntoObject instanceof String) {
+                if (this.targets == null) {
+                    this.targets = castConstants(this.context.enumConstants(this.enumClass, () -> validateEnum(this.enumClass)));
+                }
+
+                final String sortedInto = (String) sortedIntoObject;
+                if (!this.targets.containsKey(sortedInto)) {
+                    exceptionBuilder.add(new IllegalArgumentException(
+                            "Value of \"sorted_into\", <\"" + sortedInto + "\">, is not expected in Enum class passed to SortEx. "
+                                    + "Expected values are: " + this.targets.keySet().toString()));
+                    return;
+                }
+                target = this.targets.get(sortedInto);
+            } else {
+                exceptionBuilder.add(new ClassCastException(
+                        "Value of \"sorted_into\" is neither a string nor a constant of " + this.enumClass.getName() + "."));
+                return;
+            }
+
+            if (this.rules.containsKey(rule)) {
+                exceptionBuilder.add(new IllegalArgumentException("The exception rule is duplicated: " + rule.toString()));
+                return;
+            }
+
+            this.rules.put(rule, target);
+        }
+
+        SortEx<E> build() {
+            final RuleTables tables = this.context.tables();
+            return new SortEx<E>(
+                    Collections.unmodifiableMap(this.rules),
+                    this.enumClass,
+                    this.context.withCache(null).withTables(null),  // Not to retain the cache and the tables.
+                    tables == null ? null : tables.exactMessages());
+        }
+
+        private final Class<E> enumClass;
+        private final RuleContext context;
+        private final LinkedHashMap<ExceptionRule, E> rules;
+
+        // Looked up lazily only when a target is given as a string so that generated code does not need reflection.
+        private Map<String, E> targets;
+    }
+
+    @SuppressWarnings("serial")
+    private static final class FindAllTask extends RecursiveAction {
+        FindAllTask(
+                final ClassDispatchIndex index,
+                final List<? extends Throwable> exceptions,
+                final int from,
+                final int to,
+                final int[] positions,
+                final int threshold,
+                final StatisticsCollector statistics,
+                final int maxCauseDepth) {
+            this.index = index;
+            this.exceptions = exceptions;
+            this.from = from;
+            this.to = to;
+            this.positions = positions;
+            this.threshold = threshold;
+            this.statistics = statistics;
+            this.maxCauseDepth = maxCauseDepth;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= this.threshold) {
+                this.index.findAll(this.exceptions, this.from, this.to, this.positions, this.statistics, this.maxCauseDepth);
+                return;
+            }
+            final int middle = (this.from + this.to) >>> 1;
+            invokeAll(
+                    new FindAllTask(
+                            this.index, this.exceptions, this.from, middle, this.positions, this.threshold, this.statistics, this.maxCauseDepth),
+                    new FindAllTask(
+                            this.index, this.exceptions, middle, this.to, this.positions, this.threshold, this.statistics, this.maxCauseDepth));
+        }
+
+        private final ClassDispatchIndex index;
+        private final List<? extends Throwable> exceptions;
+        private final int from;
+        private final int to;
+        private final int[] positions;  // Shared among tasks, but each task writes only into its own range.
+        private final int threshold;
+        private final StatisticsCollector statistics;  // Nullable
+        private final int maxCauseDepth;
+    }
+
+    private static final class StatisticsBean implements SortExStatisticsBean {
+        StatisticsBean(final SortEx<?> sortex) {
+            this.sortex = sortex;
+        }
+
+        @Override
+        public String[] getRules() {
+            final List<Map<String, Object>> maps = this.sortex.toListOfMaps();
+            final String[] rules = new String[maps.size()];
+            for (int i = 0; i < rules.length; i++) {
+                rules[i] = maps.get(i).toString();
+            }
+            return rules;
+        }
+
+        @Override
+        public long[] getEvaluations() {
+            final List<SortExStatistics.Rule> rules = this.snapshot().getRules();
+            final long[] evaluations = new long[rules.size()];
+            for (int i = 0; i < evaluations.length; i++) {
+                evaluations[i] = rules.get(i).getEvaluations();
+            }
+            return evaluations;
+        }
+
+        @Override
+        public long[] getHits() {
+            final List<SortExStatistics.Rule> rules = this.snapshot().getRules();
+            final long[] hits = new long[rules.size()];
+            for (int i = 0; i < hits.length; i++) {
+                hits[i] = rules.get(i).getHits();
+            }
+            return hits;
+        }
+
+        @Override
+        public long[] getNanos() {
+            final List<SortExStatistics.Rule> rules = this.snapshot().getRules();
+            final long[] nanos = new long[rules.size()];
+            for (int i = 0; i < nanos.length; i++) {
+                nanos[i] = rules.get(i).getNanos();
+            }
+            return nanos;
+        }
+
+        @Override
+        public long getUnmatched() {
+            return this.snapshot().getUnmatched();
+        }
+
+        private SortExStatistics snapshot() {
+            return this.sortex.statistics.snapshot(this.sortex.toListOfMaps());
+        }
+
+        private final SortEx<?> sortex;
+    }
+
+    // Chunks smaller than this are not split further so that grouping by class and message still works in a chunk.
+    private static final int MIN_PARALLEL_CHUNK = 1024;
+
     private final Map<ExceptionRule, E> rules;
     private final Class<E> enumClass;
+    private final RuleContext context;  // Without a cache and tables, to build next rules in the same way.
+
+    // Derived from |rules| for matching. They are not considered in equality.
+    private final ClassDispatchIndex index;
+    private final E[] targets;
+
+    private final StatisticsCollector statistics;  // Nullable if it does not collect statistics.
+    private final AdaptiveDispatch adaptive;  // Nullable if it does not adapt its evaluation order.
+    private final CompiledMatcher compiled;  // Nullable if it does not match by a generated bytecode.
+    private final ResultCache cache;  // Nullable if it does not cache results.
+    private final int maxCauseDepth;
+    private final boolean usesCauseChain;  // True if messages or causes are looked into.
 }
@@ -0,0 +1,658 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Writes and reads {@link SortEx} rules in a compact, versioned binary format.
+ *
+ * <p>It is to distribute rules as one small blob that is loaded without a YAML or JSON parser, for example, from a
+ * resource, or from a memory-mapped file. Reading does not copy the buffer. It reads the buffer through a duplicate
+ * of it, and it does not change the position of the given buffer.
+ *
+ * <blockquote><pre>{@code  // At build time:
+ * final ByteBuffer binary = SortExBinaryFormat.write(SortEx.from(maps, ErrorKind.class));
+ *
+ * // At runtime:
+ * try (final FileChannel channel = FileChannel.open(path)) {
+ *     final SortEx<ErrorKind> sortex = SortExBinaryFormat.read(channel.map(MapMode.READ_ONLY, 0, channel.size()), ErrorKind.class);
+ * }}</pre></blockquote>
+ *
+ * <p>The format is as follows in big endian. {@code varint} is an unsigned LEB128 integer.
+ *
+ * <pre>{@code  magic      4 bytes  "SRTX"
+ * version    2 bytes  1
+ * strings    varint count, and then each string as varint length and UTF-8 bytes, referred to by their indexes
+ * rules      varint count, and then each rule as varint index of "sorted_into", and an exception rule
+ * tables     tables precomputed from the rules
+ * checksum   4 bytes  CRC-32 of all the bytes above
+ *
+ * exception rule:
+ *   1 byte class rule: 1 for class_equals, 2 for class_extends, 3 for class_equals_literally
+ *   varint index of the class name
+ *   varint count of message patterns plus 1, or 0 without a message rule, and then 1 byte message rule: 1 for
+ *     message_matches_either_of, 2 for message_starts_with, 3 for message_ends_with, 4 for message_contains, and then
+ *     varint indexes of the patterns
+ *   varint count of cause rules plus 1, or 0 without a cause rule, and then each as 1 byte "direct" and an exception rule
+ *
+ * tables:
+ *   varint count of simplified regular expressions, and then each as varint index of the regular expression, 1 byte
+ *     kind: 0 if it cannot be simplified, 1 for exact, 2 for prefixes, 3 for suffixes, and varint count and indexes of
+ *     the strings
+ *   varint count of required literals, and then each as varint index of the regular expression, and varint index of
+ *     the literal plus 1, or 0 without a literal
+ *   varint count of automata, and then each as varint count and indexes of the literals, varint count of nodes, and
+ *     each node as 1 byte flags: 1 if a literal ends at the node, 2 if the node accepts, varint index of the failure
+ *     node, varint count of transitions, and each transition as varint label and varint index of the next node
+ *   varint count of exact messages, and then each as varint index of the message, varint count of positions of the
+ *     exception rules, and the positions as varint differences from the previous ones, or from 0 for the first}</pre>
+ *
+ * <p>Exception rules can be nested in cause rules up to 64 levels including the top-level one. A deeper binary is
+ * rejected so that a crafted binary does not overflow the stack when it is read.
+ *
+ * <p>The rules are validated when they are read in the same way as {@link SortEx#from(List, Class)}. What does not
+ * depend on the runtime is precomputed in the tables, and it is not computed again when the rules are read. They are
+ * simplifications of regular expressions, literals required by regular expressions, {@link AhoCorasick} automata of
+ * literals, and the index of exact messages. A simplified regular expression is not compiled again. Other regular
+ * expressions are compiled, and the dispatch index by classes is built when they are read because they depend on the
+ * runtime, such as loaded classes.
+ */
+public final class SortExBinaryFormat {
+    private SortExBinaryFormat() {
+        // No instantiation.
+    }
+
+    /**
+     * Writes the rules of a {@link SortEx} instance into the binary format.
+     *
+     * @param sortex  the {@link SortEx} instance to write
+     * @return a {@link java.nio.ByteBuffer} of the binary, whose position is zero, and whose limit is its length
+     * @throws IllegalArgumentException  if a string in the rules cannot be represented in UTF-8, such as a lone surrogate,
+     *     or if cause rules are nested deeper than the binary format accepts
+     */
+    public static ByteBuffer write(final SortEx<?> sortex) {
+        if (sortex == null) {
+            throw new NullPointerException("Value of \"sortex\" is null.");
+        }
+        return new Writer().write(sortex.rules());
+    }
+
+    /**
+     * Reads rules in the binary format, and builds a {@link SortEx} instance as {@link SortEx#from(List, Class)}.
+     *
+     * @param <E>  the {@link java.lang.Enum} class to sort {@link java.lang.Throwable} objects into
+     * @param binary  the binary, from its position to its limit
+     * @param enumClass  the {@link java.lang.Enum} class object to sort {@link java.lang.Throwable} objects into
+     * @return the {@link SortEx} instance
+     * @throws IllegalArgumentException  if the binary is broken, its version is not supported, or its rules are invalid
+     */
+    public static <E extends Enum<E>> SortEx<E> read(final ByteBuffer binary, final Class<E> enumClass) {
+        return read(binary, enumClass, RuleContext.eager());
+    }
+
+    /**
+     * Reads rules in the binary format, and builds a {@link SortEx} instance as {@link SortEx#fromLazily(List, Class, ClassLoader)}.
+     *
+     * @param <E>  the {@link java.lang.Enum} class to sort {@link java.lang.Throwable} objects into
+     * @param binary  the binary, from its position to its limit
+     * @param enumClass  the {@link java.lang.Enum} class object to sort {@link java.lang.Throwable} objects into
+     * @param classLoader  the {@link java.lang.ClassLoader} to resolve classes through
+     * @return the {@link SortEx} instance
+     * @throws IllegalArgumentException  if the binary is broken, its version is not supported, or its rules are invalid
+     */
+    public static <E extends Enum<E>> SortEx<E> readLazily(final ByteBuffer binary, final Class<E> enumClass, final ClassLoader classLoader) {
+        return read(binary, enumClass, RuleContext.lazy(classLoader));
+    }
+
+    private static <E extends Enum<E>> SortEx<E> read(final ByteBuffer binary, final Class<E> enumClass, final RuleContext context) {
+        final Decoded decoded = decode(binary);
+        return SortEx.from(decoded.maps, enumClass, context.withTables(decoded.tables));
+    }
+
+    /**
+     * Reads rules in the binary format into a {@link java.util.Map}-based DSL representation.
+     */
+    static List<Map<String, Object>> readMaps(final ByteBuffer binary) {
+        return decode(binary).maps;
+    }
+
+    /**
+     * Reads tables precomputed from rules in the binary format.
+     */
+    static RuleTables readTables(final ByteBuffer binary) {
+        return decode(binary).tables;
+    }
+
+    /**
+     * Reads rules in the binary format into a {@link java.util.Map}-based DSL representation, and precomputed tables.
+     */
+    private static Decoded decode(final ByteBuffer binary) {
+        if (binary == null) {
+            throw new NullPointerException("Value of \"binary\" is null.");
+        }
+        final ByteBuffer buffer = binary.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (buffer.remaining() < MAGIC.length + 2 + 4) {
+            throw new IllegalArgumentException("The binary is too short for SortEx.");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get() != MAGIC[i]) {
+                throw new IllegalArgumentException("The binary is not for SortEx.");
+            }
+        }
+        final int version = buffer.getShort() & 0xffff;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("The binary version " + version + " is not supported. Expected version is " + VERSION + ".");
+        }
+
+        final int checksumPosition = buffer.limit() - 4;
+        final CRC32 crc = new CRC32();
+        final ByteBuffer checked = binary.duplicate();
+        checked.limit(checksumPosition);
+        crc.update(checked);
+        if ((int) crc.getValue() != buffer.getInt(checksumPosition)) {
+            throw new IllegalArgumentException("The binary for SortEx is broken: checksum mismatch.");
+        }
+        buffer.limit(checksumPosition);
+
+        try {
+            return new Reader(buffer).read();
+        } catch (final BufferUnderflowException ex) {
+            throw new IllegalArgumentException("The binary for SortEx is broken: truncated.", ex);
+        } catch (final IndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("The binary for SortEx is broken: invalid index.", ex);
+        }
+    }
+
+    private static final class Writer {
+        Writer() {
+            this.strings = new LinkedHashMap<>();
+            this.body = new ByteArrayOutputStream();
+        }
+
+        ByteBuffer write(final Map<ExceptionRule, ? extends Enum<?>> rules) {
+            writeVarint(this.body, rules.size());
+            for (final Map.Entry<ExceptionRule, ? extends Enum<?>> entry : rules.entrySet()) {
+                this.writeString(entry.getValue().name());
+                this.writeRule(entry.getKey(), 0);
+            }
+            this.writeTables(rules.keySet());
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(MAGIC, 0, MAGIC.length);
+            out.write(VERSION >>> 8);
+            out.write(VERSION);
+            writeVarint(out, this.strings.size());
+            for (final String string : this.strings.keySet()) {
+                final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                if (!string.equals(new String(bytes, StandardCharsets.UTF_8))) {
+                    throw new IllegalArgumentException("A string cannot be represented in UTF-8: " + string);
+                }
+                writeVarint(out, bytes.length);
+                out.write(bytes, 0, bytes.length);
+            }
+            final byte[] body = this.body.toByteArray();
+            out.write(body, 0, body.length);
+
+            final CRC32 crc = new CRC32();
+            final byte[] content = out.toByteArray();
+            crc.update(content, 0, content.length);
+            final int checksum = (int) crc.getValue();
+            return (ByteBuffer) ByteBuffer.allocate(content.length + 4).put(content).putInt(checksum).flip();
+        }
+
+        private void writeRule(final ExceptionRule rule, final int depth) {
+            if (depth >= MAX_RULE_DEPTH) {
+                throw new IllegalArgumentException("Cause rules are nested deeper than " + MAX_RULE_DEPTH + ".");
+            }
+            final ClassRule classRule = rule.classRule();
+            if (classRule instanceof ClassEqualsRule) {
+                this.body.write(CLASS_EQUALS);
+                this.writeString(((ClassEqualsRule) classRule).className());
+            } else if (classRule instanceof ClassExtendsRule) {
+                this.body.write(CLASS_EXTENDS);
+                this.writeString(((ClassExtendsRule) classRule).className());
+            } else if (classRule instanceof ClassEqualsLiterallyRule) {
+                this.body.write(CLASS_EQUALS_LITERALLY);
+                this.writeString(((ClassEqualsLiterallyRule) classRule).className());
+            } else {
+                throw new IllegalStateException("Unexpected class rule: " + classRule);
+            }
+
+            final MessageRule messageRule = rule.messageRule();
+            if (messageRule == null) {
+                writeVarint(this.body, 0);
+            } else {
+                final Map.Entry<String, Object> entry = messageRule.toMap().entrySet().iterator().next();
+                final List<?> patterns = (List<?>) entry.getValue();
+                writeVarint(this.body, patterns.size() + 1);
+                this.body.write(messageRuleType(entry.getKey()));
+                for (final Object pattern : patterns) {
+                    this.writeString((String) pattern);
+                }
+            }
+
+            if (rule.causeRule() == null) {
+                writeVarint(this.body, 0);
+            } else {
+                final List<CauseExceptionRule> causeRules = ((CauseMatchesEitherOfRule) rule.causeRule()).causeRules();
+                writeVarint(this.body, causeRules.size() + 1);
+                for (final CauseExceptionRule causeRule : causeRules) {
+                    this.body.write(causeRule.isDirect() ? 1 : 0);
+                    this.writeRule(causeRule.exceptionRule(), depth + 1);
+                }
+            }
+        }
+
+        /**
+         * Writes tables recorded by building the rules again, without resolving classes.
+         */
+        private void writeTables(final Collection<ExceptionRule> rules) {
+            final RuleTables tables = RuleTables.recording();
+            final RuleContext context = RuleContext.lazy(SortExBinaryFormat.class.getClassLoader()).withTables(tables);
+            for (final ExceptionRule rule : rules) {
+                ExceptionRule.from(rule.toMap(), context);
+            }
+
+            writeVarint(this.body, tables.simplifications().size());
+            for (final Map.Entry<String, Optional<RegexSimplifier.Simplified>> entry : tables.simplifications().entrySet()) {
+                this.writeString(entry.getKey());
+                if (entry.getValue().isPresent()) {
+                    this.body.write(simplifiedKindType(entry.getValue().get().kind()));
+                    writeVarint(this.body, entry.getValue().get().strings().size());
+                    for (final String string : entry.getValue().get().strings()) {
+                        this.writeString(string);
+                    }
+                } else {
+                    this.body.write(NOT_SIMPLIFIED);
+                    writeVarint(this.body, 0);
+                }
+            }
+
+            writeVarint(this.body, tables.requiredLiterals().size());
+            for (final Map.Entry<String, Optional<String>> entry : tables.requiredLiterals().entrySet()) {
+                this.writeString(entry.getKey());
+                if (entry.getValue().isPresent()) {
+                    writeVarint(this.body, this.indexOf(entry.getValue().get()) + 1);
+                } else {
+                    writeVarint(this.body, 0);
+                }
+            }
+
+            writeVarint(this.body, tables.automata().size());
+            for (final Map.Entry<List<String>, AhoCorasick> entry : tables.automata().entrySet()) {
+                writeVarint(this.body, entry.getKey().size());
+                for (final String literal : entry.getKey()) {
+                    this.writeString(literal);
+                }
+                final AhoCorasick automaton = entry.getValue();
+                writeVarint(this.body, automaton.size());
+                for (int node = 0; node < automaton.size(); node++) {
+                    this.body.write((automaton.isTerminal(node) ? TERMINAL : 0) | (automaton.accepts(node) ? ACCEPTS : 0));
+                    writeVarint(this.body, automaton.failure(node));
+                    final char[] labels = automaton.labels(node);
+                    final int[] nexts = automaton.nexts(node);
+                    writeVarint(this.body, labels.length);
+                    for (int i = 0; i < labels.length; i++) {
+                        writeVarint(this.body, labels[i]);
+                        writeVarint(this.body, nexts[i]);
+                    }
+                }
+            }
+
+            final Map<String, int[]> exactMessages = ExactMessageIndex.of(rules.toArray(new ExceptionRule[0])).positions();
+            writeVarint(this.body, exactMessages.size());
+            for (final Map.Entry<String, int[]> entry : exactMessages.entrySet()) {
+                this.writeString(entry.getKey());
+                writeVarint(this.body, entry.getValue().length);
+                int previous = 0;
+                for (final int position : entry.getValue()) {
+                    writeVarint(this.body, position - previous);
+                    previous = position;
+                }
+            }
+        }
+
+        private static byte simplifiedKindType(final RegexSimplifier.Kind kind) {
+            switch (kind) {
+                case EXACT:
+                    return SIMPLIFIED_EXACT;
+                case PREFIX:
+                    return SIMPLIFIED_PREFIX;
+                case SUFFIX:
+                    return SIMPLIFIED_SUFFIX;
+                default:
+                    throw new IllegalStateException("Unexpected simplification: " + kind);
+            }
+        }
+
+        private static byte messageRuleType(final String key) {
+            switch (key) {
+                case MessageMatchesEitherOfRule.KEY:
+                    return MESSAGE_MATCHES_EITHER_OF;
+                case MessageStartsWithRule.KEY:
+                    return MESSAGE_STARTS_WITH;
+                case MessageEndsWithRule.KEY:
+                    return MESSAGE_ENDS_WITH;
+                case MessageContainsRule.KEY:
+                    return MESSAGE_CONTAINS;
+                default:
+                    throw new IllegalStateException("Unexpected message rule: " + key);
+            }
+        }
+
+        private void writeString(final String string) {
+            writeVarint(this.body, this.indexOf(string));
+        }
+
+        private int indexOf(final String string) {
+            Integer index = this.strings.get(string);
+            if (index == null) {
+                index = this.strings.size();
+                this.strings.put(string, index);
+            }
+            return index;
+        }
+
+        private static void writeVarint(final ByteArrayOutputStream out, final int value) {
+            int remaining = value;
+            while ((remaining & ~0x7f) != 0) {
+                out.write((remaining & 0x7f) | 0x80);
+                remaining >>>= 7;
+            }
+            out.write(remaining);
+        }
+
+        private final LinkedHashMap<String, Integer> strings;
+        private final ByteArrayOutputStream body;
+    }
+
+    private static final class Decoded {
+        Decoded(final List<Map<String, Object>> maps, final RuleTables tables) {
+            this.maps = maps;
+            this.tables = tables;
+        }
+
+        private final List<Map<String, Object>> maps;
+        private final RuleTables tables;
+    }
+
+    private static final class Reader {
+        Reader(final ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.strings = new ArrayList<>();
+        }
+
+        Decoded read() {
+            final int stringCount = this.readVarint();
+            for (int i = 0; i < stringCount; i++) {
+                final int length = this.readVarint();
+                if (length > this.buffer.remaining()) {
+                    throw new BufferUnderflowException();
+                }
+                final ByteBuffer slice = this.buffer.slice();
+                slice.limit(length);
+                this.strings.add(StandardCharsets.UTF_8.decode(slice).toString());
+                this.buffer.position(this.buffer.position() + length);
+            }
+
+            final int ruleCount = this.readVarint();
+            final ArrayList<Map<String, Object>> maps = new ArrayList<>();
+            for (int i = 0; i < ruleCount; i++) {
+                final String sortedInto = this.readString();
+                final LinkedHashMap<String, Object> map = this.readRule(0);
+                map.put("sorted_into", sortedInto);
+                maps.add(Collections.unmodifiableMap(map));
+            }
+            final RuleTables tables = this.readTables(ruleCount);
+            if (this.buffer.hasRemaining()) {
+                throw new IllegalArgumentException("The binary for SortEx is broken: trailing bytes.");
+            }
+            return new Decoded(Collections.unmodifiableList(maps), tables);
+        }
+
+        private RuleTables readTables(final int ruleCount) {
+            final LinkedHashMap<String, Optional<RegexSimplifier.Simplified>> simplifications = new LinkedHashMap<>();
+            final int simplificationCount = this.readCount();
+            for (int i = 0; i < simplificationCount; i++) {
+                final String regex = this.readString();
+                final byte kindType = this.buffer.get();
+                final int stringCount = this.readCount();
+                final LinkedHashSet<String> strings = new LinkedHashSet<>();
+                for (int j = 0; j < stringCount; j++) {
+                    strings.add(this.readString());
+                }
+                if (kindType == NOT_SIMPLIFIED) {
+                    simplifications.put(regex, Optional.empty());
+                } else {
+                    simplifications.put(regex, Optional.of(RegexSimplifier.Simplified.of(readSimplifiedKind(kindType), strings)));
+                }
+            }
+
+            final LinkedHashMap<String, Optional<String>> requiredLiterals = new LinkedHashMap<>();
+            final int requiredLiteralCount = this.readCount();
+            for (int i = 0; i < requiredLiteralCount; i++) {
+                final String regex = this.readString();
+                final int literalIndex = this.readVarint();
+                requiredLiterals.put(regex, literalIndex == 0 ? Optional.empty() : Optional.of(this.strings.get(literalIndex - 1)));
+            }
+
+            final LinkedHashMap<List<String>, AhoCorasick> automata = new LinkedHashMap<>();
+            final int automatonCount = this.readCount();
+            for (int i = 0; i < automatonCount; i++) {
+                final int literalCount = this.readCount();
+                final ArrayList<String> literals = new ArrayList<>();
+                for (int j = 0; j < literalCount; j++) {
+                    literals.add(this.readString());
+                }
+                automata.put(Collections.unmodifiableList(literals), this.readAutomaton());
+            }
+
+            final HashMap<String, int[]> exactMessages = new HashMap<>();
+            final int exactMessageCount = this.readCount();
+            for (int i = 0; i < exactMessageCount; i++) {
+                final String message = this.readString();
+                final int[] positions = new int[this.readCount()];
+                int previous = 0;
+                for (int j = 0; j < positions.length; j++) {
+                    positions[j] = previous + this.readVarint();
+                    if (positions[j] < 0 || positions[j] >= ruleCount) {
+                        throw new IllegalArgumentException("The binary for SortEx is broken: invalid position " + positions[j] + ".");
+                    }
+                    previous = positions[j];
+                }
+                exactMessages.put(message, positions);
+            }
+
+            return RuleTables.of(simplifications, requiredLiterals, automata, exactMessages);
+        }
+
+        private AhoCorasick readAutomaton() {
+            final int size = this.readCount();
+            final char[][] labels = new char[size][];
+            final int[][] nexts = new int[size][];
+            final int[] failures = new int[size];
+            final boolean[] terminals = new boolean[size];
+            final boolean[] accepts = new boolean[size];
+            for (int node = 0; node < size; node++) {
+                final byte flags = this.buffer.get();
+                terminals[node] = (flags & TERMINAL) != 0;
+                accepts[node] = (flags & ACCEPTS) != 0;
+                failures[node] = this.readVarint();
+                final int transitionCount = this.readCount();
+                labels[node] = new char[transitionCount];
+                nexts[node] = new int[transitionCount];
+                for (int i = 0; i < transitionCount; i++) {
+                    final int label = this.readVarint();
+                    if (label > Character.MAX_VALUE) {
+                        throw new IllegalArgumentException("The binary for SortEx is broken: invalid character " + label + ".");
+                    }
+                    labels[node][i] = (char) label;
+                    nexts[node][i] = this.readVarint();
+                }
+            }
+            try {
+                return AhoCorasick.restore(labels, nexts, failures, terminals, accepts);
+            } catch (final IllegalArgumentException ex) {
+                throw new IllegalArgumentException("The binary for SortEx is broken: invalid automaton.", ex);
+            }
+        }
+
+        private static RegexSimplifier.Kind readSimplifiedKind(final byte kindType) {
+            switch (kindType) {
+                case SIMPLIFIED_EXACT:
+                    return RegexSimplifier.Kind.EXACT;
+                case SIMPLIFIED_PREFIX:
+                    return RegexSimplifier.Kind.PREFIX;
+                case SIMPLIFIED_SUFFIX:
+                    return RegexSimplifier.Kind.SUFFIX;
+                default:
+                    throw new IllegalArgumentException("The binary for SortEx is broken: unknown simplification " + kindType + ".");
+            }
+        }
+
+        private LinkedHashMap<String, Object> readRule(final int depth) {
+            if (depth >= MAX_RULE_DEPTH) {
+                throw new IllegalArgumentException("The binary for SortEx is broken: cause rules are nested deeper than " + MAX_RULE_DEPTH + ".");
+            }
+            final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+            final byte classRuleType = this.buffer.get();
+            switch (classRuleType) {
+                case CLASS_EQUALS:
+                    map.put(ClassEqualsRule.KEY, this.readString());
+                    break;
+                case CLASS_EXTENDS:
+                    map.put(ClassExtendsRule.KEY, this.readString());
+                    break;
+                case CLASS_EQUALS_LITERALLY:
+                    map.put(ClassEqualsLiterallyRule.KEY, this.readString());
+                    break;
+                default:
+                    throw new IllegalArgumentException("The binary for SortEx is broken: unknown class rule " + classRuleType + ".");
+            }
+
+            final int patternCount = this.readVarint();
+            if (patternCount > 0) {
+                final String key = this.readMessageRuleKey();
+                final ArrayList<String> patterns = new ArrayList<>();
+                for (int i = 0; i < patternCount - 1; i++) {
+                    patterns.add(this.readString());
+                }
+                map.put(key, Collections.unmodifiableList(patterns));
+            }
+
+            final int causeCount = this.readVarint();
+            if (causeCount > 0) {
+                final ArrayList<Map<String, Object>> causes = new ArrayList<>();
+                for (int i = 0; i < causeCount - 1; i++) {
+                    final boolean isDirect = this.buffer.get() != 0;
+                    final LinkedHashMap<String, Object> cause = this.readRule(depth + 1);
+                    cause.put("direct", isDirect);
+                    causes.add(Collections.unmodifiableMap(cause));
+                }
+                map.put(CauseMatchesEitherOfRule.KEY, Collections.unmodifiableList(causes));
+            }
+            return map;
+        }
+
+        private String readMessageRuleKey() {
+            final byte messageRuleType = this.buffer.get();
+            switch (messageRuleType) {
+                case MESSAGE_MATCHES_EITHER_OF:
+                    return MessageMatchesEitherOfRule.KEY;
+                case MESSAGE_STARTS_WITH:
+                    return MessageStartsWithRule.KEY;
+                case MESSAGE_ENDS_WITH:
+                    return MessageEndsWithRule.KEY;
+                case MESSAGE_CONTAINS:
+                    return MessageContainsRule.KEY;
+                default:
+                    throw new IllegalArgumentException("The binary for SortEx is broken: unknown message rule " + messageRuleType + ".");
+            }
+        }
+
+        /**
+         * Reads a count of elements, each of which takes at least one byte, not to allocate more than the binary.
+         */
+        private int readCount() {
+            final int count = this.readVarint();
+            if (count > this.buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            return count;
+        }
+
+        private String readString() {
+            return this.strings.get(this.readVarint());
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                final byte b = this.buffer.get();
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    if (value < 0) {
+                        break;
+                    }
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("The binary for SortEx is broken: invalid integer.");
+        }
+
+        private final ByteBuffer buffer;
+        private final ArrayList<String> strings;
+    }
+
+    private static final byte[] MAGIC = { 'S', 'R', 'T', 'X' };
+    private static final int VERSION = 1;
+
+    // The maximum number of nested exception rules including the top-level one.
+    private static final int MAX_RULE_DEPTH = 64;
+
+    private static final byte CLASS_EQUALS = 1;
+    private static final byte CLASS_EXTENDS = 2;
+    private static final byte CLASS_EQUALS_LITERALLY = 3;
+
+    private static final byte MESSAGE_MATCHES_EITHER_OF = 1;
+    private static final byte MESSAGE_STARTS_WITH = 2;
+    private static final byte MESSAGE_ENDS_WITH = 3;
+    private static final byte MESSAGE_CONTAINS = 4;
+
+    private static final byte NOT_SIMPLIFIED = 0;
+    private static final byte SIMPLIFIED_EXACT = 1;
+    private static final byte SIMPLIFIED_PREFIX = 2;
+    private static final byte SIMPLIFIED_SUFFIX = 3;
+
+    private static final int TERMINAL = 1;
+    private static final int ACCEPTS = 2;
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+/**
+ * A snapshot of statistics of the result cache of a {@link SortEx} instance.
+ *
+ * <p>It is taken from a {@link SortEx} instance created by {@link SortEx#withResultCache(int)}. Counters are read one
+ * by one while classifications may be running. A snapshot may not be consistent exactly among counters.
+ */
+public final class SortExCacheStatistics {
+    SortExCacheStatistics(final long hits, final long misses, final long evictions, final int size, final int capacity) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the number of lookups that found a cached result.
+     *
+     * @return the number of lookups that found a cached result
+     */
+    public long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a cached result, including ones that cannot be cached.
+     *
+     * @return the number of lookups that did not find a cached result
+     */
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Returns the number of cached results evicted to cache other results.
+     *
+     * @return the number of cached results evicted
+     */
+    public long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Returns the number of cached results.
+     *
+     * @return the number of cached results
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Returns the maximum number of cached results, which is the requested size rounded up.
+     *
+     * @return the maximum number of cached results
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    @Override
+    public String toString() {
+        return "{hits=" + this.hits + ", misses=" + this.misses + ", evictions=" + this.evictions
+                + ", size=" + this.size + ", capacity=" + this.capacity + "}";
+    }
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+    private final int capacity;
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates Java source code of a class that builds a {@link SortEx} instance without parsing the DSL at runtime.
+ *
+ * <p>It is to run at build time, for example, in a Gradle task. The generated class has a static {@code create()}
+ * method that passes the DSL to {@link SortEx#fromLazily(List, Class, ClassLoader)} with {@code enum} constants instead
+ * of their names. Creating a {@link SortEx} instance from the generated class does not parse YAML or JSON, does not
+ * look up {@code enum} constants reflectively, and does not load the exception classes until an exception of the same
+ * name is sorted. The Java compiler checks that the {@code enum} constants exist.
+ *
+ * <blockquote><pre>{@code  // It generates a class "com.example.ErrorRules" that creates SortEx<com.example.ErrorKind>.
+ * final String source = SortExSourceGenerator.generate(maps, "com.example.ErrorKind", "com.example", "ErrorRules");
+ *
+ * // At runtime:
+ * final SortEx<ErrorKind> sortex = ErrorRules.create();}</pre></blockquote>
+ *
+ * <p>{@link #generateWithClassLiterals(List, String, String, String)} generates {@link java.lang.Class} literals
+ * instead of class names, and passes them to {@link SortEx#from(List, Class)}. The Java compiler then checks that the
+ * classes exist, but all the classes are loaded, and the rules are compiled eagerly, when {@code create()} is called.
+ */
+public final class SortExSourceGenerator {
+    private SortExSourceGenerator() {
+        // No instantiation.
+    }
+
+    /**
+     * Generates Java source code of a class that builds a {@link SortEx} instance from a {@link java.util.Map}-based DSL.
+     *
+     * <p>The generated {@code create()} method calls {@link SortEx#fromLazily(List, Class, ClassLoader)} with the class
+     * loader of the generated class. Classes in the DSL are left as their names.
+     *
+     * <p>The DSL is validated in the same way as {@link SortEx#fromLazily(List, Class)} except for {@code sorted_into},
+     * which is checked by the Java compiler when the generated code is compiled. Classes in the DSL are not loaded when
+     * generating, and they do not need to be loadable.
+     *
+     * @param maps  a {@link java.util.Map}-based DSL representation
+     * @param enumClassName  the canonical name of the {@link java.lang.Enum} class to sort into, such as {@code "com.example.ErrorKind"}
+     * @param packageName  the package of the class to generate, or an empty string for the unnamed package
+     * @param className  the simple name of the class to generate
+     * @return Java source code of the class
+     */
+    public static String generate(
+            final List<Map<String, Object>> maps,
+            final String enumClassName,
+            final String packageName,
+            final String className) {
+        return generate(maps, enumClassName, packageName, className, false);
+    }
+
+    /**
+     * Generates Java source code of a class that builds a {@link SortEx} instance with {@link java.lang.Class} literals.
+     *
+     * <p>The generated {@code create()} method calls {@link SortEx#from(List, Class)}, which loads all the classes and
+     * compiles the rules eagerly. It is for those who want the Java compiler to check that the classes exist. A class
+     * that is not accessible from the generated class, such as a non-public class, is left as its name, and it is
+     * resolved at runtime as {@link SortEx#from(List, Class)} does.
+     *
+     * <p>The DSL is validated in the same way as {@link SortEx#from(List, Class)} except for {@code sorted_into}.
+     * Classes in the DSL must be loadable when generating.
+     *
+     * @param maps  a {@link java.util.Map}-based DSL representation
+     * @param enumClassName  the canonical name of the {@link java.lang.Enum} class to sort into, such as {@code "com.example.ErrorKind"}
+     * @param packageName  the package of the class to generate, or an empty string for the unnamed package
+     * @param className  the simple name of the class to generate
+     * @return Java source code of the class
+     */
+    public static String generateWithClassLiterals(
+            final List<Map<String, Object>> maps,
+            final String enumClassName,
+            final String packageName,
+            final String className) {
+        return generate(maps, enumClassName, packageName, className, true);
+    }
+
+    private static String generate(
+            final List<Map<String, Object>> maps,
+            final String enumClassName,
+            final String packageName,
+            final String className,
+            final boolean withClassLiterals) {
+        final RuntimeExceptionBuilder exceptionBuilder = new RuntimeExceptionBuilder();
+        if (maps == null) {
+            exceptionBuilder.add(new NullPointerException("Value of \"maps\" is null."));
+        }
+        if (enumClassName == null || !isQualifiedName(enumClassName)) {
+            exceptionBuilder.add(new IllegalArgumentException("Value of \"enumClassName\" is not a qualified name: " + enumClassName));
+        }
+        if (packageName == null || !(packageName.isEmpty() || isQualifiedName(packageName))) {
+            exceptionBuilder.add(new IllegalArgumentException("Value of \"packageName\" is not a qualified name: " + packageName));
+        }
+        if (className == null || !isIdentifier(className)) {
+            exceptionBuilder.add(new IllegalArgumentException("Value of \"className\" is not an identifier: " + className));
+        }
+        if (exceptionBuilder.isPresent()) {
+            throw exceptionBuilder.get();
+        }
+
+        // Without class literals, classes are not resolved so that ClassEqualsRule#clazz() and ClassExtendsRule#clazz() are null.
+        final RuleContext context = withClassLiterals ? RuleContext.eager() : RuleContext.lazy(SortExSourceGenerator.class.getClassLoader());
+        final LinkedHashSet<ExceptionRule> rules = new LinkedHashSet<>();
+        final ArrayList<String> targets = new ArrayList<>();
+        for (final Map<String, Object> map : maps) {
+            final ExceptionRule rule;
+            try {
+                rule = ExceptionRule.from(map, context);
+            } catch (final RuntimeException ex) {
+                exceptionBuilder.add(ex);
+                continue;
+            }
+
+            final Object sortedIntoObject = map.get("sorted_into");
+            if (!(sortedIntoObject instanceof String) || !isIdentifier((String) sortedIntoObject)) {
+                exceptionBuilder.add(new IllegalArgumentException(
+                        "Value of \"sorted_into\" is not a name of an enum constant: " + sortedIntoObject));
+                continue;
+            }
+
+            if (!rules.add(rule)) {
+                exceptionBuilder.add(new IllegalArgumentException("The exception rule is duplicated: " + rule.toString()));
+                continue;
+            }
+            targets.add((String) sortedIntoObject);
+        }
+        if (exceptionBuilder.isPresent()) {
+            throw exceptionBuilder.get();
+        }
+
+        return new SourceBuilder(enumClassName, packageName, className, withClassLiterals).build(new ArrayList<>(rules), targets);
+    }
+
+    private static final class SourceBuilder {
+        SourceBuilder(final String enumClassName, final String packageName, final String className, final boolean withClassLiterals) {
+            this.enumClassName = enumClassName;
+            this.packageName = packageName;
+            this.className = className;
+            this.withClassLiterals = withClassLiterals;
+            this.source = new StringBuilder();
+        }
+
+        String build(final List<ExceptionRule> rules, final List<String> targets) {
+            this.line(0, "// Generated by " + SortExSourceGenerator.class.getName() + ". Do not edit.");
+            if (!this.packageName.isEmpty()) {
+                this.line(0, "package " + this.packageName + ";");
+            }
+            this.line(0, "");
+            this.line(0, "import dev.jigue.sortex.SortEx;");
+            this.line(0, "import java.util.ArrayList;");
+            this.line(0, "import java.util.Arrays;");
+            this.line(0, "import java.util.LinkedHashMap;");
+            this.line(0, "import java.util.List;");
+            this.line(0, "import java.util.Map;");
+            this.line(0, "");
+            this.line(0, "public final class " + this.className + " {");
+            this.line(1, "private " + this.className + "() {");
+            this.line(2, "// No instantiation.");
+            this.line(1, "}");
+            this.line(0, "");
+            this.line(1, "public static SortEx<" + this.enumClassName + "> create() {");
+            this.line(2, "final ArrayList<Map<String, Object>> rules = new ArrayList<>();");
+            final int chunks = (rules.size() + RULES_PER_METHOD - 1) / RULES_PER_METHOD;
+            for (int i = 0; i < chunks; i++) {
+                this.line(2, "addRules" + i + "(rules);");
+            }
+            if (this.withClassLiterals) {
+                this.line(2, "return SortEx.from(rules, " + this.enumClassName + ".class);");
+            } else {
+                this.line(2, "return SortEx.fromLazily(rules, " + this.enumClassName + ".class, " + this.className + ".class.getClassLoader());");
+            }
+            this.line(1, "}");
+
+            // Rules are split into methods so that a method does not exceed the limit of 64KB bytecode.
+            for (int i = 0; i < chunks; i++) {
+                this.line(0, "");
+                this.line(1, "private static void addRules" + i + "(final List<Map<String, Object>> rules) {");
+                final int end = Math.min(rules.size(), (i + 1) * RULES_PER_METHOD);
+                for (int j = i * RULES_PER_METHOD; j < end; j++) {
+                    this.source.append(indent(2)).append("rules.add(");
+                    this.appendRule(rules.get(j), 2, "\"sorted_into\"", this.enumClassName + "." + targets.get(j));
+                    this.source.append(");\n");
+                }
+                this.line(1, "}");
+            }
+
+            this.line(0, "");
+            this.line(1, "private static Map<String, Object> rule(final Object... keysAndValues) {");
+            this.line(2, "final LinkedHashMap<String, Object> map = new LinkedHashMap<>();");
+            this.line(2, "for (int i = 0; i < keysAndValues.length; i += 2) {");
+            this.line(3, "map.put((String) keysAndValues[i], keysAndValues[i + 1]);");
+            this.line(2, "}");
+            this.line(2, "return map;");
+            this.line(1, "}");
+            this.line(0, "}");
+            return this.source.toString();
+        }
+
+        /**
+         * Appends {@code rule(...)} for an exception rule, and the last key and value, {@code sorted_into} or {@code direct}.
+         */
+        private void appendRule(final ExceptionRule rule, final int depth, final String lastKey, final String lastValue) {
+            this.source.append("rule(");
+
+            final ClassRule classRule = rule.classRule();
+            if (classRule instanceof ClassEqualsRule) {
+                final ClassEqualsRule classEqualsRule = (ClassEqualsRule) classRule;
+                this.appendEntry(depth, ClassEqualsRule.KEY, classLiteral(classEqualsRule.clazz(), classEqualsRule.className()));
+            } else if (classRule instanceof ClassExtendsRule) {
+                final ClassExtendsRule classExtendsRule = (ClassExtendsRule) classRule;
+                this.appendEntry(depth, ClassExtendsRule.KEY, classLiteral(classExtendsRule.clazz(), classExtendsRule.className()));
+            } else if (classRule instanceof ClassEqualsLiterallyRule) {
+                this.appendEntry(depth, ClassEqualsLiterallyRule.KEY, stringLiteral(((ClassEqualsLiterallyRule) classRule).className()));
+            } else {
+                throw new IllegalStateException("Unexpected class rule: " + classRule);
+            }
+
+            if (rule.messageRule() != null) {
+                for (final Map.Entry<String, Object> entry : rule.messageRule().toMap().entrySet()) {
+                    this.source.append(",");
+                    this.appendEntry(depth, entry.getKey(), stringListLiteral((List<?>) entry.getValue()));
+                }
+            }
+
+            if (rule.causeRule() != null) {
+                if (!(rule.causeRule() instanceof CauseMatchesEitherOfRule)) {
+                    throw new IllegalStateException("Unexpected cause rule: " + rule.causeRule());
+                }
+                this.source.append(",\n").append(indent(depth + 2))
+                        .append(stringLiteral(CauseMatchesEitherOfRule.KEY)).append(", Arrays.asList(");
+                final List<CauseExceptionRule> causeRules = ((CauseMatchesEitherOfRule) rule.causeRule()).causeRules();
+                for (int i = 0; i < causeRules.size(); i++) {
+                    this.source.append(i == 0 ? "\n" : ",\n").append(indent(depth + 4));
+                    this.appendRule(causeRules.get(i).exceptionRule(), depth + 4, "\"direct\"", Boolean.toString(causeRules.get(i).isDirect()));
+                }
+                this.source.append(")");
+            }
+
+            this.source.append(",\n").append(indent(depth + 2)).append(lastKey).append(", ").append(lastValue).append(")");
+        }
+
+        private void appendEntry(final int depth, final String key, final String value) {
+            this.source.append("\n").append(indent(depth + 2)).append(stringLiteral(key)).append(", ").append(value);
+        }
+
+        private void line(final int depth, final String line) {
+            if (!line.isEmpty()) {
+                this.source.append(indent(depth)).append(line);
+            }
+            this.source.append("\n");
+        }
+
+        private final String enumClassName;
+        private final String packageName;
+        private final String className;
+        private final boolean withClassLiterals;
+        private final StringBuilder source;
+    }
+
+    private static String classLiteral(final Class<?> clazz, final String className) {
+        if (clazz == null) {
+            return stringLiteral(className);  // Not resolved, to be resolved lazily at runtime.
+        }
+        for (Class<?> enclosing = clazz; enclosing != null; enclosing = enclosing.getEnclosingClass()) {
+            if (!Modifier.isPublic(enclosing.getModifiers()) || enclosing.getCanonicalName() == null) {
+                return stringLiteral(clazz.getName());  // Resolved at runtime.
+            }
+        }
+        return clazz.getCanonicalName() + ".class";
+    }
+
+    private static String stringListLiteral(final List<?> values) {
+        final StringBuilder builder = new StringBuilder("Arrays.asList(");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(stringLiteral((String) values.get(i)));
+        }
+        return builder.append(")").toString();
+    }
+
+    static String stringLiteral(final String value) {
+        final StringBuilder builder = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        // An octal escape, not a Unicode escape, because Unicode escapes are translated before lexing.
+                        builder.append(String.format("\\%03o", (int) c));
+                    } else if (c < 0x7f) {
+                        builder.append(c);
+                    } else {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    }
+                    break;
+            }
+        }
+        return builder.append("\"").toString();
+    }
+
+    private static boolean isQualifiedName(final String name) {
+        for (final String part : name.split("\\.", -1)) {
+            if (!isIdentifier(part)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIdentifier(final String name) {
+        if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String indent(final int depth) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            builder.append("    ");
+        }
+        return builder.toString();
+    }
+
+    private static final int RULES_PER_METHOD = 200;
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of per-rule statistics of a {@link SortEx} instance.
+ *
+ * <p>It is taken from a {@link SortEx} instance created by {@link SortEx#withStatistics()}. An "evaluation" of a rule
+ * is counted when a {@link java.lang.Throwable} instance passes the class rule, and the rest of the rule is evaluated.
+ * Rules whose class rule does not match are skipped by the class dispatch index, and they are not counted.
+ *
+ * <p>Counters are read one by one while classifications may be running. A snapshot may not be consistent exactly among
+ * counters, but each counter is accurate.
+ */
+public final class SortExStatistics {
+    SortExStatistics(final List<Rule> rules, final long unmatched) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+        this.unmatched = unmatched;
+    }
+
+    /**
+     * Statistics of a rule.
+     */
+    public static final class Rule {
+        Rule(final Map<String, Object> rule, final long evaluations, final long hits, final long nanos) {
+            this.rule = rule;
+            this.evaluations = evaluations;
+            this.hits = hits;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Returns a {@link java.util.Map}-based DSL representation of the rule, including {@code sorted_into}.
+         *
+         * @return a {@link java.util.Map}-based DSL representation of the rule, not null
+         */
+        public Map<String, Object> getRule() {
+            return this.rule;
+        }
+
+        /**
+         * Returns the number of times the rule was evaluated.
+         *
+         * @return the number of times the rule was evaluated
+         */
+        public long getEvaluations() {
+            return this.evaluations;
+        }
+
+        /**
+         * Returns the number of times the rule matched, and a {@link java.lang.Throwable} instance was sorted by the rule.
+         *
+         * @return the number of times the rule matched
+         */
+        public long getHits() {
+            return this.hits;
+        }
+
+        /**
+         * Returns the cumulative nanoseconds spent for evaluating the rule.
+         *
+         * @return the cumulative nanoseconds spent for evaluating the rule
+         */
+        public long getNanos() {
+            return this.nanos;
+        }
+
+        @Override
+        public String toString() {
+            return "{rule=" + this.rule + ", evaluations=" + this.evaluations + ", hits=" + this.hits + ", nanos=" + this.nanos + "}";
+        }
+
+        private final Map<String, Object> rule;
+        private final long evaluations;
+        private final long hits;
+        private final long nanos;
+    }
+
+    /**
+     * Returns statistics of the rules in the same order with the rules in {@link SortEx}.
+     *
+     * @return statistics of the rules, not null
+     */
+    public List<Rule> getRules() {
+        return this.rules;
+    }
+
+    /**
+     * Returns the number of {@link java.lang.Throwable} instances that matched none of the rules.
+     *
+     * @return the number of {@link java.lang.Throwable} instances that matched none of the rules
+     */
+    public long getUnmatched() {
+        return this.unmatched;
+    }
+
+    @Override
+    public String toString() {
+        return "{rules=" + this.rules + ", unmatched=" + this.unmatched + "}";
+    }
+
+    private final List<Rule> rules;
+    private final long unmatched;
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import javax.management.MXBean;
+
+/**
+ * A JMX MXBean interface to expose per-rule statistics of a {@link SortEx} instance.
+ *
+ * <p>Get its instance by {@link SortEx#statisticsBean()}, and register it into an {@link javax.management.MBeanServer}.
+ * Each array has the same length with the number of rules, and its elements are in the same order with the rules.
+ */
+@MXBean
+public interface SortExStatisticsBean {
+    /**
+     * Returns string representations of the rules.
+     *
+     * @return string representations of the rules
+     */
+    String[] getRules();
+
+    /**
+     * Returns the number of times each rule was evaluated.
+     *
+     * @return the number of times each rule was evaluated
+     */
+    long[] getEvaluations();
+
+    /**
+     * Returns the number of times each rule matched.
+     *
+     * @return the number of times each rule matched
+     */
+    long[] getHits();
+
+    /**
+     * Returns the cumulative nanoseconds spent for evaluating each rule.
+     *
+     * @return the cumulative nanoseconds spent for evaluating each rule
+     */
+    long[] getNanos();
+
+    /**
+     * Returns the number of {@link java.lang.Throwable} instances that matched none of the rules.
+     *
+     * @return the number of {@link java.lang.Throwable} instances that matched none of the rules
+     */
+    long getUnmatched();
+}
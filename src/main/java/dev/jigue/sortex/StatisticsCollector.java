@@ -0,0 +1,70 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects per-rule statistics of a {@link SortEx} instance.
+ *
+ * <p>Counters are {@link java.util.concurrent.atomic.LongAdder}s so that concurrent classifications do not contend.
+ */
+final class StatisticsCollector {
+    StatisticsCollector(final int size) {
+        this.evaluations = newLongAdders(size);
+        this.hits = newLongAdders(size);
+        this.nanos = newLongAdders(size);
+        this.unmatched = new LongAdder();
+    }
+
+    void recordEvaluation(final int position, final boolean isHit, final long elapsedNanos) {
+        this.evaluations[position].increment();
+        this.nanos[position].add(elapsedNanos);
+        if (isHit) {
+            this.hits[position].increment();
+        }
+    }
+
+    void recordUnmatched() {
+        this.unmatched.increment();
+    }
+
+    SortExStatistics snapshot(final List<Map<String, Object>> rules) {
+        final ArrayList<SortExStatistics.Rule> ruleStatistics = new ArrayList<>();
+        for (int i = 0; i < this.evaluations.length; i++) {
+            ruleStatistics.add(new SortExStatistics.Rule(
+                    rules.get(i), this.evaluations[i].sum(), this.hits[i].sum(), this.nanos[i].sum()));
+        }
+        return new SortExStatistics(ruleStatistics, this.unmatched.sum());
+    }
+
+    private static LongAdder[] newLongAdders(final int size) {
+        final LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private final LongAdder[] evaluations;
+    private final LongAdder[] hits;
+    private final LongAdder[] nanos;
+    private final LongAdder unmatched;
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.jigue.sortex;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An exception that builds its message on demand, and counts how many times its message is retrieved.
+ */
+public final class MessageCountingException extends RuntimeException {
+    public MessageCountingException(final String message) {
+        super(message);
+        this.count = new AtomicInteger();
+    }
+
+    @Override
+    public String getMessage() {
+        this.count.incrementAndGet();
+        return super.getMessage();
+    }
+
+    public int getCountAndReset() {
+        return this.count.getAndSet(0);
+    }
+
+    private final AtomicInteger count;
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class TestAdaptiveDispatch {
+    @Test
+    public void testReorder() {
+        final ClassDispatchIndex index = ClassDispatchIndex.of(YamlUtil.loadRulesFromResource("sortex_rules/example4.yml"));
+        final AdaptiveDispatch adaptive = new AdaptiveDispatch(index);
+
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, adaptive.order(IllegalStateException.class));
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(3, adaptive.find(new IllegalStateException("d"), null));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(2, adaptive.find(new IllegalStateException("c"), null));
+        }
+        assertEquals(1, adaptive.find(new IllegalStateException("bb"), null));
+        adaptive.reorder();
+
+        // "a" (0), "c" (2), and "d" (3) are exclusive with each other. But, "b" (1) has a regex, and it is not provably
+        // exclusive with the others. "c" (2) and "d" (3) must stay after "b" (1), and "d" (3) is hit more than "c" (2).
+        // The last rule (4) has no message rule, and it must stay at the last.
+        assertArrayEquals(new int[] { 0, 1, 3, 2, 4 }, adaptive.order(IllegalStateException.class));
+
+        // The results are not changed.
+        assertEquals(0, adaptive.find(new IllegalStateException("a"), null));
+        assertEquals(1, adaptive.find(new IllegalStateException("b"), null));
+        assertEquals(2, adaptive.find(new IllegalStateException("c"), null));
+        assertEquals(3, adaptive.find(new IllegalStateException("d"), null));
+        assertEquals(4, adaptive.find(new IllegalStateException("e"), null));
+        assertEquals(-1, adaptive.find(new Exception("a"), null));
+
+        // Candidates of another class are ordered independently.
+        assertArrayEquals(new int[] { 3, 4 }, adaptive.order(IllegalArgumentException.class));
+    }
+}
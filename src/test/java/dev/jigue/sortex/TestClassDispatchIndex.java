@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.junit.jupiter.api.Test;
+
+public class TestClassDispatchIndex {
+    @Test
+    public void testCandidates() {
+        final ClassDispatchIndex index = ClassDispatchIndex.of(YamlUtil.loadRulesFromResource("sortex_rules/example3.yml"));
+
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, index.candidates(UncheckedIOException.class));
+        assertArrayEquals(new int[] { 0, 3 }, index.candidates(IllegalStateException.class));
+        assertArrayEquals(new int[] { 3 }, index.candidates(IOException.class));
+        assertArrayEquals(new int[] {}, index.candidates(AssertionError.class));
+    }
+
+    @Test
+    public void testMemoized() {
+        final ClassDispatchIndex index = ClassDispatchIndex.of(YamlUtil.loadRulesFromResource("sortex_rules/example3.yml"));
+
+        assertSame(index.candidates(UncheckedIOException.class), index.candidates(UncheckedIOException.class));
+        assertEquals(2, index.find(new UncheckedIOException("third", new IOException())));
+        assertEquals(-1, index.find(new AssertionError("first")));
+    }
+
+    @Test
+    public void testSharedPredicates() {
+        final ClassDispatchIndex index = ClassDispatchIndex.of(YamlUtil.loadRulesFromResource("sortex_rules/example5.yml"));
+        assertEquals(4, index.plan(CountingException.class).countPredicates());
+
+        final CountingException unmatched = new CountingException("baz", new IOException());
+        assertEquals(-1, index.find(unmatched));
+        assertEquals(1, unmatched.messages);  // Looked up once for "foo" and "bar" in the exact message index
+        assertEquals(0, unmatched.causes);
+
+        final CountingException second = new CountingException("foo", new IllegalStateException());
+        assertEquals(1, index.find(second));
+        assertEquals(1, second.messages);
+
+        final CountingException fourth = new CountingException("foo", new IllegalArgumentException());
+        assertEquals(3, index.find(fourth));
+        assertEquals(1, fourth.messages);  // Looked up once for "foo" and "bar" in the exact message index
+        assertEquals(2, fourth.causes);  // IOException and IllegalStateException once each
+
+        final CountingException third = new CountingException("bar", new IOException());
+        assertEquals(2, index.find(third));
+        assertEquals(1, third.messages);
+        assertEquals(1, third.causes);
+    }
+
+    private static final class CountingException extends RuntimeException {
+        CountingException(final String message, final Throwable cause) {
+            super(message, cause);
+        }
+
+        @Override
+        public String getMessage() {
+            this.messages++;
+            return super.getMessage();
+        }
+
+        @Override
+        public synchronized Throwable getCause() {
+            this.causes++;
+            return super.getCause();
+        }
+
+        private int messages;
+        private int causes;
+    }
+}
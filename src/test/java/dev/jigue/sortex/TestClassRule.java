@@ -55,6 +55,27 @@ public class TestClassRule {
                 "class_extends", "java.io.IOException");
     }
 
+    @Test
+    public void testClassObject() {
+        final HashMap<String, Object> equalsMap = new HashMap<>();
+        equalsMap.put("class_equals", IOException.class);
+        assertEquals(ClassEqualsRule.of(IOException.class), ClassRule.from(equalsMap));
+
+        final HashMap<String, Object> extendsMap = new HashMap<>();
+        extendsMap.put("class_extends", IOException.class);
+        assertEquals(ClassExtendsRule.of(IOException.class), ClassRule.from(extendsMap));
+
+        try {
+            final HashMap<String, Object> map = new HashMap<>();
+            map.put("class_equals", String.class);
+            ClassRule.from(map);
+            fail("No expected Exception is thrown.");
+        } catch (final IllegalArgumentException ex) {
+            assertTrue(ex.getCause() instanceof ClassCastException);
+            assertEquals("Class java.lang.String is not Throwable.", ex.getCause().getMessage());
+        }
+    }
+
     @Test
     public void testEmpty() {
         try {
@@ -76,7 +97,7 @@ public class TestClassRule {
             assertEquals("Invalid class rule: class_equals", ex.getMessage());
             final Throwable cause = ex.getCause();
             assertTrue(cause instanceof ClassCastException);
-            assertEquals("Value of \"class_equals\" is not a string.", cause.getMessage());
+            assertEquals("Value of \"class_equals\" is neither a string nor a class.", cause.getMessage());
             assertEquals(0, ex.getSuppressed().length);
         }
     }
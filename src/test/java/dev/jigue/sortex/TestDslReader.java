@@ -0,0 +1,161 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class TestDslReader {
+    @Test
+    public void testSameAsSnakeYaml() throws IOException {
+        for (final String resource : RESOURCES) {
+            try (final InputStream input = TestDslReader.class.getClassLoader().getResourceAsStream(resource)) {
+                assertEquals(YamlUtil.loadListFromResource(resource), readAll(new InputStreamReader(input, StandardCharsets.UTF_8)), resource);
+            }
+        }
+    }
+
+    @Test
+    public void testYaml() throws IOException {
+        final String yaml = "---\n"
+                + "# A comment.\n"
+                + "- class_equals: java.io.UncheckedIOException  # Exact match.\n"
+                + "  message_matches_either_of:\n"
+                + "  - \"Unexpected # not a comment\"\n"
+                + "  - '/it''s .+/'\n"
+                + "  - 'it''s # not a comment'  # A comment.\n"
+                + "  cause_matches_either_of:\n"
+                + "    -\n"
+                + "      class_extends: java.io.IOException\n"
+                + "      message_matches_either_of: [\"a\\tb\", plain, '\\n', ''' # x']\n"
+                + "      direct: true\r\n"
+                + "  sorted_into: EXPECTED_1\r\n"
+                + "\n"
+                + "- {class_equals: java.lang.IllegalStateException, sorted_into: \"EXPECTED_2\"}\n"
+                + "...\n"
+                + "ignored\n";
+
+        final LinkedHashMap<String, Object> cause = new LinkedHashMap<>();
+        cause.put("class_extends", "java.io.IOException");
+        cause.put("message_matches_either_of", Arrays.asList("a\tb", "plain", "\\n", "' # x"));
+        cause.put("direct", true);
+        final LinkedHashMap<String, Object> first = new LinkedHashMap<>();
+        first.put("class_equals", "java.io.UncheckedIOException");
+        first.put("message_matches_either_of", Arrays.asList("Unexpected # not a comment", "/it's .+/", "it's # not a comment"));
+        first.put("cause_matches_either_of", Arrays.asList(cause));
+        first.put("sorted_into", "EXPECTED_1");
+        final LinkedHashMap<String, Object> second = new LinkedHashMap<>();
+        second.put("class_equals", "java.lang.IllegalStateException");
+        second.put("sorted_into", "EXPECTED_2");
+
+        assertEquals(Arrays.asList(first, second), readAll(new StringReader(yaml)));
+    }
+
+    @Test
+    public void testJson() throws IOException {
+        final String json = "[\n"
+                + "  {\"class_equals\": \"java.io.UncheckedIOException\",\n"
+                + "   \"message_matches_either_of\": [\"foo\", \"/\\u0062+/\"],\n"
+                + "   \"cause_matches_either_of\": [{\"class_equals\": \"java.io.IOException\", \"direct\": false}],\n"
+                + "   \"sorted_into\": \"ONE\"},\n"
+                + "  {\"class_extends\": \"java.lang.Exception\", \"sorted_into\": \"TWO\"}\n"
+                + "]\n";
+
+        final LinkedHashMap<String, Object> cause = new LinkedHashMap<>();
+        cause.put("class_equals", "java.io.IOException");
+        cause.put("direct", false);
+        final LinkedHashMap<String, Object> first = new LinkedHashMap<>();
+        first.put("class_equals", "java.io.UncheckedIOException");
+        first.put("message_matches_either_of", Arrays.asList("foo", "/b+/"));
+        first.put("cause_matches_either_of", Arrays.asList(cause));
+        first.put("sorted_into", "ONE");
+        final LinkedHashMap<String, Object> second = new LinkedHashMap<>();
+        second.put("class_extends", "java.lang.Exception");
+        second.put("sorted_into", "TWO");
+
+        assertEquals(Arrays.asList(first, second), readAll(new StringReader(json)));
+        assertEquals(new ArrayList<>(), readAll(new StringReader(" [ ] ")));
+        assertEquals(new ArrayList<>(), readAll(new StringReader("")));
+    }
+
+    @Test
+    public void testByteOrderMark() throws IOException {
+        final String yaml = "\uFEFF- class_equals: java.lang.Exception\n  sorted_into: ONE\n";
+        final byte[] bytes = yaml.getBytes(StandardCharsets.UTF_8);
+        assertEquals(YamlUtil.loadList(new ByteArrayInputStream(bytes)), readAll(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8)));
+        assertEquals(readAll(new StringReader("[{\"class_equals\": \"java.lang.Exception\", \"sorted_into\": \"ONE\"}]")),
+                     readAll(new StringReader("\uFEFF[{\"class_equals\": \"java.lang.Exception\", \"sorted_into\": \"ONE\"}]")));
+        assertEquals(SortEx.from(YamlUtil.loadList(new ByteArrayInputStream(bytes)), TestSortEx.TestEnum.class),
+                     SortEx.load(new ByteArrayInputStream(bytes), TestSortEx.TestEnum.class));
+    }
+
+    @Test
+    public void testSyntaxErrors() {
+        assertError("Invalid DSL at line 2, column 4: unexpected indentation.",
+                    "- class_equals: java.lang.Exception\n   sorted_into: ONE\n");
+        assertError("Invalid DSL at line 2, column 1: expected '- ' of the top-level list.",
+                    "- class_equals: java.lang.Exception\nsorted_into: ONE\n");
+        assertError("Invalid DSL at line 2, column 3: duplicated key \"class_equals\".",
+                    "- class_equals: java.lang.Exception\n  class_equals: java.lang.Exception\n");
+        assertError("Invalid DSL at line 1, column 22: unterminated string.",
+                    "- class_equals: \"java\n");
+        assertError("Invalid DSL at line 1, column 1: an exception rule must be a mapping.",
+                    "- foo\n");
+        assertError("Invalid DSL at line 2, column 32: expected ',' or '}'.",
+                    "[\n  {\"class_equals\": \"java.lang\" \"sorted_into\": \"ONE\"}]");
+        assertError("Invalid DSL at line 1, column 19: invalid literal \"java.lang.Exception\".",
+                    "[{\"class_equals\": java.lang.Exception}]");
+        assertError("Invalid DSL at line 1, column 5: expected ',' or ']'.",
+                    "[{} {}]");
+    }
+
+    private static void assertError(final String expected, final String dsl) {
+        assertEquals(expected, assertThrows(IllegalArgumentException.class, () -> readAll(new StringReader(dsl))).getMessage());
+    }
+
+    private static List<Map<String, Object>> readAll(final java.io.Reader reader) throws IOException {
+        final DslReader dslReader = DslReader.of(reader);
+        final ArrayList<Map<String, Object>> maps = new ArrayList<>();
+        for (DslReader.Entry entry = dslReader.next(); entry != null; entry = dslReader.next()) {
+            maps.add(entry.map());
+        }
+        return maps;
+    }
+
+    private static final String[] RESOURCES = {
+        "sortex_rules/bad_duplicated.yml",
+        "sortex_rules/bad_non_existing_target.yml",
+        "sortex_rules/example1.yml",
+        "sortex_rules/example2.yml",
+        "sortex_rules/example3.yml",
+        "sortex_rules/example4.yml",
+        "sortex_rules/example5.yml",
+    };
+}
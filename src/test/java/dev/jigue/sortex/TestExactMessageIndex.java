@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.jigue.sortex;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import org.junit.jupiter.api.Test;
+
+public class TestExactMessageIndex {
+    @Test
+    public void test() {
+        final ExceptionRule[] rules = {
+            rule("foo", "bar"),
+            rule("/ba.+/"),
+            rule("foo", "/qu.+/"),
+            ExceptionRule.from(Collections.singletonMap("class_equals", "java.lang.RuntimeException")),
+            rule("bar"),
+        };
+        final ExactMessageIndex index = ExactMessageIndex.of(rules);
+
+        assertTrue(index.isIndexed(0));
+        assertFalse(index.isIndexed(1));
+        assertTrue(index.isIndexed(2));
+        assertFalse(index.isIndexed(3));
+        assertTrue(index.isIndexed(4));
+
+        assertArrayEquals(new int[] { 0, 2 }, index.lookUp("foo"));
+        assertArrayEquals(new int[] { 0, 4 }, index.lookUp("bar"));
+        assertArrayEquals(new int[] {}, index.lookUp("qux"));
+        assertArrayEquals(new int[] {}, index.lookUp(null));
+
+        for (final String message : Arrays.asList("foo", "bar", "baz", "qux", "")) {
+            for (final int position : new int[] { 0, 2, 4 }) {
+                assertEquals(
+                        rules[position].matchesMessage(message),
+                        index.matches(position, index.lookUp(message), message),
+                        () -> message + " at " + position);
+            }
+        }
+
+        assertFalse(index.matches(0, index.lookUp(null), null));
+        assertThrows(NullPointerException.class, () -> index.matches(2, index.lookUp(null), null));
+    }
+
+    @Test
+    public void testPrecomputed() {
+        final ExceptionRule[] rules = {
+            rule("foo", "bar"),
+            rule("/ba.+/"),
+            rule("bar"),
+        };
+        final ExactMessageIndex precomputed = ExactMessageIndex.of(rules, ExactMessageIndex.of(rules).positions());
+        assertArrayEquals(new int[] { 0 }, precomputed.lookUp("foo"));
+        assertArrayEquals(new int[] { 0, 2 }, precomputed.lookUp("bar"));
+        assertTrue(precomputed.isIndexed(0));
+        assertFalse(precomputed.isIndexed(1));
+
+        assertEquals("Precomputed exact messages do not match the exception rules.", assertThrows(IllegalArgumentException.class, () -> {
+            ExactMessageIndex.of(rules, Collections.singletonMap("baz", new int[] { 1 }));  // Not indexed
+        }).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> {
+            ExactMessageIndex.of(rules, Collections.singletonMap("bar", new int[] { 2, 0 }));  // Not ascending
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            ExactMessageIndex.of(rules, Collections.singletonMap("bar", new int[] { 3 }));  // Out of range
+        });
+    }
+
+    private static ExceptionRule rule(final String... patterns) {
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("class_equals", "java.lang.RuntimeException");
+        map.put("message_matches_either_of", Arrays.asList(patterns));
+        return ExceptionRule.from(map);
+    }
+}
@@ -16,11 +16,18 @@
 
 package dev.jigue.sortex;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
 import org.junit.jupiter.api.Test;
 
 public class TestExceptionRule {
@@ -34,4 +41,87 @@ public class TestExceptionRule {
         assertTrue(rule.matches(new UncheckedIOException("foo", new IOException())));
         assertTrue(rule.matches(new UncheckedIOException("foo", new IOException(new RuntimeException("bar")))));
     }
+
+    @Test
+    public void testWithoutCause() {
+        final ExceptionRule rule = ExceptionRule.from(causeRule(true));
+
+        assertFalse(rule.matches(new RuntimeException()));
+        assertFalse(rule.matches(new RuntimeException(new IllegalStateException())));
+        assertTrue(rule.matches(new RuntimeException(new IOException())));
+    }
+
+    @Test
+    public void testCyclicCause() {
+        final ExceptionRule rule = ExceptionRule.from(causeRule(false));
+
+        final RuntimeException first = new RuntimeException();
+        final IllegalStateException second = new IllegalStateException(first);
+        first.initCause(second);
+        assertFalse(rule.matches(first));  // It must not loop forever.
+
+        final RuntimeException third = new RuntimeException();
+        final IllegalStateException fourth = new IllegalStateException(new IOException(third));
+        third.initCause(fourth);
+        assertTrue(rule.matches(third));
+    }
+
+    @Test
+    public void testCauseFirst() {
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>(causeRule(true));
+        map.put("message_matches_either_of", Collections.singletonList("/fo+/"));
+        final ExceptionRule rule = ExceptionRule.from(map);
+        assertTrue(rule.isCauseFirst());
+        assertTrue(rule.causeRule().cost() < rule.messageRule().cost());
+
+        assertTrue(rule.matches(new RuntimeException("foo", new IOException())));
+        assertFalse(rule.matches(new RuntimeException("foo", new IllegalStateException())));
+        assertFalse(rule.matches(new RuntimeException("bar", new IOException())));
+        assertFalse(rule.matches(new IllegalStateException("foo", new IOException())));
+
+        // The message rule is evaluated first for a null message, and it throws as if it is not reordered.
+        assertThrows(NullPointerException.class, () -> rule.matches(new RuntimeException(null, new IllegalStateException())));
+
+        map.put("message_matches_either_of", Collections.singletonList("foo"));
+        assertFalse(ExceptionRule.from(map).isCauseFirst());
+    }
+
+    @Test
+    public void testCauseFirstWithNullCauseMessage() {
+        final LinkedHashMap<String, Object> cause = new LinkedHashMap<>();
+        cause.put("class_equals", "java.lang.RuntimeException");
+        cause.put("message_matches_either_of", Collections.singletonList("/ba+r/"));
+        cause.put("direct", true);
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("class_equals", "java.lang.RuntimeException");
+        map.put("message_matches_either_of", Arrays.asList("/(f)\\1?o+/", "/(b)\\1a+z/", "/(q)\\1u+x/"));
+        map.put("cause_matches_either_of", Collections.singletonList(cause));
+        final ExceptionRule rule = ExceptionRule.from(map);
+        assertTrue(rule.causeRule().cost() < rule.messageRule().cost());
+
+        // The cause rule would throw for the null cause message while the message rule as declared does not match.
+        assertFalse(rule.isCauseFirst());
+        assertFalse(rule.matches(new RuntimeException("zz", new RuntimeException((String) null))));
+        assertTrue(rule.matches(new RuntimeException("foo", new RuntimeException("bar"))));
+        assertThrows(NullPointerException.class, () -> rule.matches(new RuntimeException("foo", new RuntimeException((String) null))));
+
+        map.put("sorted_into", "ONE");
+        final LinkedHashMap<String, Object> fallback = new LinkedHashMap<>();
+        fallback.put("class_equals", "java.lang.RuntimeException");
+        fallback.put("sorted_into", "TWO");
+        final SortEx<TestSortEx.TestEnum> sortex = SortEx.from(Arrays.<Map<String, Object>>asList(map, fallback), TestSortEx.TestEnum.class);
+        for (final SortEx<TestSortEx.TestEnum> each : Arrays.asList(sortex, sortex.withBytecodeMatcher())) {
+            assertEquals(Optional.of(TestSortEx.TestEnum.TWO), each.matches(new RuntimeException("zz", new RuntimeException((String) null))));
+        }
+    }
+
+    private static Map<String, Object> causeRule(final boolean isDirect) {
+        final LinkedHashMap<String, Object> cause = new LinkedHashMap<>();
+        cause.put("class_equals", "java.io.IOException");
+        cause.put("direct", isDirect);
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("class_equals", "java.lang.RuntimeException");
+        map.put("cause_matches_either_of", Collections.singletonList(cause));
+        return map;
+    }
 }
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class TestMatcherGenerator {
+    @Test
+    public void testExamples() {
+        for (final String resourceName : Arrays.asList(
+                "sortex_rules/example1.yml",
+                "sortex_rules/example2.yml",
+                "sortex_rules/example3.yml",
+                "sortex_rules/example4.yml",
+                "sortex_rules/example5.yml")) {
+            final List<ExceptionRule> rules = YamlUtil.loadRulesFromResource(resourceName);
+            final Random random = new Random(resourceName.hashCode());
+            assertDifferential(rules, MatcherGenerator.generate(rules), random, 1000);
+        }
+    }
+
+    @Test
+    public void testRandomRules() {
+        final Random random = new Random(20221017L);
+        for (int i = 0; i < 200; i++) {
+            final List<ExceptionRule> rules = randomRules(random, 1 + random.nextInt(30));
+            assertDifferential(rules, MatcherGenerator.generate(rules), random, 200);
+        }
+    }
+
+    @Test
+    public void testLazyRules() {
+        final Random random = new Random(24680L);
+        final RuleContext context = RuleContext.lazy(TestMatcherGenerator.class.getClassLoader());
+        for (int i = 0; i < 50; i++) {
+            final List<ExceptionRule> rules = randomRules(random, 1 + random.nextInt(30), context);
+            assertDifferential(rules, MatcherGenerator.generate(rules), random, 200);
+        }
+    }
+
+    @Test
+    public void testLookupDefiner() {
+        final ClassDefiner definer = ClassDefiner.lookup();
+        if (definer == null) {
+            return;  // Java 8
+        }
+        final Random random = new Random(12345L);
+        final List<ExceptionRule> rules = randomRules(random, 20);
+        assertDifferential(rules, MatcherGenerator.generate(rules, definer), random, 1000);
+    }
+
+    @Test
+    public void testManyRules() {
+        final Random random = new Random(67890L);
+        final List<ExceptionRule> rules = randomRules(random, 300);
+        assertDifferential(rules, MatcherGenerator.generate(rules), random, 1000);
+    }
+
+    private static void assertDifferential(
+            final List<ExceptionRule> rules,
+            final CompiledMatcher compiled,
+            final Random random,
+            final int times) {
+        assertNotNull(compiled);
+        final ClassDispatchIndex index = ClassDispatchIndex.of(rules);
+        for (int i = 0; i < times; i++) {
+            final Throwable exception = randomException(random, 3);
+            assertEquals(outcome(() -> index.find(exception)), outcome(() -> compiled.match(exception)), () -> rules + " for " + exception);
+        }
+    }
+
+    private static String outcome(final Find find) {
+        try {
+            return Integer.toString(find.find());
+        } catch (final RuntimeException ex) {
+            return ex.getClass().getName();
+        }
+    }
+
+    private static List<ExceptionRule> randomRules(final Random random, final int size) {
+        return randomRules(random, size, RuleContext.eager());
+    }
+
+    private static List<ExceptionRule> randomRules(final Random random, final int size, final RuleContext context) {
+        final ArrayList<ExceptionRule> rules = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            rules.add(ExceptionRule.from(randomRuleMap(random, true), context));
+        }
+        return rules;
+    }
+
+    private static Map<String, Object> randomRuleMap(final Random random, final boolean withCause) {
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put(CLASS_KEYS[random.nextInt(CLASS_KEYS.length)], CLASSES[random.nextInt(CLASSES.length)].getName());
+        if (random.nextBoolean()) {
+            final String key = MESSAGE_KEYS[random.nextInt(MESSAGE_KEYS.length)];
+            final String[] candidates = key.equals("message_matches_either_of") ? PATTERNS : LITERALS;
+            final ArrayList<String> patterns = new ArrayList<>();
+            final int size = 1 + random.nextInt(3);
+            for (int i = 0; i < size; i++) {
+                patterns.add(candidates[random.nextInt(candidates.length)]);
+            }
+            map.put(key, patterns);
+        }
+        if (withCause && random.nextInt(3) == 0) {
+            final ArrayList<Map<String, Object>> causes = new ArrayList<>();
+            final int size = 1 + random.nextInt(2);
+            for (int i = 0; i < size; i++) {
+                final Map<String, Object> cause = randomRuleMap(random, false);
+                cause.put("direct", random.nextBoolean());
+                causes.add(cause);
+            }
+            map.put("cause_matches_either_of", causes);
+        }
+        return map;
+    }
+
+    private static Throwable randomException(final Random random, final int depth) {
+        final String message = MESSAGES[random.nextInt(MESSAGES.length)];
+        final Throwable cause = (depth > 0 && random.nextInt(4) != 0) ? randomException(random, depth - 1) : null;
+        switch (random.nextInt(6)) {
+            case 0:
+                return new RuntimeException(message, cause);
+            case 1:
+                return new IllegalStateException(message, cause);
+            case 2:
+                return new IllegalArgumentException(message, cause);
+            case 3:
+                return new UncheckedIOException(message, new IOException(message, cause));
+            case 4:
+                return new IOException(message, cause);
+            default:
+                return new FileNotFoundException(message);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Find {
+        int find();
+    }
+
+    private static final String[] CLASS_KEYS = { "class_equals", "class_equals_literally", "class_extends" };
+
+    private static final Class<?>[] CLASSES = {
+        RuntimeException.class,
+        IllegalStateException.class,
+        IllegalArgumentException.class,
+        UncheckedIOException.class,
+        IOException.class,
+        FileNotFoundException.class,
+        Exception.class,
+    };
+
+    // "Aa" and "BB" have the same hash code.
+    private static final String[] PATTERNS = { "foo", "bar", "Aa", "BB", "", "/fo+/", "/b.r/", "/(?<x>A)\\k<x>/" };
+
+    private static final String[] MESSAGE_KEYS = {
+        "message_matches_either_of", "message_matches_either_of", "message_starts_with", "message_ends_with", "message_contains"
+    };
+
+    private static final String[] LITERALS = { "fo", "o", "ba", "r", "", "A", "oo" };
+
+    private static final String[] MESSAGES = { null, "foo", "fooo", "bar", "baz", "Aa", "BB", "AA", "" };
+}
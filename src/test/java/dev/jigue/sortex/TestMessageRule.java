@@ -19,9 +19,11 @@ package dev.jigue.sortex;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
@@ -61,6 +63,88 @@ public class TestMessageRule {
         assertMessageMatchesEitherOfRule(true, "foo", "/f[op][no]/");
     }
 
+    @Test
+    public void testMultipleMessageRegexes() {
+        assertMessageMatchesEitherOfRule(true, "foo", "/bar/", "/f.*/", "/baz/");
+        assertMessageMatchesEitherOfRule(true, "baz", "/bar/", "/f.*/", "/baz/");
+        assertMessageMatchesEitherOfRule(false, "foobar", "/bar/", "/fo/", "/baz/");
+        assertMessageMatchesEitherOfRule(true, "fooo", "/bar/", "/fo/", "/fo+|qux/", "bar");
+        assertMessageMatchesEitherOfRule(false, "foobar", "/bar/", "/fo/", "/fo+|bar/");
+        assertMessageMatchesEitherOfRule(true, "foobar", "/bar/", "/fo/", "/(fo+)bar/");
+    }
+
+    @Test
+    public void testMultipleMessageRegexesNotCombinable() {
+        assertMessageMatchesEitherOfRule(true, "FOO", "/bar/", "/(?i)foo/");
+        assertMessageMatchesEitherOfRule(false, "BAR", "/bar/", "/(?i)foo/");
+        assertMessageMatchesEitherOfRule(true, "abab", "/(c)d/", "/(ab)\\1/");
+        assertMessageMatchesEitherOfRule(false, "abcd", "/(c)d/", "/(ab)\\1/");
+        assertMessageMatchesEitherOfRule(true, "abab", "/(?<x>c)d/", "/(?<x>ab)\\k<x>/");
+        assertMessageMatchesEitherOfRule(true, "a)|(b", "/b/", "/\\Qa)|(b/");
+        assertMessageMatchesEitherOfRule(false, "b", "/c/", "/(?x)a#)|(b/");
+        assertMessageMatchesEitherOfRule(true, "a", "/c/", "/(?x)a # comment/");
+
+        assertTrue(MultiRegexMatcher.isCombinable("f.*o"));
+        assertTrue(MultiRegexMatcher.isCombinable("(?i)foo"));
+        assertTrue(MultiRegexMatcher.isCombinable("(?<=a)b"));
+        assertTrue(MultiRegexMatcher.isCombinable("\\\\Q"));
+        assertFalse(MultiRegexMatcher.isCombinable("(a)\\1"));
+        assertFalse(MultiRegexMatcher.isCombinable("(?<name>a)"));
+        assertFalse(MultiRegexMatcher.isCombinable("\\Qa)\\E"));
+        assertFalse(MultiRegexMatcher.isCombinable("(?ix)a"));
+    }
+
+    @Test
+    public void testLiterals() {
+        assertMessageRule(true, "Connection reset by peer", "message_starts_with", "Broken", "Connection reset");
+        assertMessageRule(false, "Connection refused", "message_starts_with", "Broken", "Connection reset");
+        assertMessageRule(true, "Connection reset by peer", "message_ends_with", "by peer");
+        assertMessageRule(false, "Connection reset by peer", "message_ends_with", "by", "peer.");
+        assertMessageRule(true, "Connection reset by peer", "message_contains", "xx", "reset");
+        assertMessageRule(false, "Connection reset by peer", "message_contains", "xx", "Reset");
+        assertMessageRule(true, "", "message_contains", "");
+        assertMessageRule(false, null, "message_starts_with", "");
+        assertMessageRule(false, null, "message_ends_with", "");
+        assertMessageRule(false, null, "message_contains", "");
+
+        final HashMap<String, Object> map = new HashMap<>();
+        map.put("message_starts_with", "foo");
+        assertEquals(MessageStartsWithRule.of("foo"), MessageRule.from(map).get());
+        assertEquals(Collections.singletonMap("message_starts_with", Arrays.asList("foo")), MessageRule.from(map).get().toMap());
+        assertNotEquals(MessageStartsWithRule.of("foo"), MessageEndsWithRule.of("foo"));
+    }
+
+    @Test
+    public void testLiteralsExclusive() {
+        assertTrue(MessageStartsWithRule.of("foo", "bar").isExclusiveWith(MessageStartsWithRule.of("baz")));
+        assertFalse(MessageStartsWithRule.of("foo", "bar").isExclusiveWith(MessageStartsWithRule.of("fo")));
+        assertTrue(MessageEndsWithRule.of("foo").isExclusiveWith(MessageEndsWithRule.of("bar")));
+        assertFalse(MessageEndsWithRule.of("foo").isExclusiveWith(MessageEndsWithRule.of("afoo")));
+        assertTrue(MessageStartsWithRule.of("foo").isExclusiveWith(MessageMatchesEitherOfRule.of("bar", "baz")));
+        assertTrue(MessageMatchesEitherOfRule.of("bar", "baz").isExclusiveWith(MessageContainsRule.of("foo")));
+        assertFalse(MessageMatchesEitherOfRule.of("bar", "/ba+z/").isExclusiveWith(MessageContainsRule.of("foo")));
+        assertTrue(MessageMatchesEitherOfRule.of("bar", "/baz/").isExclusiveWith(MessageContainsRule.of("foo")));  // Simplified.
+        assertFalse(MessageContainsRule.of("a").isExclusiveWith(MessageMatchesEitherOfRule.of("bar")));
+        assertFalse(MessageContainsRule.of("foo").isExclusiveWith(MessageContainsRule.of("bar")));
+    }
+
+    @Test
+    public void testCoexisting() {
+        final HashMap<String, Object> map = new HashMap<>();
+        map.put("message_matches_either_of", "foo");
+        map.put("message_contains", "foo");
+        final IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> MessageRule.from(map));
+        assertTrue(ex.getMessage().endsWith(" cannot co-exist."));
+    }
+
+    private static void assertMessageRule(final boolean expected, final String message, final String key, final String... literals) {
+        final HashMap<String, Object> map = new HashMap<>();
+        map.put(key, Arrays.asList(literals));
+        final MessageRule rule = MessageRule.from(map).get();
+        assertEquals(expected, rule.matches(new Exception(message)));
+        assertEquals(expected, rule.matchesMessage(message));
+    }
+
     private static void assertMessageMatchesEitherOfRule(
             final boolean expected, final String message, final String... patterns) {
         final HashMap<String, Object> map = new HashMap<>();
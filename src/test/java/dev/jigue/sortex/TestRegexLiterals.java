@@ -0,0 +1,157 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+public class TestRegexLiterals {
+    @Test
+    public void testRequiredLiteral() {
+        assertEquals(" not found", RegexLiterals.requiredLiteral("File .+ not found."));
+        assertEquals("foo", RegexLiterals.requiredLiteral("foo"));
+        assertEquals("fo", RegexLiterals.requiredLiteral("foo?"));
+        assertEquals("bar", RegexLiterals.requiredLiteral("foo*bar"));
+        assertEquals("foo", RegexLiterals.requiredLiteral("foo+ba"));
+        assertEquals("cd", RegexLiterals.requiredLiteral("ab{0,2}?cd"));
+        assertEquals("Connection reset", RegexLiterals.requiredLiteral("Connection reset.*"));
+        assertEquals("a.b", RegexLiterals.requiredLiteral("a\\.b\\d"));
+        assertEquals(" timed out", RegexLiterals.requiredLiteral("(Read|Connect) timed out"));
+        assertEquals("bar", RegexLiterals.requiredLiteral("[a)|(]bar"));
+
+        assertNull(RegexLiterals.requiredLiteral("foo|bar"));
+        assertNull(RegexLiterals.requiredLiteral("(?i)foo"));
+        assertNull(RegexLiterals.requiredLiteral("\\Qfoo\\E"));
+        assertNull(RegexLiterals.requiredLiteral("\\p{Alpha}foo"));
+        assertNull(RegexLiterals.requiredLiteral(".*"));
+        assertNull(RegexLiterals.requiredLiteral("a?"));
+    }
+
+    @Test
+    public void testAhoCorasick() {
+        final AhoCorasick searcher = AhoCorasick.of(Arrays.asList("he", "she", "his", "hers"));
+        assertTrue(searcher.containsAny("ushers"));
+        assertTrue(searcher.containsAny("this"));
+        assertTrue(searcher.containsAny("ahe"));
+        assertFalse(searcher.containsAny("hi thus"));
+        assertFalse(searcher.containsAny(""));
+        assertTrue(AhoCorasick.of(Arrays.asList("abcd", "bc")).containsAny("xabcx"));
+        assertTrue(AhoCorasick.of(Arrays.asList("")).containsAny(""));
+    }
+
+    @Test
+    public void testAhoCorasickMasks() {
+        final AhoCorasick searcher = AhoCorasick.of(Arrays.asList("he", "she", "his", "hers", ""), new long[] { 1L, 2L, 4L, 8L, 16L });
+        assertEquals(1L | 2L | 8L | 16L, searcher.collect("ushers"));
+        assertEquals(4L | 16L, searcher.collect("this"));
+        assertEquals(16L, searcher.collect("hi thus"));
+        assertEquals(1L | 8L | 16L, searcher.collectPrefixes("hers"));
+        assertEquals(16L, searcher.collectPrefixes("shhe"));
+        assertEquals(1L | 16L, AhoCorasick.of(Arrays.asList("eh", "sreh", ""), new long[] { 1L, 2L, 16L }).collectReversedPrefixes("she"));
+    }
+
+    @Test
+    public void testPrefilterDoesNotChangeResults() {
+        final String[][] regexSets = {
+            { "a.+b", "ab?c*d" },
+            { "(ab|ba)c", "c[ab]+" },
+            { "a\\.b", "(?i)ab", "b{2}a" },
+            { "(a)\\1b", "ab.*" },
+        };
+        final Random random = new Random(42);
+        for (final String[] regexes : regexSets) {
+            final MultiRegexMatcher matcher = MultiRegexMatcher.of(Arrays.asList(regexes));
+            for (int i = 0; i < 2000; i++) {
+                final String message = randomMessage(random);
+                boolean expected = false;
+                for (final String regex : regexes) {
+                    expected |= Pattern.compile(regex).matcher(message).matches();
+                }
+                assertEquals(expected, matcher.matches(message), message + " against " + Arrays.toString(regexes));
+            }
+        }
+    }
+
+    @Test
+    public void testSimplify() {
+        assertEquals("EXACT[Read timed out, Connect timed out]", RegexSimplifier.simplify("(Read|Connect) timed out").toString());
+        assertEquals("EXACT[Broken pipe]", RegexSimplifier.simplify("Broken pipe").toString());
+        assertEquals("EXACT[ab, a, b, ]", RegexSimplifier.simplify("a?b??").toString());
+        assertEquals("EXACT[a.b, c]", RegexSimplifier.simplify("a\\.b|(?:c)").toString());
+        assertEquals("PREFIX[Connection reset, Connection refused]", RegexSimplifier.simplify("Connection re(set|fused).*").toString());
+        assertEquals("SUFFIX[ not found]", RegexSimplifier.simplify(".* not found").toString());
+        assertEquals("PREFIX[]", RegexSimplifier.simplify(".*").toString());
+
+        assertNull(RegexSimplifier.simplify("a|b.*"));
+        assertNull(RegexSimplifier.simplify(".*a|b"));
+        assertNull(RegexSimplifier.simplify(".*a.*"));
+        assertNull(RegexSimplifier.simplify("a\\.*"));
+        assertNull(RegexSimplifier.simplify("a?+"));
+        assertNull(RegexSimplifier.simplify("(?i)a"));
+        assertNull(RegexSimplifier.simplify("(a)\\1"));
+        assertNull(RegexSimplifier.simplify("\\d"));
+        assertNull(RegexSimplifier.simplify("[ab]"));
+        assertNull(RegexSimplifier.simplify("(a|b)(c|d)(e|f)(g|h)(i|j)(k|l)(m|n)"));
+    }
+
+    @Test
+    public void testSimplifiedMessageRule() {
+        final MessageMatchesEitherOfRule rule = MessageMatchesEitherOfRule.of("/(Read|Connect) timed out/", "/Broken pipe.*/", "/.*refused/");
+        assertFalse(rule.isExact());
+        assertTrue(rule.matchesMessage("Connect timed out"));
+        assertTrue(rule.matchesMessage("Broken pipe (Write failed)"));
+        assertTrue(rule.matchesMessage("Connection refused"));
+        assertFalse(rule.matchesMessage("Broken pipe\n"));
+        assertFalse(rule.matchesMessage("\u2028refused"));
+        assertTrue(MessageMatchesEitherOfRule.of("/(Read|Connect) timed out/").isExact());
+        assertThrows(NullPointerException.class, () -> MessageMatchesEitherOfRule.of("/Broken pipe/").matchesMessage(null));
+        assertFalse(MessageMatchesEitherOfRule.of("Broken pipe").matchesMessage(null));
+    }
+
+    @Test
+    public void testSimplifyDoesNotChangeResults() {
+        final String[] regexes = {
+            "a(b|c)?d", "(ab|ba)c|d", "a\\.b", "ab.*", ".*\\.", "(a|b)?.*", ".*(cd|d)", "a\\.*", ".*", "a|b|", "(?:a(b)?)?c",
+        };
+        final Random random = new Random(42);
+        for (final String regex : regexes) {
+            final MessageMatchesEitherOfRule rule = MessageMatchesEitherOfRule.of("/" + regex + "/");
+            for (int i = 0; i < 2000; i++) {
+                final String message = randomMessage(random);
+                assertEquals(Pattern.compile(regex).matcher(message).matches(), rule.matchesMessage(message), message + " against " + regex);
+            }
+        }
+    }
+
+    private static String randomMessage(final Random random) {
+        final char[] alphabet = { 'a', 'b', 'c', 'd', '.', 'A', 'B', '\n' };
+        final int length = random.nextInt(7);
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet[random.nextInt(alphabet.length)]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+public class TestReloadableSortEx {
+    @Test
+    public void testReload() throws Exception {
+        final SortEx<TestSortEx.TestEnum> initial =
+                SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example1.yml"), TestSortEx.TestEnum.class);
+        final ReloadableSortEx<TestSortEx.TestEnum> reloadable = ReloadableSortEx.of(initial);
+        final UncheckedIOException bar = new UncheckedIOException("bar", new IOException());
+
+        assertSame(initial, reloadable.get());
+        assertEquals(TestSortEx.TestEnum.DEFAULT, reloadable.matches(bar, TestSortEx.TestEnum.DEFAULT));
+
+        final SortEx<TestSortEx.TestEnum> reloaded =
+                reloadable.reload(YamlUtil.loadListFromResource("sortex_rules/example2.yml"), Arrays.asList(bar)).get();
+
+        assertSame(reloaded, reloadable.get());
+        assertEquals(TestSortEx.TestEnum.TWO, reloadable.matches(bar, TestSortEx.TestEnum.DEFAULT));
+        assertEquals(TestSortEx.TestEnum.TWO, reloadable.matches(bar).get());
+    }
+
+    @Test
+    public void testReloadKeepsSettings() throws Exception {
+        final SortEx<TestSortEx.TestEnum> initial =
+                SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example1.yml"), TestSortEx.TestEnum.class);
+        final ReloadableSortEx<TestSortEx.TestEnum> reloadable = ReloadableSortEx.of(initial.withResultCache(16).withMaxCauseDepth(1));
+
+        final SortEx<TestSortEx.TestEnum> reloaded = reloadable.reload(YamlUtil.loadListFromResource("sortex_rules/example2.yml")).get();
+        assertTrue(reloaded.cacheStatistics().isPresent());
+        assertEquals(TestSortEx.TestEnum.DEFAULT, reloaded.matches(new UncheckedIOException("foo", new IOException()), TestSortEx.TestEnum.DEFAULT));
+    }
+
+    @Test
+    public void testReloadWithThrowingSample() throws Exception {
+        final SortEx<TestSortEx.TestEnum> initial =
+                SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example1.yml"), TestSortEx.TestEnum.class);
+        final ReloadableSortEx<TestSortEx.TestEnum> reloadable = ReloadableSortEx.of(initial);
+        final MessageCountingException nullMessage = new MessageCountingException(null);
+        final MessageCountingException bar = new MessageCountingException("bar");
+
+        // The null message throws against the regular expression in the new rules, but the reload succeeds.
+        final SortEx<TestSortEx.TestEnum> reloaded =
+                reloadable.reload(YamlUtil.loadListFromResource("sortex_rules/example6.yml"), Arrays.asList(nullMessage, bar)).get();
+        assertSame(reloaded, reloadable.get());
+        assertEquals(TestSortEx.TestEnum.TWO, reloadable.matches(bar, TestSortEx.TestEnum.DEFAULT));
+    }
+
+    @Test
+    public void testInvalidReload() throws Exception {
+        final SortEx<TestSortEx.TestEnum> initial =
+                SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example1.yml"), TestSortEx.TestEnum.class);
+        final ReloadableSortEx<TestSortEx.TestEnum> reloadable = ReloadableSortEx.of(initial);
+
+        final CompletableFuture<SortEx<TestSortEx.TestEnum>> future =
+                reloadable.reload(YamlUtil.loadListFromResource("sortex_rules/bad_duplicated.yml"));
+        try {
+            future.get();
+        } catch (final ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalArgumentException);
+            assertSame(initial, reloadable.get());
+            return;
+        }
+        fail("No expected Exception is thrown.");
+    }
+
+    @Test
+    public void testSupersededReload() throws Exception {
+        final SortEx<TestSortEx.TestEnum> initial =
+                SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example1.yml"), TestSortEx.TestEnum.class);
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        final ReloadableSortEx<TestSortEx.TestEnum> reloadable = ReloadableSortEx.of(
+                initial, maps -> SortEx.from(maps, TestSortEx.TestEnum.class), tasks::add);
+
+        final CompletableFuture<SortEx<TestSortEx.TestEnum>> earlier =
+                reloadable.reload(YamlUtil.loadListFromResource("sortex_rules/example2.yml"));
+        final CompletableFuture<SortEx<TestSortEx.TestEnum>> later =
+                reloadable.reload(YamlUtil.loadListFromResource("sortex_rules/example3.yml"));
+        assertFalse(earlier.isDone());
+        assertSame(initial, reloadable.get());
+
+        // The later reload finishes first.
+        tasks.removeLast().run();
+        assertSame(later.get(), reloadable.get());
+
+        tasks.removeLast().run();
+        assertTrue(earlier.isCancelled());
+        assertSame(later.get(), reloadable.get());
+    }
+}
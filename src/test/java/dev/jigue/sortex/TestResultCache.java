@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.junit.jupiter.api.Test;
+
+public class TestResultCache {
+    @Test
+    public void testFingerprint() {
+        final ResultCache cache = ResultCache.of(64);
+        assertEquals(ResultCache.MISS, cache.get(new UncheckedIOException("foo", new IOException("bar"))));
+        cache.put(new UncheckedIOException("foo", new IOException("bar")), 3);
+        cache.put(new IllegalStateException((String) null), -1);
+
+        assertEquals(3, cache.get(new UncheckedIOException("foo", new IOException("bar"))));
+        assertEquals(-1, cache.get(new IllegalStateException((String) null)));
+
+        // Any difference in the cause chain is a different fingerprint.
+        assertEquals(ResultCache.MISS, cache.get(new UncheckedIOException("foo", new IOException("baz"))));
+        assertEquals(ResultCache.MISS, cache.get(new UncheckedIOException("foo", new FileNotFoundException("bar"))));
+        assertEquals(ResultCache.MISS, cache.get(new UncheckedIOException("foo", new IOException("bar", new IOException()))));
+        assertEquals(ResultCache.MISS, cache.get(new IllegalStateException("")));
+
+        final SortExCacheStatistics statistics = cache.snapshot();
+        assertEquals(2, statistics.getHits());
+        assertEquals(5, statistics.getMisses());
+        assertEquals(2, statistics.getSize());
+        assertEquals(64, statistics.getCapacity());
+    }
+
+    @Test
+    public void testBounded() {
+        final ResultCache cache = ResultCache.of(16);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(new IllegalStateException("message" + i), i);
+        }
+        final SortExCacheStatistics statistics = cache.snapshot();
+        assertEquals(16, statistics.getCapacity());
+        assertTrue(statistics.getSize() <= 16);
+        assertTrue(statistics.getEvictions() >= 1000 - 16);
+
+        // Hit entries get a second chance.
+        final ResultCache hot = ResultCache.of(8);
+        hot.put(new IllegalStateException("hot"), 1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1, hot.get(new IllegalStateException("hot")));
+            hot.put(new IllegalStateException("cold" + i), 2);
+        }
+    }
+
+    @Test
+    public void testUncacheable() {
+        Throwable deep = new IllegalStateException("root");
+        for (int i = 0; i < ResultCache.MAX_DEPTH; i++) {
+            deep = new IllegalStateException("wrapper", deep);
+        }
+        final ResultCache cache = ResultCache.of(16);
+        cache.put(deep, 1);
+        assertEquals(ResultCache.MISS, cache.get(deep));
+
+        // A cyclic cause chain does not hang.
+        final IllegalStateException first = new IllegalStateException("first");
+        final IllegalStateException second = new IllegalStateException("second", first);
+        first.initCause(second);
+        cache.put(first, 1);
+        assertEquals(ResultCache.MISS, cache.get(first));
+    }
+}
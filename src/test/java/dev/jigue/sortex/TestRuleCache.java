@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class TestRuleCache {
+    @Test
+    public void testReusedRule() {
+        final RuleCache first = RuleCache.empty();
+        final RuleContext context = RuleContext.eager().withCache(first);
+        final AtomicInteger built = new AtomicInteger();
+
+        final ExceptionRule rule = first.rule(map("foo", "ONE"), () -> build(map("foo", "ONE"), context, built));
+        assertEquals(1, built.get());
+
+        // Only "sorted_into" differs, which is not a part of the exception rule.
+        final RuleCache second = first.next();
+        assertSame(rule, second.rule(map("foo", "TWO"), () -> build(map("foo", "TWO"), context, built)));
+        assertEquals(1, built.get());
+
+        final ExceptionRule changed = second.rule(map("bar", "ONE"), () -> build(map("bar", "ONE"), context, built));
+        assertEquals(2, built.get());
+        assertNotSame(rule, changed);
+
+        // The third generation does not see the first generation, but it sees what the second generation looked up.
+        final RuleCache third = second.next();
+        assertSame(rule, third.rule(map("foo", "ONE"), () -> build(map("foo", "ONE"), context, built)));
+        assertSame(changed, third.rule(map("bar", "ONE"), () -> build(map("bar", "ONE"), context, built)));
+        assertEquals(2, built.get());
+    }
+
+    @Test
+    public void testModifiedMap() {
+        final RuleCache cache = RuleCache.empty();
+        final RuleContext context = RuleContext.eager().withCache(cache);
+        final AtomicInteger built = new AtomicInteger();
+
+        final Map<String, Object> map = map("foo", "ONE");
+        final ExceptionRule rule = cache.rule(map, () -> build(map, context, built));
+
+        // Modifying the map after building must not break the cached key.
+        @SuppressWarnings("unchecked")
+        final List<String> patterns = (List<String>) map.get("message_matches_either_of");
+        patterns.set(0, "/ba.*/");
+        final ExceptionRule modified = cache.rule(map, () -> build(map, context, built));
+        assertEquals(2, built.get());
+        assertNotSame(rule, modified);
+        assertSame(rule, cache.rule(map("foo", "ONE"), () -> build(map("foo", "ONE"), context, built)));
+    }
+
+    @Test
+    public void testPatternsAndClasses() throws ClassNotFoundException {
+        final RuleCache first = RuleCache.empty();
+        final RuleCache second = first.next();
+        assertSame(first.pattern("fo+"), second.pattern("fo+"));
+        assertSame(IllegalStateException.class, second.forName("java.lang.IllegalStateException"));
+
+        // Regular expressions are compiled through the context.
+        final RuleContext context = RuleContext.eager().withCache(second);
+        assertSame(second.pattern("ba.*"), context.compile("ba.*"));
+    }
+
+    private static ExceptionRule build(final Map<String, Object> map, final RuleContext context, final AtomicInteger built) {
+        built.incrementAndGet();
+        return ExceptionRule.from(map, context);
+    }
+
+    private static Map<String, Object> map(final String message, final String target) {
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("class_equals", "java.lang.IllegalStateException");
+        map.put("message_matches_either_of", new ArrayList<>(Arrays.asList(message)));
+        map.put("sorted_into", target);
+        return map;
+    }
+}
@@ -16,14 +16,38 @@
 
 package dev.jigue.sortex;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.junit.jupiter.api.Test;
 
 public class TestSortEx {
@@ -62,6 +86,325 @@ public class TestSortEx {
                      new UncheckedIOException("foo", new IOException(new RuntimeException("bar"))));
     }
 
+    @Test
+    public void testMixedClassRules() {
+        assertSortEx(TestEnum.ONE, "sortex_rules/example3.yml",
+                     new UncheckedIOException("first", new IOException()));
+        assertSortEx(TestEnum.ONE, "sortex_rules/example3.yml",
+                     new IllegalStateException("first"));
+        assertSortEx(TestEnum.TWO, "sortex_rules/example3.yml",
+                     new UncheckedIOException("second", new IOException()));
+        assertSortEx(TestEnum.THREE, "sortex_rules/example3.yml",
+                     new UncheckedIOException("third", new IOException()));
+        assertSortEx(TestEnum.TWO, "sortex_rules/example3.yml",
+                     new IllegalStateException("second"));
+        assertSortEx(TestEnum.TWO, "sortex_rules/example3.yml",
+                     new IOException("first"));
+        assertSortEx(TestEnum.DEFAULT, "sortex_rules/example3.yml",
+                     new AssertionError("first"));
+    }
+
+    @Test
+    public void testMatchesWithoutAllocation() {
+        final ThreadMXBean threadMxBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMxBean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean allocationMxBean = (com.sun.management.ThreadMXBean) threadMxBean;
+        assumeTrue(allocationMxBean.isThreadAllocatedMemorySupported() && allocationMxBean.isThreadAllocatedMemoryEnabled());
+
+        final SortEx<TestEnum> sortex = SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example2.yml"), TestEnum.class);
+        final Throwable[] exceptions = {
+            new IOException("foo"),
+            new UncheckedIOException(new IOException("foo")),
+            new UncheckedIOException("bar", new IOException()),
+            new UncheckedIOException("foo", new IOException()),
+        };
+        final TestEnum[] expected = { TestEnum.DEFAULT, TestEnum.DEFAULT, TestEnum.TWO, TestEnum.ONE };
+
+        for (int i = 0; i < 100000; i++) {  // Warming up, including the class dispatch index.
+            sortex.matches(exceptions[i % exceptions.length], TestEnum.DEFAULT);
+        }
+
+        final long threadId = Thread.currentThread().getId();
+
+        // Measuring the allocation by getThreadAllocatedBytes itself at first, which may allocate in some JVM versions.
+        final long baselineBefore = allocationMxBean.getThreadAllocatedBytes(threadId);
+        final long baselineAfter = allocationMxBean.getThreadAllocatedBytes(threadId);
+
+        // Measuring a few times because the JVM itself may allocate in the thread occasionally, such as in deoptimization.
+        long allocated = -1L;
+        for (int attempt = 0; attempt < 3 && allocated != baselineAfter - baselineBefore; attempt++) {
+            final long before = allocationMxBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 100000; i++) {
+                final int j = i % exceptions.length;
+                if (sortex.matches(exceptions[j], TestEnum.DEFAULT) != expected[j]) {
+                    fail("Unexpected result for: " + exceptions[j]);
+                }
+            }
+            final long after = allocationMxBean.getThreadAllocatedBytes(threadId);
+            allocated = after - before;
+        }
+
+        assertEquals(baselineAfter - baselineBefore, allocated);
+    }
+
+    @Test
+    public void testMatchesAll() {
+        final List<Throwable> exceptions = Arrays.asList(
+                new UncheckedIOException("foo", new IOException()),
+                new IOException("foo"),
+                new UncheckedIOException("bar", new IOException()),
+                new UncheckedIOException("foo", new IOException()),
+                new UncheckedIOException("foo", new FileNotFoundException()),
+                new UncheckedIOException(new IOException("foo")),
+                new UncheckedIOException("bar", new IOException()),
+                new IllegalStateException((String) null));
+
+        final SortEx<TestEnum> sortex = SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example2.yml"), TestEnum.class);
+        final TestEnum[] sorted = sortex.matchesAll(exceptions, TestEnum.DEFAULT);
+        assertArrayEquals(new TestEnum[] {
+            TestEnum.ONE,
+            TestEnum.DEFAULT,
+            TestEnum.TWO,
+            TestEnum.ONE,
+            TestEnum.DEFAULT,
+            TestEnum.DEFAULT,
+            TestEnum.TWO,
+            TestEnum.DEFAULT,
+        }, sorted);
+
+        final SortEx<TestEnum> sortex3 = SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example3.yml"), TestEnum.class);
+        final TestEnum[] sorted3 = sortex3.matchesAll(exceptions, null);
+        for (int i = 0; i < exceptions.size(); i++) {
+            assertEquals(sortex3.matches(exceptions.get(i), null), sorted3[i]);
+        }
+
+        // The regular expression of the later rule is not reached for a null message if the earlier rule matches.
+        final LinkedHashMap<String, Object> cause = new LinkedHashMap<>();
+        cause.put("class_equals", "java.io.IOException");
+        cause.put("direct", true);
+        final LinkedHashMap<String, Object> byCause = new LinkedHashMap<>();
+        byCause.put("class_equals", "java.lang.RuntimeException");
+        byCause.put("cause_matches_either_of", Arrays.asList(cause));
+        byCause.put("sorted_into", "ONE");
+        final LinkedHashMap<String, Object> byRegex = new LinkedHashMap<>();
+        byRegex.put("class_equals", "java.lang.RuntimeException");
+        byRegex.put("message_matches_either_of", Arrays.asList("/fo+/"));
+        byRegex.put("sorted_into", "TWO");
+        final SortEx<TestEnum> nullable = SortEx.from(Arrays.<Map<String, Object>>asList(byCause, byRegex), TestEnum.class);
+        final List<Throwable> nullMessages = Arrays.asList(
+                new RuntimeException("foo"),
+                new RuntimeException(null, new IOException()),
+                new RuntimeException(null, new IOException()));
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assertArrayEquals(new TestEnum[] { TestEnum.TWO, TestEnum.ONE, TestEnum.ONE }, nullable.matchesAll(nullMessages, TestEnum.DEFAULT));
+            assertArrayEquals(new TestEnum[] { TestEnum.TWO, TestEnum.ONE, TestEnum.ONE }, nullable.matchesAll(nullMessages, TestEnum.DEFAULT, pool));
+
+            final List<Throwable> unmatched = Arrays.asList(new RuntimeException(null, new IOException()), new RuntimeException((String) null));
+            assertThrows(NullPointerException.class, () -> nullable.matches(unmatched.get(1), TestEnum.DEFAULT));
+            assertThrows(NullPointerException.class, () -> nullable.matchesAll(unmatched, TestEnum.DEFAULT));
+            assertThrows(NullPointerException.class, () -> nullable.matchesAll(unmatched, TestEnum.DEFAULT, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testMatchesAllInParallel() throws Exception {
+        final Throwable[] templates = {
+            new UncheckedIOException("foo", new IOException()),
+            new UncheckedIOException("bar", new IOException()),
+            new UncheckedIOException("baz", new IOException()),
+            new UncheckedIOException("first", new IOException()),
+            new UncheckedIOException("second", new IOException()),
+            new IllegalStateException("first"),
+            new IllegalStateException("second"),
+            new IOException("foo"),
+            new AssertionError("first"),
+        };
+        final Random random = new Random(1234);
+        final ArrayList<Throwable> exceptions = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            exceptions.add(templates[random.nextInt(templates.length)]);
+        }
+
+        for (final String ruleResource : Arrays.asList("sortex_rules/example2.yml", "sortex_rules/example3.yml")) {
+            final SortEx<TestEnum> sortex = SortEx.from(YamlUtil.loadListFromResource(ruleResource), TestEnum.class);
+            final TestEnum[] expected = new TestEnum[exceptions.size()];
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = sortex.matches(exceptions.get(i), TestEnum.DEFAULT);
+            }
+
+            final ForkJoinPool pool = new ForkJoinPool(8);
+            final ExecutorService callers = Executors.newFixedThreadPool(4);
+            try {
+                final ArrayList<Future<TestEnum[]>> futures = new ArrayList<>();
+                for (int i = 0; i < 16; i++) {
+                    futures.add(callers.submit(() -> sortex.matchesAll(exceptions, TestEnum.DEFAULT, pool)));
+                }
+                for (final Future<TestEnum[]> future : futures) {
+                    assertArrayEquals(expected, future.get());
+                }
+                assertArrayEquals(expected, sortex.matchesAll(new LinkedList<>(exceptions), TestEnum.DEFAULT, pool));
+                assertArrayEquals(Arrays.copyOf(expected, 10), sortex.matchesAll(exceptions.subList(0, 10), TestEnum.DEFAULT, pool));
+            } finally {
+                callers.shutdown();
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        final SortEx<TestEnum> plain = SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example3.yml"), TestEnum.class);
+        assertFalse(plain.statistics().isPresent());
+        assertFalse(plain.statisticsBean().isPresent());
+
+        final SortEx<TestEnum> sortex = plain.withStatistics();
+        assertEquals(plain, sortex);
+        assertEquals(TestEnum.THREE, sortex.matches(new UncheckedIOException("third", new IOException()), TestEnum.DEFAULT));
+        assertEquals(TestEnum.ONE, sortex.matches(new IllegalStateException("first"), TestEnum.DEFAULT));
+        assertEquals(TestEnum.DEFAULT, sortex.matches(new AssertionError("first"), TestEnum.DEFAULT));
+        sortex.matchesAll(Arrays.asList(new IOException("first"), new AssertionError("second")), TestEnum.DEFAULT);
+
+        final SortExStatistics statistics = sortex.statistics().get();
+        assertEquals(4, statistics.getRules().size());
+        assertEquals("ONE", statistics.getRules().get(0).getRule().get("sorted_into"));
+        assertEquals(2, statistics.getRules().get(0).getEvaluations());
+        assertEquals(1, statistics.getRules().get(0).getHits());
+        assertEquals(1, statistics.getRules().get(1).getEvaluations());
+        assertEquals(0, statistics.getRules().get(1).getHits());
+        assertEquals(1, statistics.getRules().get(2).getEvaluations());
+        assertEquals(1, statistics.getRules().get(2).getHits());
+        assertEquals(1, statistics.getRules().get(3).getEvaluations());
+        assertEquals(1, statistics.getRules().get(3).getHits());
+        assertEquals(2, statistics.getUnmatched());
+        assertFalse(plain.statistics().isPresent());
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName("dev.jigue.sortex:type=SortExStatistics,name=test");
+        server.registerMBean(sortex.statisticsBean().get(), name);
+        try {
+            assertEquals(2L, server.getAttribute(name, "Unmatched"));
+            assertArrayEquals(new long[] { 1, 0, 1, 1 }, (long[]) server.getAttribute(name, "Hits"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void testAdaptiveOrdering() {
+        final SortEx<TestEnum> plain = SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example4.yml"), TestEnum.class);
+        final SortEx<TestEnum> sortex = plain.withAdaptiveOrdering();
+        assertEquals(plain, sortex);
+
+        final List<Throwable> exceptions = Arrays.asList(
+                new IllegalStateException("a"),
+                new IllegalStateException("b"),
+                new IllegalStateException("bbb"),
+                new IllegalStateException("c"),
+                new IllegalStateException("d"),
+                new IllegalStateException("e"),
+                new IllegalArgumentException("d"),
+                new Exception("a"));
+        for (int i = 0; i < 100; i++) {
+            sortex.matches(new IllegalStateException("d"), TestEnum.DEFAULT);
+        }
+        sortex.reorder();
+        plain.reorder();  // Nothing happens.
+
+        for (final Throwable exception : exceptions) {
+            assertEquals(plain.matches(exception, TestEnum.DEFAULT), sortex.matches(exception, TestEnum.DEFAULT));
+        }
+    }
+
+    @Test
+    public void testBytecodeMatcher() {
+        final SortEx<TestEnum> plain = SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example2.yml"), TestEnum.class);
+        final SortEx<TestEnum> sortex = plain.withBytecodeMatcher();
+        assertEquals(plain, sortex);
+
+        final List<Throwable> exceptions = Arrays.asList(
+                new UncheckedIOException("foo", new IOException()),
+                new UncheckedIOException("bar", new IOException()),
+                new UncheckedIOException("baz", new IOException()),
+                new IllegalStateException("foo"));
+        for (final Throwable exception : exceptions) {
+            assertEquals(plain.matches(exception, TestEnum.DEFAULT), sortex.matches(exception, TestEnum.DEFAULT));
+        }
+        assertEquals(TestEnum.ONE, sortex.matches(exceptions.get(0), TestEnum.DEFAULT));
+        assertEquals(TestEnum.TWO, sortex.matches(exceptions.get(1), TestEnum.DEFAULT));
+    }
+
+    @Test
+    public void testClassObjectsAndEnumConstants() {
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("class_equals", UncheckedIOException.class);
+        map.put("sorted_into", TestEnum.TWO);
+        final SortEx<TestEnum> sortex = SortEx.from(Arrays.asList(map), TestEnum.class);
+        assertEquals(TestEnum.TWO, sortex.matches(new UncheckedIOException(new IOException()), TestEnum.DEFAULT));
+
+        final LinkedHashMap<String, Object> names = new LinkedHashMap<>();
+        names.put("class_equals", "java.io.UncheckedIOException");
+        names.put("sorted_into", "TWO");
+        assertEquals(SortEx.from(Arrays.asList(names), TestEnum.class), sortex);
+
+        final LinkedHashMap<String, Object> invalid = new LinkedHashMap<>();
+        invalid.put("class_equals", UncheckedIOException.class);
+        invalid.put("sorted_into", 1);
+        try {
+            SortEx.from(Arrays.asList(invalid), TestEnum.class);
+            fail("No expected Exception is thrown.");
+        } catch (final ClassCastException ex) {
+            assertEquals("Value of \"sorted_into\" is neither a string nor a constant of dev.jigue.sortex.TestSortEx$TestEnum.", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testLazyClassResolution() {
+        final ArrayList<String> loaded = new ArrayList<>();
+        final ClassLoader classLoader = new ClassLoader(TestSortEx.class.getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+                loaded.add(name);
+                return super.loadClass(name, resolve);
+            }
+        };
+
+        final List<Map<String, Object>> maps = YamlUtil.loadListFromResource("sortex_rules/example3.yml");
+        final SortEx<TestEnum> lazy = SortEx.fromLazily(maps, TestEnum.class, classLoader);
+        assertEquals(Arrays.asList(), loaded);
+
+        final SortEx<TestEnum> eager = SortEx.from(maps, TestEnum.class);
+        final List<Throwable> exceptions = Arrays.asList(
+                new UncheckedIOException("first", new IOException()),
+                new UncheckedIOException("second", new IOException()),
+                new UncheckedIOException("third", new IOException()),
+                new IllegalStateException("first"),
+                new IOException("first"),
+                new AssertionError("first"));
+        for (final Throwable exception : exceptions) {
+            assertEquals(eager.matches(exception, TestEnum.DEFAULT), lazy.matches(exception, TestEnum.DEFAULT));
+        }
+        Collections.sort(loaded);
+        assertEquals(Arrays.asList("java.io.UncheckedIOException", "java.lang.Exception", "java.lang.RuntimeException"), loaded);
+
+        assertSame(lazy, lazy.validate());
+
+        final LinkedHashMap<String, Object> missing = new LinkedHashMap<>();
+        missing.put("class_equals", "dev.jigue.sortex.DummyNonExistingException");
+        missing.put("sorted_into", "ONE");
+        final SortEx<TestEnum> broken = SortEx.fromLazily(Arrays.asList(missing), TestEnum.class);
+        assertEquals(TestEnum.DEFAULT, broken.matches(new IOException(), TestEnum.DEFAULT));
+        try {
+            broken.validate();
+            fail("No expected Exception is thrown.");
+        } catch (final IllegalArgumentException ex) {
+            assertEquals("Invalid class rule: class_equals", ex.getMessage());
+            assertEquals("A class \"dev.jigue.sortex.DummyNonExistingException\" is not found.", ex.getCause().getMessage());
+        }
+    }
+
     @Test
     public void testNonExistingTargetError() {
         try {
@@ -72,6 +415,204 @@ public class TestSortEx {
         fail("No expected Exception is thrown.");
     }
 
+    @Test
+    public void testLoad() throws IOException {
+        for (final String resource : new String[] { "sortex_rules/example2.yml", "sortex_rules/example3.yml" }) {
+            try (final InputStream input = TestSortEx.class.getClassLoader().getResourceAsStream(resource)) {
+                assertEquals(SortEx.from(YamlUtil.loadListFromResource(resource), TestEnum.class), SortEx.load(input, TestEnum.class));
+            }
+        }
+
+        final String dsl = "- class_equals: java.lang.IllegalStateException\n"
+                + "  sorted_into: ONE\n"
+                + "- class_equals: java.lang.IllegalStateException\n"
+                + "  sorted_into: NON_EXISTING\n";
+        try {
+            SortEx.load(new StringReader(dsl), TestEnum.class);
+        } catch (final IllegalArgumentException ex) {
+            assertEquals("Invalid exception rule at line 3, column 1.", ex.getMessage());
+            assertTrue(ex.getCause().getMessage().startsWith("Value of \"sorted_into\", <\"NON_EXISTING\">, is not expected"));
+            return;
+        }
+        fail("No expected Exception is thrown.");
+    }
+
+    @Test
+    public void testMaxCauseDepth() {
+        final SortEx<TestEnum> sortex = SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example2.yml"), TestEnum.class);
+        final SortEx<TestEnum> shallow = sortex.withMaxCauseDepth(1);
+        final List<Throwable> exceptions = Arrays.asList(
+                new UncheckedIOException("foo", new IOException()),
+                new UncheckedIOException("bar", new IOException()));
+
+        assertEquals(TestEnum.ONE, sortex.matches(exceptions.get(0), TestEnum.DEFAULT));
+        assertEquals(TestEnum.TWO, sortex.matches(exceptions.get(1), TestEnum.DEFAULT));
+        assertEquals(TestEnum.DEFAULT, shallow.matches(exceptions.get(0), TestEnum.DEFAULT));
+        assertEquals(TestEnum.DEFAULT, shallow.matches(exceptions.get(1), TestEnum.DEFAULT));
+        assertArrayEquals(new TestEnum[] { TestEnum.DEFAULT, TestEnum.DEFAULT }, shallow.matchesAll(exceptions, TestEnum.DEFAULT));
+        assertEquals(TestEnum.ONE, sortex.withMaxCauseDepth(2).matches(exceptions.get(0), TestEnum.DEFAULT));
+
+        // Results cached with another depth are not reused.
+        final SortEx<TestEnum> shallowCached = sortex.withResultCache(16).withMaxCauseDepth(1);
+        assertEquals(TestEnum.DEFAULT, shallowCached.matches(exceptions.get(0), TestEnum.DEFAULT));
+        assertEquals(TestEnum.ONE, shallowCached.withMaxCauseDepth(2).matches(exceptions.get(0), TestEnum.DEFAULT));
+
+        try {
+            sortex.withMaxCauseDepth(0);
+            fail("IllegalArgumentException is expected.");
+        } catch (final IllegalArgumentException ex) {
+            assertEquals("Value of \"maxCauseDepth\" must be positive: 0", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testNestedMaxCauseDepth() {
+        final LinkedHashMap<String, Object> cause = new LinkedHashMap<>();
+        cause.put("class_equals", "java.io.IOException");
+        cause.put("direct", true);
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("class_extends", "java.io.UncheckedIOException");
+        map.put("message_matches_either_of", Arrays.asList("foo"));
+        map.put("cause_matches_either_of", Arrays.asList(cause));
+        map.put("sorted_into", "ONE");
+        final SortEx<TestEnum> sortex = SortEx.from(Arrays.<Map<String, Object>>asList(map), TestEnum.class);
+        final SortEx<TestEnum> shallow = sortex.withMaxCauseDepth(1);
+        final ArrayList<TestEnum> nestedResults = new ArrayList<>();
+
+        // Classifies itself with the shallow instance while the deep instance retrieves its message.
+        final UncheckedIOException exception = new UncheckedIOException(new IOException()) {
+            @Override
+            public String getMessage() {
+                if (this.isNested) {
+                    return "foo";
+                }
+                this.isNested = true;
+                try {
+                    nestedResults.add(shallow.matches(this, TestEnum.DEFAULT));
+                } finally {
+                    this.isNested = false;
+                }
+                return "foo";
+            }
+
+            private boolean isNested;
+        };
+
+        assertEquals(TestEnum.ONE, sortex.matches(exception, TestEnum.DEFAULT));
+        assertEquals(Arrays.asList(TestEnum.DEFAULT), nestedResults);
+        assertEquals(TestEnum.ONE, sortex.matches(exception, TestEnum.DEFAULT));  // The chain of the thread is restored.
+    }
+
+    @Test
+    public void testMessageRetrievedOnce() {
+        final SortEx<TestEnum> sortex = SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example6.yml"), TestEnum.class);
+        final List<SortEx<TestEnum>> variants = Arrays.asList(
+                sortex, sortex.withBytecodeMatcher(), sortex.withResultCache(16), sortex.withAdaptiveOrdering());
+
+        for (final SortEx<TestEnum> variant : variants) {
+            final MessageCountingException qux = new MessageCountingException("qux");
+            assertEquals(TestEnum.DEFAULT, variant.matches(qux, TestEnum.DEFAULT));
+            assertEquals(1, qux.getCountAndReset());
+
+            final MessageCountingException cause = new MessageCountingException("qux");
+            final MessageCountingException wrapping = new MessageCountingException("wrapping");
+            wrapping.initCause(new IllegalStateException(cause));
+            cause.getCountAndReset();  // Throwable(Throwable) retrieves the message of the cause.
+            assertEquals(TestEnum.DEFAULT, variant.matches(wrapping, TestEnum.DEFAULT));
+            assertEquals(1, wrapping.getCountAndReset());
+            assertEquals(1, cause.getCountAndReset());
+
+            final MessageCountingException bar = new MessageCountingException("bar");
+            final RuntimeException wrappingBar = new RuntimeException(new RuntimeException(bar));
+            bar.getCountAndReset();
+            assertEquals(TestEnum.THREE, variant.matches(wrappingBar, TestEnum.DEFAULT));
+            assertEquals(1, bar.getCountAndReset());
+        }
+    }
+
+    @Test
+    public void testMessageLiterals() {
+        final List<Map<String, Object>> maps = YamlUtil.loadListFromResource("sortex_rules/example7.yml");
+        final SortEx<TestEnum> sortex = SortEx.from(maps, TestEnum.class);
+        assertEquals(maps, sortex.toListOfMaps());
+        assertEquals(sortex, SortEx.from(sortex.toListOfMaps(), TestEnum.class));
+        final List<SortEx<TestEnum>> variants = Arrays.asList(
+                sortex,
+                sortex.withBytecodeMatcher(),
+                SortExBinaryFormat.read(SortExBinaryFormat.write(sortex), TestEnum.class));
+
+        for (final SortEx<TestEnum> variant : variants) {
+            assertEquals(sortex, variant);
+            assertEquals(TestEnum.ONE, variant.matches(new IllegalStateException("Connection reset by peer"), TestEnum.DEFAULT));
+            assertEquals(TestEnum.ONE, variant.matches(new RuntimeException("Broken pipe"), TestEnum.DEFAULT));
+            assertEquals(TestEnum.TWO, variant.matches(new RuntimeException("Read timed out"), TestEnum.DEFAULT));
+            assertEquals(TestEnum.DEFAULT, variant.matches(new RuntimeException("Read timed out."), TestEnum.DEFAULT));
+            assertEquals(TestEnum.DEFAULT, variant.matches(new RuntimeException((String) null), TestEnum.DEFAULT));
+            assertEquals(TestEnum.THREE, variant.matches(
+                    new RuntimeException("A deadlock found", new IllegalStateException("Lock wait")), TestEnum.DEFAULT));
+            assertEquals(TestEnum.DEFAULT, variant.matches(
+                    new RuntimeException("A deadlock found", new IllegalStateException("Wait")), TestEnum.DEFAULT));
+            assertEquals(TestEnum.DEFAULT, variant.matches(new IOException("Connection reset"), TestEnum.DEFAULT));
+        }
+    }
+
+    @Test
+    public void testResultCache() {
+        final SortEx<TestEnum> plain = SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example4.yml"), TestEnum.class);
+        final SortEx<TestEnum> cached = plain.withResultCache(4);
+        final Random random = new Random(19);
+        final String[] messages = { "a", "b", "bb", "c", "d", "e" };
+        for (int i = 0; i < 10000; i++) {
+            final String message = messages[random.nextInt(messages.length)];
+            final RuntimeException exception = random.nextBoolean()
+                    ? new IllegalStateException(message)
+                    : new IllegalArgumentException(message, random.nextBoolean() ? new IOException(message) : null);
+            assertEquals(plain.matches(exception, TestEnum.DEFAULT), cached.matches(exception, TestEnum.DEFAULT));
+        }
+
+        final SortExCacheStatistics statistics = cached.cacheStatistics().get();
+        assertEquals(10000, statistics.getHits() + statistics.getMisses());
+        assertTrue(statistics.getHits() > 0);
+        assertTrue(statistics.getEvictions() > 0);
+        assertFalse(plain.cacheStatistics().isPresent());
+    }
+
+    @Test
+    public void testRecompile() {
+        final List<Map<String, Object>> maps2 = YamlUtil.loadListFromResource("sortex_rules/example2.yml");
+        final List<Map<String, Object>> maps3 = YamlUtil.loadListFromResource("sortex_rules/example3.yml");
+
+        final SortEx<TestEnum> sortex2 = SortEx.from(maps2, TestEnum.class);
+        final SortEx<TestEnum> recompiled = sortex2.recompile(maps3);
+        assertEquals(SortEx.from(maps3, TestEnum.class), recompiled);
+        assertEquals(sortex2, recompiled.recompile(maps2));
+
+        final SortEx<TestEnum> lazy = SortEx.fromLazily(maps2, TestEnum.class).recompile(maps3);
+        assertEquals(SortEx.fromLazily(maps3, TestEnum.class), lazy);
+
+        // Exception rules are reused by their DSL representations rebuilt from this instance.
+        final SortEx<TestEnum> same = sortex2.recompile(maps2);
+        final ArrayList<ExceptionRule> sameRules = new ArrayList<>(same.rules().keySet());
+        final ArrayList<ExceptionRule> originalRules = new ArrayList<>(sortex2.rules().keySet());
+        for (int i = 0; i < originalRules.size(); i++) {
+            assertSame(originalRules.get(i), sameRules.get(i));
+        }
+
+        // The result cache and the maximum cause depth are carried over.
+        final SortEx<TestEnum> configured = sortex2.withResultCache(16).withMaxCauseDepth(1).recompile(maps2);
+        assertEquals(sortex2.withResultCache(16).cacheStatistics().get().getCapacity(), configured.cacheStatistics().get().getCapacity());
+        assertEquals(0, configured.cacheStatistics().get().getSize());
+        assertEquals(TestEnum.DEFAULT, configured.matches(new UncheckedIOException("foo", new IOException()), TestEnum.DEFAULT));
+        assertFalse(recompiled.cacheStatistics().isPresent());
+
+        try {
+            sortex2.recompile(YamlUtil.loadListFromResource("sortex_rules/bad_duplicated.yml"));
+        } catch (final IllegalArgumentException ex) {
+            return;
+        }
+        fail("No expected Exception is thrown.");
+    }
+
     @Test
     public void testDuplicated() {
         try {
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import org.junit.jupiter.api.Test;
+
+public class TestSortExBinaryFormat {
+    @Test
+    public void testRoundTrip() {
+        for (final String resource : RESOURCES) {
+            final SortEx<TestSortEx.TestEnum> sortex =
+                    SortEx.from(YamlUtil.loadListFromResource(resource), TestSortEx.TestEnum.class);
+            final ByteBuffer binary = SortExBinaryFormat.write(sortex);
+            assertEquals(0, binary.position());
+
+            assertEquals(sortex, SortExBinaryFormat.read(binary, TestSortEx.TestEnum.class), resource);
+            assertEquals(0, binary.position(), resource);
+            assertEquals(sortex.toListOfMaps(), SortExBinaryFormat.read(binary, TestSortEx.TestEnum.class).toListOfMaps(), resource);
+        }
+    }
+
+    @Test
+    public void testReadLazily() {
+        final List<Map<String, Object>> maps = YamlUtil.loadListFromResource("sortex_rules/example3.yml");
+        final ByteBuffer binary = SortExBinaryFormat.write(SortEx.from(maps, TestSortEx.TestEnum.class));
+        final ClassLoader classLoader = TestSortExBinaryFormat.class.getClassLoader();
+        assertEquals(
+                SortEx.fromLazily(maps, TestSortEx.TestEnum.class, classLoader),
+                SortExBinaryFormat.readLazily(binary, TestSortEx.TestEnum.class, classLoader));
+    }
+
+    @Test
+    public void testDirectBufferWithOffset() {
+        final SortEx<TestSortEx.TestEnum> sortex =
+                SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example2.yml"), TestSortEx.TestEnum.class);
+        final ByteBuffer binary = SortExBinaryFormat.write(sortex);
+
+        final ByteBuffer direct = ByteBuffer.allocateDirect(binary.remaining() + 3);
+        direct.put(new byte[] { 7, 7, 7 }).put(binary).position(3);
+        assertEquals(sortex, SortExBinaryFormat.read(direct, TestSortEx.TestEnum.class));
+        assertEquals(3, direct.position());
+    }
+
+    @Test
+    public void testCompact() {
+        final SortEx<TestSortEx.TestEnum> sortex =
+                SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example2.yml"), TestSortEx.TestEnum.class);
+        // Repeated class names and targets are stored only once in the string table.
+        final int classNameLength = "java.io.UncheckedIOException".length();
+        assertTrue(SortExBinaryFormat.write(sortex).remaining() < classNameLength * 2 + 64);
+    }
+
+    @Test
+    public void testBroken() {
+        final SortEx<TestSortEx.TestEnum> sortex =
+                SortEx.from(YamlUtil.loadListFromResource("sortex_rules/example1.yml"), TestSortEx.TestEnum.class);
+        final byte[] bytes = toBytes(SortExBinaryFormat.write(sortex));
+
+        final byte[] badMagic = bytes.clone();
+        badMagic[0] = 'X';
+        assertEquals("The binary is not for SortEx.", readError(badMagic));
+
+        final byte[] badVersion = bytes.clone();
+        badVersion[5] = 2;
+        assertEquals("The binary version 2 is not supported. Expected version is 1.", readError(badVersion));
+
+        final byte[] zeroVersion = bytes.clone();
+        zeroVersion[5] = 0;
+        assertEquals("The binary version 0 is not supported. Expected version is 1.", readError(zeroVersion));
+
+        final byte[] corrupted = bytes.clone();
+        corrupted[bytes.length / 2] ^= 0x10;
+        assertEquals("The binary for SortEx is broken: checksum mismatch.", readError(corrupted));
+
+        assertEquals("The binary is too short for SortEx.", readError(new byte[] { 'S', 'R', 'T', 'X' }));
+    }
+
+    @Test
+    public void testTables() {
+        final List<Map<String, Object>> maps = Arrays.asList(
+                rule("message_matches_either_of", Arrays.asList("/(Read|Connect) timed out/", "Exact"), "ONE"),
+                rule("message_matches_either_of", Arrays.asList("/File .+ not found/", "/Connection reset.*/"), "TWO"),
+                rule("message_contains", Arrays.asList("foo", "bar"), "THREE"),
+                rule("message_matches_either_of", Arrays.asList("Exact"), "DEFAULT"));
+        final SortEx<TestSortEx.TestEnum> sortex = SortEx.from(maps, TestSortEx.TestEnum.class);
+        final ByteBuffer binary = SortExBinaryFormat.write(sortex);
+        final RuleTables tables = SortExBinaryFormat.readTables(binary);
+
+        assertEquals(
+                RegexSimplifier.simplify("(Read|Connect) timed out").toString(),
+                tables.simplifications().get("(Read|Connect) timed out").get().toString());
+        assertEquals(Optional.empty(), tables.simplifications().get("File .+ not found"));
+        assertEquals(Optional.of(RegexLiterals.requiredLiteral("File .+ not found")), tables.requiredLiterals().get("File .+ not found"));
+        assertTrue(tables.hasSimplification("(Read|Connect) timed out"));
+
+        final AhoCorasick automaton = tables.automata().get(Arrays.asList("foo", "bar"));
+        assertTrue(automaton.containsAny("xbarx"));
+        assertFalse(automaton.containsAny("fobaz"));
+
+        assertEquals(3, tables.exactMessages().size());
+        assertArrayEquals(new int[] { 0, 3 }, tables.exactMessages().get("Exact"));
+        assertArrayEquals(new int[] { 0 }, tables.exactMessages().get("Read timed out"));
+        assertArrayEquals(new int[] { 0 }, tables.exactMessages().get("Connect timed out"));
+
+        for (final SortEx<TestSortEx.TestEnum> read : Arrays.asList(
+                SortExBinaryFormat.read(binary, TestSortEx.TestEnum.class),
+                SortExBinaryFormat.readLazily(binary, TestSortEx.TestEnum.class, TestSortExBinaryFormat.class.getClassLoader()))) {
+            for (final String message : Arrays.asList(
+                    "Connect timed out", "Exact", "File a not found", "Connection reset by peer", "Connection reset\n", "a foo", "none")) {
+                final RuntimeException exception = new RuntimeException(message);
+                assertEquals(sortex.matches(exception), read.matches(exception), message);
+            }
+        }
+    }
+
+    @Test
+    public void testBrokenAutomaton() {
+        final char[][] labels = { { 'a' }, { 'b' }, {} };
+        final int[][] nexts = { { 1 }, { 2 }, {} };
+        final boolean[] terminals = { false, false, true };
+        final boolean[] accepts = { false, false, true };
+        assertTrue(AhoCorasick.restore(labels, nexts, new int[] { 0, 0, 0 }, terminals, accepts).containsAny("xab"));
+
+        // A failure to a deeper node, or to itself, could loop forever.
+        assertThrows(IllegalArgumentException.class, () -> AhoCorasick.restore(labels, nexts, new int[] { 0, 2, 0 }, terminals, accepts));
+        assertThrows(IllegalArgumentException.class, () -> AhoCorasick.restore(labels, nexts, new int[] { 0, 1, 0 }, terminals, accepts));
+        // Transitions that are not a tree.
+        assertThrows(IllegalArgumentException.class, () -> AhoCorasick.restore(labels, new int[][] { { 1 }, { 1 }, {} }, new int[] { 0, 0, 0 }, terminals, accepts));
+        assertThrows(IllegalArgumentException.class, () -> AhoCorasick.restore(labels, new int[][] { { 1 }, { 3 }, {} }, new int[] { 0, 0, 0 }, terminals, accepts));
+    }
+
+    @Test
+    public void testNestedTooDeep() {
+        assertEquals(1, SortExBinaryFormat.readMaps(nested(64)).size());
+        assertEquals("The binary for SortEx is broken: cause rules are nested deeper than 64.", readError(toBytes(nested(65))));
+        // It does not overflow the stack.
+        assertEquals("The binary for SortEx is broken: cause rules are nested deeper than 64.", readError(toBytes(nested(100000))));
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("class_extends", "java.io.IOException");
+        for (int i = 1; i < 65; i++) {
+            map.put("direct", true);
+            final LinkedHashMap<String, Object> outer = new LinkedHashMap<>();
+            outer.put("class_extends", "java.io.IOException");
+            outer.put("cause_matches_either_of", Arrays.asList(map));
+            map = outer;
+        }
+        map.put("sorted_into", "ONE");
+        final SortEx<TestSortEx.TestEnum> deep = SortEx.from(Arrays.asList(map), TestSortEx.TestEnum.class);
+        assertEquals("Cause rules are nested deeper than 64.",
+                     assertThrows(IllegalArgumentException.class, () -> SortExBinaryFormat.write(deep)).getMessage());
+    }
+
+    /**
+     * Builds a binary of one rule in which {@code depth} exception rules are nested in cause rules.
+     */
+    private static ByteBuffer nested(final int depth) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] { 'S', 'R', 'T', 'X', 0, 1 }, 0, 6);
+        out.write(2);  // Strings
+        writeString(out, "ONE");
+        writeString(out, "java.io.IOException");
+        out.write(1);  // Rules
+        out.write(0);  // "ONE"
+        for (int i = 0; i < depth; i++) {
+            out.write(2);  // class_extends
+            out.write(1);  // "java.io.IOException"
+            out.write(0);  // No message rule
+            if (i < depth - 1) {
+                out.write(2);  // One cause rule
+                out.write(1);  // Direct
+            } else {
+                out.write(0);  // No cause rule
+            }
+        }
+        out.write(new byte[] { 0, 0, 0, 0 }, 0, 4);  // Empty tables
+        final byte[] content = out.toByteArray();
+        final CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+        return (ByteBuffer) ByteBuffer.allocate(content.length + 4).put(content).putInt((int) crc.getValue()).flip();
+    }
+
+    private static void writeString(final ByteArrayOutputStream out, final String string) {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static Map<String, Object> rule(final String messageKey, final List<String> patterns, final String sortedInto) {
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("class_extends", "java.lang.RuntimeException");
+        map.put(messageKey, patterns);
+        map.put("sorted_into", sortedInto);
+        return map;
+    }
+
+    private static String readError(final byte[] bytes) {
+        return assertThrows(IllegalArgumentException.class, () -> {
+            SortExBinaryFormat.read(ByteBuffer.wrap(bytes), TestSortEx.TestEnum.class);
+        }).getMessage();
+    }
+
+    private static byte[] toBytes(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static final String[] RESOURCES = {
+        "sortex_rules/example1.yml",
+        "sortex_rules/example2.yml",
+        "sortex_rules/example3.yml",
+        "sortex_rules/example4.yml",
+    };
+}
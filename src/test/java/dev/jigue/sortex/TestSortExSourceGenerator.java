@@ -0,0 +1,193 @@
+/*
+ * Copyright 2022 Dai MIKURUBE
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.jigue.sortex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.Test;
+
+public class TestSortExSourceGenerator {
+    @Test
+    public void testGenerateAndCompile() throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeTrue(compiler != null);  // Not on a JRE.
+
+        final Path directory = Files.createTempDirectory("sortex");
+        for (final String name : Arrays.asList("example1", "example2", "example3", "example4", "example5")) {
+            final List<Map<String, Object>> maps = YamlUtil.loadListFromResource("sortex_rules/" + name + ".yml");
+            final String className = "Generated" + name.substring(0, 1).toUpperCase() + name.substring(1);
+            final String source = SortExSourceGenerator.generate(
+                    maps, Target.class.getCanonicalName(), "dev.jigue.sortex.generated", className);
+            assertTrue(source.contains("return SortEx.fromLazily(rules, " + Target.class.getCanonicalName() + ".class, "
+                                               + className + ".class.getClassLoader());"), source);
+
+            try (URLClassLoader classLoader = compile(compiler, directory, className, source)) {
+                final Class<?> generatedClass = classLoader.loadClass("dev.jigue.sortex.generated." + className);
+                final Object generated = generatedClass.getMethod("create").invoke(null);
+                assertEquals(SortEx.fromLazily(maps, Target.class, generatedClass.getClassLoader()), generated);
+            }
+        }
+        deleteRecursively(directory.toFile());
+    }
+
+    @Test
+    public void testGenerateWithClassLiteralsAndCompile() throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeTrue(compiler != null);  // Not on a JRE.
+
+        final Path directory = Files.createTempDirectory("sortex");
+        for (final String name : Arrays.asList("example1", "example2", "example3", "example4", "example5")) {
+            final List<Map<String, Object>> maps = YamlUtil.loadListFromResource("sortex_rules/" + name + ".yml");
+            final String className = "GeneratedWithClassLiterals" + name.substring(0, 1).toUpperCase() + name.substring(1);
+            final String source = SortExSourceGenerator.generateWithClassLiterals(
+                    maps, Target.class.getCanonicalName(), "dev.jigue.sortex.generated", className);
+            assertTrue(source.contains("return SortEx.from(rules, " + Target.class.getCanonicalName() + ".class);"), source);
+
+            try (URLClassLoader classLoader = compile(compiler, directory, className, source)) {
+                final Method create = classLoader.loadClass("dev.jigue.sortex.generated." + className).getMethod("create");
+                final Object generated = create.invoke(null);
+                assertEquals(SortEx.from(maps, Target.class), generated);
+            }
+        }
+        deleteRecursively(directory.toFile());
+    }
+
+    @Test
+    public void testClassNames() {
+        final HashMap<String, Object> map = new HashMap<>();
+        map.put("class_extends", "java.io.IOException");
+        map.put("sorted_into", "ONE");
+
+        final String source = SortExSourceGenerator.generate(Arrays.asList(map), "com.example.Target", "", "Rules");
+        assertTrue(source.contains("\"class_extends\", \"java.io.IOException\""), source);
+        assertTrue(source.contains("\"sorted_into\", com.example.Target.ONE"), source);
+        assertFalse(source.contains("java.io.IOException.class"), source);
+
+        // Classes are not loaded when generating.
+        final HashMap<String, Object> notFound = new HashMap<>();
+        notFound.put("class_equals", "com.example.NotFoundException");
+        notFound.put("sorted_into", "TWO");
+        final String notFoundSource = SortExSourceGenerator.generate(Arrays.asList(notFound), "com.example.Target", "", "Rules");
+        assertTrue(notFoundSource.contains("\"class_equals\", \"com.example.NotFoundException\""), notFoundSource);
+        try {
+            SortExSourceGenerator.generateWithClassLiterals(Arrays.asList(notFound), "com.example.Target", "", "Rules");
+            fail("No expected Exception is thrown.");
+        } catch (final IllegalArgumentException ex) {
+            assertEquals("Invalid class rule: class_equals", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testClassLiterals() {
+        final HashMap<String, Object> map = new HashMap<>();
+        map.put("class_extends", "java.io.IOException");
+        map.put("sorted_into", "ONE");
+        final HashMap<String, Object> nested = new HashMap<>();
+        nested.put("class_equals", "java.util.Map$Entry");  // Not Throwable
+        nested.put("sorted_into", "TWO");
+        final HashMap<String, Object> privateClass = new HashMap<>();
+        privateClass.put("class_equals", PrivateException.class.getName());
+        privateClass.put("sorted_into", "TWO");
+
+        final String source = SortExSourceGenerator.generateWithClassLiterals(
+                Arrays.asList(map, privateClass), "com.example.Target", "", "Rules");
+        assertTrue(source.contains("\"class_extends\", java.io.IOException.class"), source);
+        assertTrue(source.contains("\"class_equals\", \"dev.jigue.sortex.TestSortExSourceGenerator$PrivateException\""), source);
+        assertTrue(source.contains("\"sorted_into\", com.example.Target.ONE"), source);
+        assertTrue(source.startsWith("// Generated by dev.jigue.sortex.SortExSourceGenerator. Do not edit.\n\nimport"), source);
+
+        try {
+            SortExSourceGenerator.generateWithClassLiterals(Arrays.asList(nested), "com.example.Target", "", "Rules");
+            fail("No expected Exception is thrown.");
+        } catch (final IllegalArgumentException ex) {
+            assertEquals("Invalid class rule: class_equals", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testInvalidTarget() {
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("class_extends", "java.io.IOException");
+        map.put("sorted_into", "not a constant");
+        try {
+            SortExSourceGenerator.generate(Arrays.asList(map), "com.example.Target", "com.example", "Rules");
+            fail("No expected Exception is thrown.");
+        } catch (final IllegalArgumentException ex) {
+            assertEquals("Value of \"sorted_into\" is not a name of an enum constant: not a constant", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testStringLiteral() {
+        assertEquals("\"foo\"", SortExSourceGenerator.stringLiteral("foo"));
+        assertEquals("\"a\\\"b\\\\c\\nd\\te\\r\"", SortExSourceGenerator.stringLiteral("a\"b\\c\nd\te\r"));
+        assertEquals("\"\\000\\0371\"", SortExSourceGenerator.stringLiteral("\u0000\u001f1"));
+        assertEquals("\"caf\\u00e9\"", SortExSourceGenerator.stringLiteral("café"));
+    }
+
+    public enum Target {
+        ONE,
+        TWO,
+        THREE,
+        FOUR,
+        ;
+    }
+
+    private static final class PrivateException extends RuntimeException {
+    }
+
+    private static URLClassLoader compile(
+            final JavaCompiler compiler, final Path directory, final String className, final String source) throws IOException {
+        final Path sourceFile = directory.resolve(className + ".java");
+        Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+        final int status = compiler.run(null, null, null,
+                "-classpath", System.getProperty("java.class.path"),
+                "-d", directory.toString(),
+                sourceFile.toString());
+        assertEquals(0, status, source);
+        return new URLClassLoader(new URL[] { directory.toUri().toURL() }, TestSortExSourceGenerator.class.getClassLoader());
+    }
+
+    private static void deleteRecursively(final File file) throws IOException {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        Files.delete(file.toPath());
+    }
+}
@@ -19,6 +19,7 @@ package dev.jigue.sortex;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.yaml.snakeyaml.Yaml;
@@ -43,6 +44,14 @@ final class YamlUtil {
         return loadList(classLoader.getResourceAsStream(resourceName));
     }
 
+    public static List<ExceptionRule> loadRulesFromResource(final String resourceName) {
+        final ArrayList<ExceptionRule> rules = new ArrayList<>();
+        for (final Map<String, Object> map : loadListFromResource(resourceName)) {
+            rules.add(ExceptionRule.from(map));
+        }
+        return rules;
+    }
+
     @SuppressWarnings("unchecked")
     public static Map<String, Object> loadMap(final InputStream input) {
         final Map map = YAML.loadAs(input, Map.class);